@@ -0,0 +1,223 @@
+package benchmark;
+
+import model.DataFiles;
+import model.Event;
+import model.EventRepository;
+import model.KeyDictionary;
+import model.RegistrationEntry;
+import model.RegistrationIndex;
+import model.RegistrationJournal;
+import model.RegistrationService;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 資料層熱點的效能測試（JMH，不需要 JavaFX 視窗）。
+ * 所有資料都產生在暫存目錄（-Dcampus.dataDir），不會動到 src/ 底下的 CSV；
+ * 每個量測項目與活動筆數各在一個新的 JVM 中執行，全系統共用的資料不會互相影響。
+ *
+ * 執行（於專案根目錄，見 readme.md）：
+ *   mvn test-compile exec:exec@jmh -Djmh.args="CampusBenchmarks -p eventCount=10000"
+ *
+ * 預設測試 10000、100000、1000000 筆活動。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CampusBenchmarks {
+
+    private static final int REGISTRATION_COUNT = 100_000;
+    private static final int WAITLIST_SIZE = 5_000;
+    private static final String SEARCH_INPUT = "活動123";
+
+    @Param({"10000", "100000", "1000000"})
+    public int eventCount;
+
+    private File dataDir;
+    private File journalFile;
+    private EventRepository repository;
+    private RegistrationIndex registrationIndex;
+    private RegistrationService registrationService;
+
+    // 畫面逐列檢查時學生與活動的代碼都已知
+    private int[] studentKeys;
+    private int[] eventKeys;
+    private final Random random = new Random(42);
+    private int keystroke = 0;
+    private int nextStudent = REGISTRATION_COUNT;
+    private int nextForeign = 0;
+    private int nextRoster = 0;
+
+    @Setup(Level.Trial)
+    public void createData() throws IOException {
+        dataDir = Files.createTempDirectory("campus-bench").toFile();
+        System.setProperty(DataFiles.DATA_DIR_PROPERTY, dataDir.getPath());
+        writeEvents(new File(dataDir, "活動列表.csv"), eventCount);
+        writeRegistrations(new File(dataDir, "已報名.csv"), eventCount, REGISTRATION_COUNT);
+        journalFile = new File(dataDir, "已報名.journal");
+
+        repository = EventRepository.getInstance();
+        registrationIndex = RegistrationIndex.getInstance();
+        registrationService = RegistrationService.getInstance();
+        repository.ensureLoaded();
+        registrationIndex.ensureLoaded();
+
+        studentKeys = new int[REGISTRATION_COUNT];
+        for (int i = 0; i < studentKeys.length; i++) {
+            studentKeys[i] = KeyDictionary.STUDENTS.encode(studentId(i));
+        }
+        eventKeys = new int[eventCount];
+        for (int i = 0; i < eventKeys.length; i++) {
+            eventKeys[i] = repository.findById(eventId(i)).getKey();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteData() throws IOException {
+        // 合併日誌並關閉目前的日誌檔後才刪除目錄
+        RegistrationJournal.getInstance().compact();
+        deleteRecursively(dataDir);
+    }
+
+    /**
+     * 熱門活動有數千人候補（只建立記憶體中的候補名單，不寫入日誌）；
+     * 只給查詢候補順位使用，其他項目報名時不會先遞補這些候補者
+     */
+    @State(Scope.Benchmark)
+    public static class Waitlist {
+        String eventId;
+
+        @Setup(Level.Trial)
+        public void fill(CampusBenchmarks data) {
+            eventId = eventId(0);
+            for (int i = 0; i < WAITLIST_SIZE; i++) {
+                data.registrationIndex.addWaiting(new RegistrationEntry("W" + i, eventId, ""));
+            }
+        }
+    }
+
+    @Benchmark
+    public void loadEvents() {
+        repository.reload();
+    }
+
+    /**
+     * 搜尋框每輸入一個字就過濾一次
+     */
+    @Benchmark
+    public List<Event> searchPerKeystroke() {
+        keystroke = keystroke % SEARCH_INPUT.length() + 1;
+        return registrationService.browseEvents(SEARCH_INPUT.substring(0, keystroke));
+    }
+
+    @Benchmark
+    public void loadRegistrations() {
+        registrationIndex.reload();
+    }
+
+    @Benchmark
+    public boolean isRegistered() {
+        return registrationIndex.isRegistered(studentId(random.nextInt(REGISTRATION_COUNT)),
+                eventId(random.nextInt(eventCount)));
+    }
+
+    @Benchmark
+    public boolean isRegisteredByKey() {
+        return registrationIndex.isRegistered(studentKeys[random.nextInt(studentKeys.length)],
+                eventKeys[random.nextInt(eventKeys.length)]);
+    }
+
+    @Benchmark
+    public List<RegistrationEntry> roster() {
+        return registrationService.getRoster(eventId(nextRoster++ % Math.min(eventCount, 100)));
+    }
+
+    @Benchmark
+    public int waitlistPosition(Waitlist waitlist) {
+        return registrationIndex.getWaitingPosition("W" + random.nextInt(WAITLIST_SIZE), waitlist.eventId);
+    }
+
+    /**
+     * 每次報名都是新的學生，包含扣名額與寫入報名日誌
+     */
+    @Benchmark
+    public RegistrationService.Result register() throws IOException {
+        int student = nextStudent++;
+        return registrationService.register(studentId(student), eventId(student % eventCount));
+    }
+
+    /**
+     * 其他程式在日誌尾端新增 10 筆報名後重新整理：只讀取新增的行，與歷史筆數無關
+     */
+    @Benchmark
+    public void refreshAfterForeignAppend() throws IOException {
+        appendForeignRegistrations(journalFile, nextForeign, 10, eventCount);
+        nextForeign += 10;
+        registrationIndex.refresh();
+    }
+
+    private static void writeEvents(File file, int count) throws IOException {
+        try (BufferedWriter bw = new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            bw.write(EventRepository.CSV_HEADER);
+            bw.newLine();
+            for (int i = 0; i < count; i++) {
+                bw.write(eventId(i) + ",活動" + i + ",教室" + (i % 500) + ",2025-06-"
+                        + String.format("%02d", i % 28 + 1) + " 10:00,h" + (i % 200) + "," + (1_000_000));
+                bw.newLine();
+            }
+        }
+    }
+
+    /**
+     * 模擬另一個程式直接附加到報名日誌
+     */
+    private static void appendForeignRegistrations(File journalFile, int first, int count, int eventCount)
+            throws IOException {
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(journalFile, true), StandardCharsets.UTF_8)) {
+            for (int i = first; i < first + count; i++) {
+                writer.write("+,other" + i + "," + eventId(i % eventCount) + ",2025-06-01 10:00,999\n");
+            }
+        }
+    }
+
+    private static void writeRegistrations(File file, int eventCount, int count) throws IOException {
+        // 報名集中在前 100 個活動，讓名單查詢有實際的資料量
+        try (BufferedWriter bw = new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            bw.write(RegistrationIndex.CSV_HEADER);
+            bw.newLine();
+            for (int i = 0; i < count; i++) {
+                bw.write(studentId(i) + "," + eventId(i % Math.min(eventCount, 100)) + ",2025-05-01 12:00:00");
+                bw.newLine();
+            }
+        }
+    }
+
+    private static String eventId(int i) {
+        return "E" + i;
+    }
+
+    private static String studentId(int i) {
+        return "s" + i;
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
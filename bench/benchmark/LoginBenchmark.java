@@ -0,0 +1,140 @@
+package benchmark;
+
+import model.DataFiles;
+import model.Event;
+import model.EventRepository;
+import model.LoginService;
+import model.PasswordHasher;
+import model.RegistrationIndex;
+import model.RegistrationService;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 登入尖峰的效能測試（JMH）：大量學生同時登入（經由 {@link LoginService} 的驗證執行緒池），
+ * 量測指定雜湊成本下登入的延遲分布，並在同一時間持續瀏覽活動，確認雜湊計算不會拖慢其他操作。
+ * 驗證佇列已滿（BUSY）時與真正的用戶端一樣依 Retry-After 等待後重試，延遲包含等待的時間。
+ *
+ * 執行（於專案根目錄，見 readme.md）：
+ *   mvn test-compile exec:exec@jmh -Djmh.args="LoginBenchmark -p iterations=60000"
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoginBenchmark {
+
+    private static final String PASSWORD = "password123";
+    private static final int EVENT_COUNT = 10_000;
+
+    @Param({"60000"})
+    public int iterations;
+
+    @Param({"2000"})
+    public int userCount;
+
+    private File dataDir;
+    private LoginService loginService;
+    private RegistrationService registrationService;
+    private final AtomicInteger nextUser = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void createData() throws IOException {
+        System.setProperty(PasswordHasher.ITERATIONS_PROPERTY, String.valueOf(iterations));
+        dataDir = Files.createTempDirectory("campus-login").toFile();
+        System.setProperty(DataFiles.DATA_DIR_PROPERTY, dataDir.getPath());
+        writeData(dataDir, userCount);
+
+        loginService = LoginService.getInstance();
+        registrationService = RegistrationService.getInstance();
+        EventRepository.getInstance().ensureLoaded();
+        RegistrationIndex.getInstance().ensureLoaded();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteData() {
+        deleteRecursively(dataDir);
+    }
+
+    /**
+     * 單次雜湊的成本
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public String hash() {
+        return PasswordHasher.hash(PASSWORD);
+    }
+
+    /**
+     * 登入尖峰：200 個用戶端同時登入
+     */
+    @Benchmark
+    @Group("peak")
+    @GroupThreads(200)
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public LoginService.Result login() throws InterruptedException, ExecutionException {
+        String userId = "s" + Math.floorMod(nextUser.getAndIncrement(), userCount);
+        while (true) {
+            LoginService.Result result = loginService.login(userId, PASSWORD).get();
+            if (result.getStatus() != LoginService.Status.BUSY) {
+                return result;
+            }
+            Thread.sleep(Math.max(1, result.getRetryAfterMillis()));
+        }
+    }
+
+    /**
+     * 登入尖峰期間另一位使用者瀏覽活動
+     */
+    @Benchmark
+    @Group("peak")
+    @GroupThreads(1)
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Event> browseDuringLogins() {
+        return registrationService.browseEvents("活動12");
+    }
+
+    /**
+     * 產生測試帳號（所有帳號共用同一個雜湊，只為了不讓準備資料的時間過長）與活動資料
+     */
+    private static void writeData(File dataDir, int userCount) throws IOException {
+        String hashed = PasswordHasher.hash(PASSWORD);
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(new File(dataDir, "users.csv")), StandardCharsets.UTF_8))) {
+            for (int i = 0; i < userCount; i++) {
+                writer.write("s" + i + ",學生" + i + "," + hashed + ",s\n");
+            }
+        }
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(new File(dataDir, "活動列表.csv")), StandardCharsets.UTF_8))) {
+            writer.write(EventRepository.CSV_HEADER + "\n");
+            for (int i = 0; i < EVENT_COUNT; i++) {
+                writer.write("E" + i + ",活動" + i + ",教室" + (i % 50) + ",2025-06-01 10:00,h1,100\n");
+            }
+        }
+        try (Writer writer = new OutputStreamWriter(
+                new FileOutputStream(new File(dataDir, "已報名.csv")), StandardCharsets.UTF_8)) {
+            writer.write(RegistrationIndex.CSV_HEADER + "\n");
+        }
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
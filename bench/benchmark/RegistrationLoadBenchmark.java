@@ -0,0 +1,226 @@
+package benchmark;
+
+import model.DataFiles;
+import model.EventRepository;
+import model.PasswordHasher;
+import model.RegistrationIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 報名服務（RegistrationServer）的壓力測試（JMH）：模擬報名開放時大量學生用戶端同時搶同一個活動，
+ * 量測每個請求的延遲分布，並確認成功報名的人數不超過名額。
+ * 服務在另一個 JVM 中執行（與實際部署相同，用戶端執行緒不會與服務搶同一個 JVM 的資源），
+ * 每位學生在量測前先登入取得 token（登入本身的成本由 LoginBenchmark 量測）。
+ * 每 10 個請求中有 1 個是瀏覽活動，其餘為不同學生的報名；每個用戶端執行緒保持自己的 keep-alive 連線。
+ *
+ * 執行（於專案根目錄，見 readme.md；-t 為同時連線數，-bm thrpt 改為量測每秒請求數）：
+ *   mvn test-compile exec:exec@jmh -Djmh.args="RegistrationLoadBenchmark -t 2000 -p capacity=100"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(200)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dhttp.maxConnections=4096")
+public class RegistrationLoadBenchmark {
+
+    private static final String EVENT_ID = "LOAD1";
+    // 測試帳號的雜湊成本，只為了縮短登入階段
+    private static final int TEST_PASSWORD_ITERATIONS = 1000;
+    // 登入佇列已滿（503）時依 Retry-After 等待後重試的次數上限
+    private static final int MAX_LOGIN_ATTEMPTS = 30;
+    // 登入階段的同時連線數，不超過服務的登入佇列
+    private static final int LOGIN_CLIENTS = 256;
+    private static final long LOGIN_RETRY_MILLIS = 1000;
+    private static final long SERVER_START_TIMEOUT_MILLIS = 60_000;
+
+    @Param({"100"})
+    public int capacity;
+
+    // 登入的學生數；請求依序輪流使用這些學生
+    @Param({"20000"})
+    public int studentCount;
+
+    private File dataDir;
+    private Process server;
+    private String baseUrl;
+    private String[] tokens;
+    private final AtomicInteger nextRequest = new AtomicInteger();
+    private final AtomicInteger granted = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void startServer() throws IOException, InterruptedException {
+        dataDir = Files.createTempDirectory("campus-load").toFile();
+        writeFile(new File(dataDir, "活動列表.csv"), EventRepository.CSV_HEADER + "\n"
+                + EVENT_ID + ",壓力測試活動,大禮堂,2025-06-01 10:00,h1," + capacity + "\n");
+        writeFile(new File(dataDir, "已報名.csv"), RegistrationIndex.CSV_HEADER + "\n");
+        // 明碼密碼在第一次登入成功時改為雜湊
+        StringBuilder users = new StringBuilder();
+        for (int i = 0; i < studentCount; i++) {
+            if (i % 10 != 0) {
+                users.append("s").append(i).append(",學生").append(i).append(",pw").append(i).append(",s\n");
+            }
+        }
+        writeFile(new File(dataDir, "users.csv"), users.toString());
+
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        server = new ProcessBuilder(new File(System.getProperty("java.home"), "bin/java").getPath(),
+                "-D" + DataFiles.DATA_DIR_PROPERTY + "=" + dataDir.getPath(),
+                "-D" + PasswordHasher.ITERATIONS_PROPERTY + "=" + TEST_PASSWORD_ITERATIONS,
+                "-Dfile.encoding=UTF-8",
+                "-cp", System.getProperty("java.class.path"),
+                "RegistrationServer", String.valueOf(port))
+                .redirectErrorStream(true)
+                .redirectOutput(new File(dataDir, "server.log"))
+                .start();
+        baseUrl = "http://127.0.0.1:" + port;
+        awaitServer();
+        tokens = login(baseUrl, LOGIN_CLIENTS, studentCount);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopServer() throws InterruptedException {
+        server.destroy();
+        server.waitFor();
+        deleteRecursively(dataDir);
+        if (granted.get() > capacity) {
+            throw new IllegalStateException("成功報名人數超過名額：" + granted.get() + " 人（名額 " + capacity + "）");
+        }
+    }
+
+    @Benchmark
+    public String request() throws IOException {
+        int student = Math.floorMod(nextRequest.getAndIncrement(), studentCount);
+        if (student % 10 == 0) {
+            return request(baseUrl + "/events", null, null);
+        }
+        String response = request(baseUrl + "/register", "eventId=" + EVENT_ID, tokens[student]);
+        if (response.contains("\"SUCCESS\"")) {
+            granted.incrementAndGet();
+        }
+        return response;
+    }
+
+    /**
+     * 服務啟動並載入資料後才開始登入
+     */
+    private void awaitServer() throws IOException, InterruptedException {
+        long deadline = System.currentTimeMillis() + SERVER_START_TIMEOUT_MILLIS;
+        while (true) {
+            try {
+                request(baseUrl + "/events", null, null);
+                return;
+            } catch (IOException e) {
+                if (!server.isAlive() || System.currentTimeMillis() > deadline) {
+                    throw new IOException("報名服務無法啟動，請見 " + new File(dataDir, "server.log").getPath(), e);
+                }
+                Thread.sleep(100);
+            }
+        }
+    }
+
+    /**
+     * 所有報名的學生先各自登入，回傳每位學生的 token（瀏覽活動的請求為 null）；
+     * 同時登入的人數超過登入佇列時服務回覆 503，等待後重試
+     */
+    private static String[] login(String baseUrl, int clients, int studentCount) throws InterruptedException {
+        String[] tokens = new String[studentCount];
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(clients);
+        for (int c = 0; c < clients; c++) {
+            new Thread(() -> {
+                try {
+                    int i;
+                    while ((i = next.getAndIncrement()) < studentCount) {
+                        if (i % 10 == 0) {
+                            continue;
+                        }
+                        for (int attempt = 1; tokens[i] == null; attempt++) {
+                            try {
+                                String response = request(baseUrl + "/login",
+                                        "userId=s" + i + "&password=pw" + i, null);
+                                int start = response.indexOf("\"token\":\"") + 9;
+                                tokens[i] = response.substring(start, response.indexOf('"', start));
+                            } catch (IOException e) {
+                                if (attempt == MAX_LOGIN_ATTEMPTS) {
+                                    failed.incrementAndGet();
+                                    break;
+                                }
+                                Thread.sleep(LOGIN_RETRY_MILLIS);
+                            }
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        done.await();
+        if (failed.get() > 0) {
+            throw new IllegalStateException("登入失敗 " + failed.get() + " 人");
+        }
+        return tokens;
+    }
+
+    private static String request(String url, String formBody, String token) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        try {
+            if (token != null) {
+                connection.setRequestProperty("Authorization", "Bearer " + token);
+            }
+            if (formBody != null) {
+                connection.setRequestMethod("POST");
+                connection.setDoOutput(true);
+                connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+                try (OutputStream out = connection.getOutputStream()) {
+                    out.write(formBody.getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            try (InputStream in = connection.getInputStream()) {
+                return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+        } catch (IOException e) {
+            // 讀完錯誤回應，連線才能留給下一個請求使用
+            InputStream error = connection.getErrorStream();
+            if (error != null) {
+                try (InputStream in = error) {
+                    in.readAllBytes();
+                }
+            }
+            throw e;
+        }
+    }
+
+    private static void writeFile(File file, String content) throws IOException {
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            writer.write(content);
+        }
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,158 @@
+package benchmark;
+
+import model.DataFiles;
+import model.EventRepository;
+import model.RegistrationIndex;
+import model.RegistrationJournal;
+import model.RegistrationService;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 名額配給的壓力測試（JMH）：多條執行緒同時搶同一個活動，期間另一條執行緒不斷重新載入活動、
+ * 重新整理報名並合併日誌（模擬主辦人儲存與其他程式改寫資料），量測每秒的報名數。
+ * 每輪量測結束時確認成功報名的人數、報名名單與剩餘名額三者一致，全部結束後重新從檔案載入也一致；
+ * 不一致時該項量測失敗。
+ *
+ * 執行（於專案根目錄，見 readme.md）：
+ *   mvn test-compile exec:exec@jmh -Djmh.args="SeatStressBenchmark -t 32 -p capacity=1000"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(32)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SeatStressBenchmark {
+
+    private static final String EVENT_ID = "SEAT1";
+    // 名額為 0 的活動：額滿後湧入的報名
+    private static final String SOLD_OUT_EVENT_ID = "SEAT0";
+
+    @Param({"100000"})
+    public int capacity;
+
+    private File dataDir;
+    private EventRepository repository;
+    private RegistrationIndex registrationIndex;
+    private RegistrationService registrationService;
+
+    private final AtomicLong nextStudent = new AtomicLong();
+    private final AtomicInteger granted = new AtomicInteger();
+    private final AtomicInteger errors = new AtomicInteger();
+    private final AtomicBoolean running = new AtomicBoolean(true);
+    private Thread disturber;
+
+    @Setup(Level.Trial)
+    public void start() throws IOException {
+        dataDir = Files.createTempDirectory("campus-seat").toFile();
+        System.setProperty(DataFiles.DATA_DIR_PROPERTY, dataDir.getPath());
+        writeFile(new File(dataDir, "活動列表.csv"), EventRepository.CSV_HEADER + "\n"
+                + EVENT_ID + ",名額壓力測試,大禮堂,2025-06-01 10:00,h1," + capacity + "\n"
+                + SOLD_OUT_EVENT_ID + ",已額滿活動,小禮堂,2025-06-01 10:00,h1,0\n");
+        writeFile(new File(dataDir, "已報名.csv"), RegistrationIndex.CSV_HEADER + "\n");
+
+        repository = EventRepository.getInstance();
+        registrationIndex = RegistrationIndex.getInstance();
+        registrationService = RegistrationService.getInstance();
+        repository.ensureLoaded();
+        registrationIndex.ensureLoaded();
+
+        // 報名途中不斷重新載入與合併：名額不可因此被重新計算而多發
+        disturber = new Thread(() -> {
+            int round = 0;
+            while (running.get()) {
+                try {
+                    int step = round++ % 3;
+                    if (step == 0) {
+                        repository.reload();
+                    } else if (step == 1) {
+                        registrationIndex.refresh();
+                    } else {
+                        RegistrationJournal.getInstance().compact();
+                    }
+                } catch (IOException e) {
+                    errors.incrementAndGet();
+                    System.err.println("合併日誌失敗：" + e.getMessage());
+                }
+            }
+        }, "seat-disturber");
+        disturber.start();
+    }
+
+    @Benchmark
+    public RegistrationService.Result register() throws IOException {
+        RegistrationService.Result result = registrationService.register(
+                "s" + nextStudent.getAndIncrement(), EVENT_ID);
+        if (result == RegistrationService.Result.SUCCESS) {
+            granted.incrementAndGet();
+        }
+        return result;
+    }
+
+    /**
+     * 額滿的活動不取得任何鎖直接拒絕，不會與上面的報名排隊
+     */
+    @Benchmark
+    public RegistrationService.Result registerSoldOut() throws IOException {
+        RegistrationService.Result result = registrationService.register(
+                "s" + nextStudent.getAndIncrement(), SOLD_OUT_EVENT_ID);
+        if (result != RegistrationService.Result.FULL) {
+            errors.incrementAndGet();
+        }
+        return result;
+    }
+
+    /**
+     * 每輪量測的所有執行緒都結束後檢查（重新載入與合併仍在進行）
+     */
+    @TearDown(Level.Iteration)
+    public void verify() {
+        check(registrationService.getRoster(EVENT_ID).size(), repository.getRemainingSeats(EVENT_ID));
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() throws InterruptedException {
+        running.set(false);
+        disturber.join();
+
+        // 從檔案重新載入，確認寫入的快照與日誌和記憶體中的結果相同
+        repository.reload();
+        registrationIndex.reload();
+        check(registrationService.getRoster(EVENT_ID).size(), repository.getRemainingSeats(EVENT_ID));
+        deleteRecursively(dataDir);
+    }
+
+    private void check(int rosterSize, int remaining) {
+        if (errors.get() > 0 || granted.get() > capacity || rosterSize != granted.get()
+                || remaining != capacity - granted.get()) {
+            throw new IllegalStateException("成功報名人數、名單與剩餘名額不一致：報名成功 " + granted.get()
+                    + " 人，名單 " + rosterSize + " 人，剩餘名額 " + remaining + "（名額 " + capacity
+                    + "），錯誤 " + errors.get() + " 次");
+        }
+    }
+
+    private static void writeFile(File file, String content) throws IOException {
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            writer.write(content);
+        }
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -1,22 +1,28 @@
-import javafx.beans.property.SimpleBooleanProperty;
-import javafx.beans.property.SimpleIntegerProperty;
-import javafx.beans.property.SimpleStringProperty;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.property.ReadOnlyStringWrapper;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
 import javafx.scene.control.*;
-import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.stage.Stage;
 import javafx.util.Callback;
+import model.AsyncDataService;
+import model.Event;
+import model.EventRepository;
+import model.KeyDictionary;
+import model.Organizer;
+import model.RegistrationIndex;
+import model.RegistrationService;
 import model.Student;
+import model.StudentTimetable;
+import model.UserDirectory;
 
 import java.io.*;
 import java.net.URL;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.ResourceBundle;
 
@@ -28,22 +34,42 @@ public class EventBrowserController implements Initializable {
     @FXML private TableColumn<Event, String> eventIdColumn;      // 新增活動編號欄
     @FXML private TableColumn<Event, String> eventNameColumn;
     @FXML private TableColumn<Event, String> locationColumn;
-    @FXML private TableColumn<Event, String> timeColumn;
+    // 欄位值為數值時間（排序時只比較整數），儲存格顯示檔案中的時間原文
+    @FXML private TableColumn<Event, Integer> timeColumn;
     @FXML private TableColumn<Event, String> organizerColumn;
     @FXML private TableColumn<Event, Integer> capacityColumn;
     @FXML private TableColumn<Event, Void> actionColumn;
     @FXML private Button backButton;
     private String currentStudentId;
+    // 目前學生的學號代碼，逐列檢查是否已報名時使用
+    private int currentStudentKey = KeyDictionary.NONE;
     private Student currentStudent;
+    // 表格直接顯示活動資料庫中的活動（不複製內容），欄位值只在顯示該列時才取出
     private ObservableList<Event> eventList = FXCollections.observableArrayList();
     private ObservableList<Event> filteredEventList = FXCollections.observableArrayList();
 
-    // 新增：用於存儲用戶ID到姓名的映射
-    private Map<String, String> userIdToNameMap = new HashMap<>();
+    // 全系統共用的使用者資料，取代每個畫面各自讀取 users.csv
+    private final UserDirectory userDirectory = UserDirectory.getInstance();
+
+    // 全系統共用的活動資料庫
+    private final EventRepository eventRepository = EventRepository.getInstance();
+
+    // 全系統共用的報名索引，取代每次重新掃描 已報名.csv
+    private final RegistrationIndex registrationIndex = RegistrationIndex.getInstance();
+    // 報名流程：原子扣除名額後附加到報名日誌
+    private final RegistrationService registrationService = RegistrationService.getInstance();
+    // 學生課表，標示與已報名活動時間重疊的活動
+    private final StudentTimetable timetable = StudentTimetable.getInstance();
+
+    // 讀寫檔案都在背景進行，結果再交給 JavaFX 執行緒
+    private final AsyncDataService dataService = AsyncDataService.getInstance();
+    private final FxUpdateQueue fxUpdates = FxUpdateQueue.getInstance();
+    private LoadingState loadingState;
 
     public void setCurrentStudent(Student student) {
         this.currentStudent = student;
         this.currentStudentId = student.getId();
+        this.currentStudentKey = KeyDictionary.STUDENTS.encode(currentStudentId);
         System.out.println("當前登入學生: " + student.getName() + " (ID: " + student.getId() + ")");
         if (eventTable != null) {
             reloadEvents();
@@ -52,52 +78,35 @@ public class EventBrowserController implements Initializable {
 
     @Override
     public void initialize(URL location, ResourceBundle resources) {
-        loadUserData(); // 新增：載入用戶資料
+        loadingState = new LoadingState(eventTable, searchButton);
         setupTableColumns();
         reloadEvents();
         eventTable.setItems(filteredEventList);
     }
 
-    // 新增：載入用戶資料的方法
-    private void loadUserData() {
-        userIdToNameMap.clear();
-        try {
-            BufferedReader reader = new BufferedReader(new FileReader("src/users.csv"));
-            String line;
-            boolean isFirstLine = true;
-            while ((line = reader.readLine()) != null) {
-                if (isFirstLine) {
-                    isFirstLine = false;
-                    continue;
-                }
-                String[] parts = line.split(",", -1);
-                if (parts.length >= 2) {
-                    String userId = parts[0].trim();
-                    String userName = parts[1].trim();
-                    userIdToNameMap.put(userId, userName);
-                }
-            }
-            reader.close();
-            System.out.println("成功載入 " + userIdToNameMap.size() + " 個用戶資料");
-        } catch (IOException e) {
-            e.printStackTrace();
-            System.out.println("讀取用戶資料時發生錯誤: " + e.getMessage());
-        }
-    }
-
     // 新增：根據用戶ID獲取姓名的方法
     private String getOrganizerName(String organizerId) {
-        return userIdToNameMap.getOrDefault(organizerId, organizerId); // 如果找不到對應姓名，返回原ID
+        return userDirectory.getName(organizerId); // 如果找不到對應姓名，返回原ID
     }
 
     private void setupTableColumns() {
         // 注意：FXML 裡要有對應 eventIdColumn，否則要自己加上
-        eventIdColumn.setCellValueFactory(new PropertyValueFactory<>("eventId"));
-        eventNameColumn.setCellValueFactory(new PropertyValueFactory<>("eventName"));
-        locationColumn.setCellValueFactory(new PropertyValueFactory<>("location"));
-        timeColumn.setCellValueFactory(new PropertyValueFactory<>("time"));
-        organizerColumn.setCellValueFactory(new PropertyValueFactory<>("organizer"));
-        capacityColumn.setCellValueFactory(new PropertyValueFactory<>("remainingCapacity"));
+        // 表格只為畫面上看得到的列呼叫這些工廠，屬性物件不會為每個活動都建立
+        eventIdColumn.setCellValueFactory(cell -> new ReadOnlyStringWrapper(cell.getValue().getId()));
+        eventNameColumn.setCellValueFactory(cell -> new ReadOnlyStringWrapper(cell.getValue().getTitle()));
+        locationColumn.setCellValueFactory(cell -> new ReadOnlyStringWrapper(cell.getValue().getLocation()));
+        timeColumn.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(cell.getValue().getStartTime()));
+        timeColumn.setCellFactory(column -> new TableCell<Event, Integer>() {
+            @Override
+            protected void updateItem(Integer item, boolean empty) {
+                super.updateItem(item, empty);
+                Event event = empty || getTableRow() == null ? null : getTableRow().getItem();
+                setText(event != null ? event.getTime() : null);
+            }
+        });
+        organizerColumn.setCellValueFactory(cell -> new ReadOnlyStringWrapper(cell.getValue().getOrganizer().getName()));
+        // 活動資料庫中的名額即為剩餘名額
+        capacityColumn.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(cell.getValue().getCapacity()));
 
         // 報名按鈕欄位
         actionColumn.setCellFactory(new Callback<TableColumn<Event, Void>, TableCell<Event, Void>>() {
@@ -121,15 +130,27 @@ public class EventBrowserController implements Initializable {
                         } else {
                             Event event = getTableView().getItems().get(getIndex());
                             boolean alreadyRegistered = (currentStudentId != null) &&
-                                    isAlreadyRegistered(currentStudentId, event.getEventId());
+                                    isAlreadyRegistered(event);
+                            int waitingPosition = currentStudentId != null
+                                    ? registrationIndex.getWaitingPosition(currentStudentKey, event.getKey()) : 0;
                             if (alreadyRegistered) {
                                 registerButton.setText("已報名");
                                 registerButton.setDisable(true);
                                 registerButton.setStyle("-fx-background-color: #27ae60; -fx-text-fill: white;");
-                            } else if (event.getRemainingCapacity() <= 0) {
-                                registerButton.setText("已額滿");
+                            } else if (waitingPosition > 0) {
+                                registerButton.setText("候補第" + waitingPosition + "位");
                                 registerButton.setDisable(true);
-                                registerButton.setStyle("-fx-background-color: #cccccc;");
+                                registerButton.setStyle("-fx-background-color: #2980b9; -fx-text-fill: white;");
+                            } else if (isWaitlistOnly(event)) {
+                                // 額滿或已有人候補，按下時詢問是否加入候補名單
+                                registerButton.setText("加入候補");
+                                registerButton.setDisable(currentStudentId == null);
+                                registerButton.setStyle("-fx-background-color: #7f8c8d; -fx-text-fill: white;");
+                            } else if (currentStudentId != null && timetable.hasConflict(currentStudentKey, event)) {
+                                // 仍可報名，按下時會先提示衝突的活動
+                                registerButton.setText("時間衝突");
+                                registerButton.setDisable(false);
+                                registerButton.setStyle("-fx-background-color: #e67e22; -fx-text-fill: white;");
                             } else {
                                 registerButton.setText("報名");
                                 registerButton.setDisable(false);
@@ -145,10 +166,15 @@ public class EventBrowserController implements Initializable {
     }
 
 
+    /**
+     * 使用者、活動與報名在背景同時載入（已載入時立即完成），之後只從記憶體建立表格資料
+     */
     public void reloadEvents() {
-        loadEventsFromCSV();
-        filteredEventList.setAll(eventList);
-        eventTable.refresh();
+        loadingState.track(dataService.loadAll(), "活動載入中…").thenRunAsync(() -> {
+            loadEventsFromCSV();
+            filteredEventList.setAll(eventList);
+            eventTable.refresh();
+        }, fxUpdates);
     }
 
     private void loadSampleData() {
@@ -157,56 +183,35 @@ public class EventBrowserController implements Initializable {
     }
 
     private void loadEventsFromCSV() {
-        eventList.clear();
-        try {
-            BufferedReader reader = new BufferedReader(new FileReader("src/活動列表.csv"));
-            String line;
-            boolean isFirstLine = true;
-            while ((line = reader.readLine()) != null) {
-                if (isFirstLine) { isFirstLine = false; continue; }
-                String[] parts = line.split(",", -1);
-                if (parts.length >= 6) {
-                    String eventId = parts[0].trim();
-                    String eventName = parts[1].trim();
-                    String location = parts[2].trim();
-                    String time = parts[3].trim();
-                    String organizerId = parts[4].trim(); // 這是主辦單位ID
-                    String organizerName = getOrganizerName(organizerId); // 轉換為姓名
-                    int remainingCapacity = 0;
-                    try {
-                        remainingCapacity = Integer.parseInt(parts[5].trim());
-                    } catch (NumberFormatException e) {
-                        remainingCapacity = 0;
-                    }
-                    // 使用主辦人姓名而不是ID創建Event物件
-                    Event event = new Event(eventId, eventName, location, time, organizerName, remainingCapacity);
-                    eventList.add(event);
-                }
+        // 預設依活動時間排列，直接取自時間索引
+        List<Event> events = eventRepository.getAllByTime();
+        // 同一位主辦人的活動共用一個顯示姓名的主辦人物件
+        Map<String, Organizer> organizers = new HashMap<>();
+        for (Event event : events) {
+            String organizerId = event.getOrganizer().getId(); // 這是主辦單位ID
+            String organizerName = getOrganizerName(organizerId); // 轉換為姓名
+            // 表格與搜尋索引都以主辦人姓名顯示、搜尋
+            if (!organizerName.equals(event.getOrganizer().getName())) {
+                Organizer organizer = organizers.computeIfAbsent(organizerId,
+                        id -> new Organizer(id, organizerName, ""));
+                eventRepository.setOrganizer(event, organizer);
             }
-            reader.close();
-            System.out.println("成功載入 " + eventList.size() + " 個活動");
-        } catch (IOException e) {
-            e.printStackTrace();
-            System.out.println("讀取 CSV 檔案時發生錯誤: " + e.getMessage());
         }
+        eventList.setAll(events);
+        System.out.println("成功載入 " + eventList.size() + " 個活動");
     }
 
 
     @FXML
     private void handleSearch() {
-        String searchText = searchField.getText().toLowerCase().trim();
+        String searchText = searchField.getText().trim();
         if (searchText.isEmpty()) {
             filteredEventList.setAll(eventList);
         } else {
-            filteredEventList.clear();
-            for (Event event : eventList) {
-                if (event.getEventName().toLowerCase().contains(searchText) ||
-                        event.getLocation().toLowerCase().contains(searchText) ||
-                        event.getOrganizer().toLowerCase().contains(searchText) ||
-                        event.getEventId().toLowerCase().contains(searchText)) {
-                    filteredEventList.add(event);
-                }
-            }
+            List<Event> results = eventRepository.search(searchText);
+            // 搜尋結果同樣依活動時間排列
+            results.sort(Comparator.comparingInt(Event::getStartTime));
+            filteredEventList.setAll(results);
         }
     }
 
@@ -219,16 +224,13 @@ public class EventBrowserController implements Initializable {
     @FXML
     private void handleBackToMain() {
         try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/學生主畫面.fxml"));
-            Parent root = loader.load();
-            StudentMainController controller = loader.getController();
-            if (currentStudent != null) {
-                controller.setStudent(currentStudent);
-            }
             Stage stage = (Stage) searchField.getScene().getWindow();
-            stage.setScene(new Scene(root, 800, 500));
-            stage.setTitle("學生系統");
-            stage.show();
+            NavigationManager.getInstance().show(stage, NavigationManager.STUDENT_MAIN, "學生系統",
+                    (StudentMainController controller) -> {
+                        if (currentStudent != null) {
+                            controller.setStudent(currentStudent);
+                        }
+                    });
         } catch (IOException e) {
             System.err.println("無法載入學生主畫面：" + e.getMessage());
             e.printStackTrace();
@@ -244,162 +246,143 @@ public class EventBrowserController implements Initializable {
             alert.showAndWait();
             return;
         }
-        if (isAlreadyRegistered(currentStudentId, event.getEventId())) {
-            Alert alert = new Alert(Alert.AlertType.INFORMATION);
-            alert.setTitle("已報名");
-            alert.setHeaderText(null);
-            alert.setContentText("您已經報名過「" + event.getEventName() + "」活動！");
-            alert.showAndWait();
+
+        // 與已報名的活動時間重疊時先請學生確認
+        List<Event> conflicts = registrationService.findTimeConflicts(currentStudentId, event);
+        if (!conflicts.isEmpty() && !confirmTimeConflict(event, conflicts)) {
             return;
         }
-        if (event.getRemainingCapacity() > 0) {
-            event.setRemainingCapacity(event.getRemainingCapacity() - 1);
-            // <<== 新增呼叫，寫回活動列表.csv
-            updateEventCapacityInCSV(event.getEventId(), event.getRemainingCapacity());
-            eventTable.refresh();
-            saveRegistrationToCSV(currentStudentId, event.getEventId());
+        if (isWaitlistOnly(event)) {
+            if (confirmJoinWaitlist(event)) {
+                joinWaitlist(event);
+            }
+            return;
+        }
+
+        // 名額由配給引擎以原子操作扣除，多個視窗同時報名也不會超賣；寫入日誌在背景進行
+        loadingState.track(dataService.register(currentStudentId, event.getId(), !conflicts.isEmpty()), "報名中…")
+                .whenCompleteAsync((result, error) -> {
+                    if (error != null) {
+                        Throwable cause = AsyncDataService.rootCause(error);
+                        cause.printStackTrace();
+                        Alert alert = new Alert(Alert.AlertType.ERROR);
+                        alert.setTitle("錯誤");
+                        alert.setHeaderText(null);
+                        alert.setContentText("無法寫入報名資料: " + cause.getMessage());
+                        alert.showAndWait();
+                        return;
+                    }
+                    showRegistrationResult(event, result);
+                }, fxUpdates);
+    }
 
+    private boolean confirmTimeConflict(Event event, List<Event> conflicts) {
+        StringBuilder message = new StringBuilder("「" + event.getTitle() + "」（" + event.getTime()
+                + "）與您已報名的活動時間重疊：");
+        for (Event other : conflicts) {
+            message.append("\n").append(other.getTitle()).append("（").append(other.getTime()).append("）");
+        }
+        message.append("\n\n仍要報名嗎？");
+        Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
+        alert.setTitle("時間衝突");
+        alert.setHeaderText(null);
+        alert.setContentText(message.toString());
+        return alert.showAndWait().filter(button -> button == ButtonType.OK).isPresent();
+    }
+
+    private boolean confirmJoinWaitlist(Event event) {
+        int waiting = registrationService.getWaitlistSize(event.getId());
+        Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
+        alert.setTitle("加入候補");
+        alert.setHeaderText(null);
+        alert.setContentText("「" + event.getTitle() + "」活動名額已滿，目前有 " + waiting + " 人候補。\n"
+                + "有人取消報名時將依候補順序自動為您報名，要加入候補名單嗎？");
+        return alert.showAndWait().filter(button -> button == ButtonType.OK).isPresent();
+    }
+
+    /**
+     * 加入候補名單（寫入日誌在背景進行），完成後告知排在第幾位
+     */
+    private void joinWaitlist(Event event) {
+        loadingState.track(dataService.joinWaitlist(currentStudentId, event.getId()), "加入候補中…")
+                .whenCompleteAsync((position, error) -> {
+                    if (error != null) {
+                        Throwable cause = AsyncDataService.rootCause(error);
+                        cause.printStackTrace();
+                        Alert alert = new Alert(Alert.AlertType.ERROR);
+                        alert.setTitle("錯誤");
+                        alert.setHeaderText(null);
+                        alert.setContentText("無法寫入候補資料: " + cause.getMessage());
+                        alert.showAndWait();
+                        return;
+                    }
+                    eventTable.refresh();
+                    Alert alert = new Alert(Alert.AlertType.INFORMATION);
+                    if (position > 0) {
+                        alert.setTitle("已加入候補");
+                        alert.setContentText("您已加入「" + event.getTitle() + "」的候補名單，目前排在第 "
+                                + position + " 位。\n有人取消報名時將自動為您報名"
+                                + "（屆時與您已報名的活動時間重疊則會略過，保留順位）。");
+                    } else if (position == RegistrationService.SEATS_AVAILABLE) {
+                        // 加入時剛好有名額釋出：不排候補，請學生直接報名
+                        alert.setTitle("尚有名額");
+                        alert.setContentText("「" + event.getTitle() + "」剛好有名額釋出，請直接報名！");
+                    } else {
+                        alert.setTitle("已報名");
+                        alert.setContentText("您已經報名過「" + event.getTitle() + "」活動！");
+                    }
+                    alert.setHeaderText(null);
+                    alert.showAndWait();
+                }, fxUpdates);
+    }
+
+    private void showRegistrationResult(Event event, RegistrationService.Result result) {
+        // 名額已由報名流程更新在活動上，重畫表格即可
+        eventTable.refresh();
+
+        if (result == RegistrationService.Result.SUCCESS) {
+            System.out.println("報名資訊已寫入報名日誌");
             Alert alert = new Alert(Alert.AlertType.INFORMATION);
             alert.setTitle("報名成功");
             alert.setHeaderText(null);
-            alert.setContentText("恭喜！您已成功報名「" + event.getEventName() + "」活動。\n" +
-                    "剩餘名額：" + event.getRemainingCapacity());
+            alert.setContentText("恭喜！您已成功報名「" + event.getTitle() + "」活動。\n" +
+                    "剩餘名額：" + registrationService.getRemainingSeats(event.getId()));
             alert.showAndWait();
-        } else {
+        } else if (result == RegistrationService.Result.TIME_CONFLICT) {
+            // 確認之後其他視窗剛好報名了重疊的活動
             Alert alert = new Alert(Alert.AlertType.WARNING);
-            alert.setTitle("報名失敗");
+            alert.setTitle("時間衝突");
             alert.setHeaderText(null);
-            alert.setContentText("很抱歉，「" + event.getEventName() + "」活動名額已滿！");
+            alert.setContentText("「" + event.getTitle() + "」與您已報名的活動時間重疊，請重新確認後再報名。");
             alert.showAndWait();
-        }
-    }
-
-    private void saveRegistrationToCSV(String studentId, String eventId) {
-        try {
-            String csvPath = "src/已報名.csv";
-            File csvFile = new File(csvPath);
-            boolean fileExists = csvFile.exists();
-            FileWriter writer = new FileWriter(csvFile, true);
-            PrintWriter printWriter = new PrintWriter(writer);
-            if (!fileExists) {
-                printWriter.println("學生ID,活動編號,報名時間");
-            }
-            java.time.LocalDateTime now = java.time.LocalDateTime.now();
-            java.time.format.DateTimeFormatter formatter = java.time.format.DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-            String currentTime = now.format(formatter);
-            printWriter.printf("%s,%s,%s%n", studentId, eventId, currentTime);
-            printWriter.close();
-            writer.close();
-            System.out.println("報名資訊已寫入已報名.csv檔案");
-        } catch (IOException e) {
-            e.printStackTrace();
-            Alert alert = new Alert(Alert.AlertType.ERROR);
-            alert.setTitle("錯誤");
+        } else if (result == RegistrationService.Result.ALREADY_REGISTERED) {
+            Alert alert = new Alert(Alert.AlertType.INFORMATION);
+            alert.setTitle("已報名");
             alert.setHeaderText(null);
-            alert.setContentText("無法寫入報名資料: " + e.getMessage());
+            alert.setContentText("您已經報名過「" + event.getTitle() + "」活動！");
             alert.showAndWait();
-        }
-    }
-
-    private boolean isAlreadyRegistered(String studentId, String eventId) {
-        try {
-            File csvFile = new File("src/已報名.csv");
-            if (!csvFile.exists()) {
-                return false;
-            }
-            BufferedReader reader = new BufferedReader(new FileReader(csvFile));
-            String line;
-            boolean isFirstLine = true;
-            while ((line = reader.readLine()) != null) {
-                if (isFirstLine) { isFirstLine = false; continue; }
-                String[] parts = line.split(",", -1);
-                if (parts.length >= 2) {
-                    String registeredStudentId = parts[0].trim();
-                    String registeredEventId = parts[1].trim();
-                    if (registeredStudentId.equals(studentId) && registeredEventId.equals(eventId)) {
-                        reader.close();
-                        return true;
-                    }
-                }
+        } else if (result == RegistrationService.Result.FULL) {
+            // 送出前最後的名額被其他人報走，改為詢問是否候補
+            if (confirmJoinWaitlist(event)) {
+                joinWaitlist(event);
             }
-            reader.close();
-            return false;
-        } catch (IOException e) {
-            e.printStackTrace();
-            return false;
+        } else {
+            Alert alert = new Alert(Alert.AlertType.WARNING);
+            alert.setTitle("報名失敗");
+            alert.setHeaderText(null);
+            alert.setContentText("很抱歉，找不到「" + event.getTitle() + "」活動！");
+            alert.showAndWait();
         }
     }
 
-    private void updateEventCapacityInCSV(String eventId, int newCapacity) {
-        String csvPath = "src/活動列表.csv";
-        File csvFile = new File(csvPath);
-        if (!csvFile.exists()) {
-            System.out.println("找不到活動列表.csv，無法更新名額！");
-            return;
-        }
-        try {
-            // 1. 先讀出全部資料
-            BufferedReader reader = new BufferedReader(new FileReader(csvFile));
-            StringBuilder sb = new StringBuilder();
-            String line;
-            boolean isFirstLine = true;
-            while ((line = reader.readLine()) != null) {
-                if (isFirstLine) {
-                    sb.append(line).append("\n");
-                    isFirstLine = false;
-                    continue;
-                }
-                String[] parts = line.split(",", -1);
-                if (parts.length >= 6 && parts[0].trim().equals(eventId)) {
-                    // 找到目標活動，把剩餘名額改為新值
-                    parts[5] = String.valueOf(newCapacity);
-                    line = String.join(",", parts);
-                }
-                sb.append(line).append("\n");
-            }
-            reader.close();
-
-            // 2. 寫回所有資料（覆蓋原檔）
-            FileWriter writer = new FileWriter(csvFile, false);
-            writer.write(sb.toString());
-            writer.close();
-            System.out.println("活動 " + eventId + " 名額已同步更新至 " + newCapacity);
-        } catch (IOException e) {
-            e.printStackTrace();
-            System.out.println("更新活動名額失敗：" + e.getMessage());
-        }
+    private boolean isAlreadyRegistered(Event event) {
+        return registrationIndex.isRegistered(currentStudentKey, event.getKey());
     }
 
-
-
-
-    // 靜態內部類
-    public static class Event {
-        private final SimpleStringProperty eventId; // 新增活動編號
-        private final SimpleStringProperty eventName;
-        private final SimpleStringProperty location;
-        private final SimpleStringProperty time;
-        private final SimpleStringProperty organizer;
-        private final SimpleIntegerProperty remainingCapacity;
-        private final SimpleBooleanProperty registered = new SimpleBooleanProperty(false);
-
-        public Event(String eventId, String eventName, String location, String time, String organizer, int remainingCapacity) {
-            this.eventId = new SimpleStringProperty(eventId);
-            this.eventName = new SimpleStringProperty(eventName);
-            this.location = new SimpleStringProperty(location);
-            this.time = new SimpleStringProperty(time);
-            this.organizer = new SimpleStringProperty(organizer);
-            this.remainingCapacity = new SimpleIntegerProperty(remainingCapacity);
-        }
-
-        public String getEventId() { return eventId.get(); }
-        public String getEventName() { return eventName.get(); }
-        public String getLocation() { return location.get(); }
-        public String getTime() { return time.get(); }
-        public String getOrganizer() { return organizer.get(); }
-        public int getRemainingCapacity() { return remainingCapacity.get(); }
-        public boolean isRegistered() { return registered.get(); }
-        public void setRemainingCapacity(int remainingCapacity) { this.remainingCapacity.set(remainingCapacity); }
-        public void setRegistered(boolean value) { this.registered.set(value); }
+    /**
+     * 額滿：新的報名只能排入候補名單（有人候補但仍有名額時，報名流程會先遞補候補名單再決定）
+     */
+    private boolean isWaitlistOnly(Event event) {
+        return event.getCapacity() <= 0;
     }
-}
\ No newline at end of file
+}
@@ -1,25 +1,32 @@
+import javafx.beans.property.ReadOnlyObjectWrapper;
 import javafx.beans.property.ReadOnlyStringWrapper;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import javafx.util.Callback;
+import model.AsyncDataService;
+import model.DataDirectoryWatcher;
 import model.Event;
+import model.EventImportTask;
+import model.EventRepository;
 import model.Organizer;
 
 import java.io.*;
 import java.net.URL;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
-public class EventController implements Initializable {
+public class EventController implements Initializable, NavigationManager.Screen {
 
     @FXML private TableView<Event> eventTable;
     @FXML private TableColumn<Event, String> titleColumn;
@@ -37,32 +44,33 @@ public class EventController implements Initializable {
     @FXML private Button searchButton;
 
     private ObservableList<Event> eventList = FXCollections.observableArrayList();
-    private ObservableList<Event> filteredEventList = FXCollections.observableArrayList();
+    // 表格顯示 eventList 經過搜尋條件過濾後的結果
+    private final LiveFilter<Event> eventFilter = new LiveFilter<>(eventList);
     private Organizer currentOrganizer;
 
     // 靜態變數來保存當前使用者資訊，避免在畫面切換時遺失
     private static Organizer globalCurrentOrganizer;
 
-    // 用户ID到名稱的映射
-    private Map<String, String> userIdToNameMap = new HashMap<>();
+    // 場地衝突提示中最多列出的活動數
+    private static final int MAX_LISTED_CONFLICTS = 5;
 
-    // CSV檔案路徑 - 支援多種路徑
-    private final String[] csvPaths = {
-            "活動列表.csv",
-            "src/活動列表.csv",
-            "src/main/resources/活動列表.csv",
-            "./活動列表.csv",
-            "../活動列表.csv"
-    };
+    // 全系統共用的活動資料庫
+    private final EventRepository eventRepository = EventRepository.getInstance();
 
-    private final String usersPath = "src/users.csv";
+    // 讀寫檔案都在背景進行，結果再交給 JavaFX 執行緒
+    private final AsyncDataService dataService = AsyncDataService.getInstance();
+    private final FxUpdateQueue fxUpdates = FxUpdateQueue.getInstance();
+    private LoadingState loadingState;
+
+    // 其他程式修改資料時自動更新（在 JavaFX 執行緒上呼叫）
+    private final DataDirectoryWatcher dataWatcher = DataDirectoryWatcher.getInstance();
+    private final Consumer<Set<DataDirectoryWatcher.Change>> dataChangeListener = this::handleDataChange;
 
     public void setCurrentOrganizer(Organizer organizer) {
         this.currentOrganizer = organizer;
         globalCurrentOrganizer = organizer; // 同時設置靜態變數
         System.out.println("設置當前主辦人：" + (organizer != null ? organizer.getName() : "null"));
-        loadUserIdToNameMapping();
-        loadEventsFromCSV();
+        loadEvents();
     }
 
     // 新增：獲取當前主辦人的靜態方法
@@ -77,8 +85,9 @@ public class EventController implements Initializable {
 
     @Override
     public void initialize(URL location, ResourceBundle resources) {
+        loadingState = new LoadingState(eventTable, addButton, refreshButton, importButton);
         setupTableColumns();
-        eventTable.setItems(filteredEventList);
+        eventTable.setItems(eventFilter.getFilteredList());
 
         // 如果當前主辦人為空，嘗試從靜態變數恢復
         if (currentOrganizer == null && globalCurrentOrganizer != null) {
@@ -92,6 +101,31 @@ public class EventController implements Initializable {
                 filterEvents(newValue);
             });
         }
+
+        dataWatcher.addListener(dataChangeListener);
+    }
+
+    /**
+     * 其他程式修改活動時重新取得活動清單；只有報名變動時名額已在原本的活動物件上更新，重畫表格即可
+     */
+    private void handleDataChange(Set<DataDirectoryWatcher.Change> changes) {
+        // 畫面未顯示時略過，切換回來時 setCurrentOrganizer 會重新取得活動
+        if (eventTable.getScene() == null || eventTable.getScene().getWindow() == null) {
+            return;
+        }
+        if (changes.contains(DataDirectoryWatcher.Change.EVENTS)) {
+            loadEvents();
+        } else if (changes.contains(DataDirectoryWatcher.Change.REGISTRATIONS)) {
+            eventTable.refresh();
+        }
+    }
+
+    /**
+     * 登出時停止接收資料變更的通知
+     */
+    @Override
+    public void onDispose() {
+        dataWatcher.removeListener(dataChangeListener);
     }
 
 
@@ -103,7 +137,9 @@ public class EventController implements Initializable {
         // 顯示主辦單位名稱而非ID
         organizerColumn.setCellValueFactory(cellData ->
                 new ReadOnlyStringWrapper(cellData.getValue().getOrganizer().getName()));
-        capacityColumn.setCellValueFactory(new PropertyValueFactory<>("capacity"));
+        // 名額會在背景執行緒（報名、讀入其他程式的報名）更新，表格不直接監聽，收到通知時再重畫
+        capacityColumn.setCellValueFactory(cellData ->
+                new ReadOnlyObjectWrapper<>(cellData.getValue().getCapacity()));
         setupActionColumn();
     }
 
@@ -151,85 +187,33 @@ public class EventController implements Initializable {
     }
 
     /**
-     * 搜尋過濾功能
+     * 搜尋過濾功能：輸入停頓後在背景以活動資料庫的搜尋索引比對
      */
     private void filterEvents(String searchText) {
+        eventFilter.filter(searchQuery(searchText));
+    }
+
+    /**
+     * 搜尋條件：符合關鍵字的活動；關鍵字為空時回傳 null（顯示全部）
+     */
+    private Supplier<Predicate<Event>> searchQuery(String searchText) {
         if (searchText == null || searchText.trim().isEmpty()) {
-            filteredEventList.setAll(eventList);
-        } else {
-            String lowerCaseFilter = searchText.toLowerCase().trim();
-            filteredEventList.clear();
-
-            for (Event event : eventList) {
-                if (event.getTitle().toLowerCase().contains(lowerCaseFilter) ||
-                        event.getLocation().toLowerCase().contains(lowerCaseFilter) ||
-                        event.getTime().toLowerCase().contains(lowerCaseFilter) ||
-                        event.getOrganizer().getName().toLowerCase().contains(lowerCaseFilter)) {
-                    filteredEventList.add(event);
-                }
-            }
+            return null;
         }
+        return () -> {
+            Set<Event> matches = Collections.newSetFromMap(new IdentityHashMap<>());
+            matches.addAll(eventRepository.search(searchText));
+            return matches::contains;
+        };
     }
 
     @FXML
     private void handleSearch() {
         if (searchField != null) {
-            filterEvents(searchField.getText());
+            eventFilter.filterNow(searchQuery(searchField.getText()));
         }
     }
 
-    /**
-     * 載入用戶ID到名稱的對應表
-     */
-    private void loadUserIdToNameMapping() {
-        userIdToNameMap.clear();
-
-        // 嘗試多個可能的路徑
-        String[] usersPaths = {"users.csv", "src/users.csv", "src/main/resources/users.csv"};
-
-        for (String path : usersPaths) {
-            File usersFile = new File(path);
-            if (usersFile.exists()) {
-                try (BufferedReader br = new BufferedReader(
-                        new InputStreamReader(new FileInputStream(usersFile), "UTF-8"))) {
-
-                    String line;
-                    boolean isFirstLine = true;
-
-                    while ((line = br.readLine()) != null) {
-                        if (isFirstLine) {
-                            isFirstLine = false;
-                            continue; // 跳過標題行
-                        }
-
-                        String[] tokens = line.split(",", -1);
-                        if (tokens.length >= 2) {
-                            String userId = tokens[0].trim();
-                            String userName = tokens[1].trim();
-                            userIdToNameMap.put(userId, userName);
-                        }
-                    }
-                    System.out.println("從 " + path + " 加載用户映射完成，共 " + userIdToNameMap.size() + " 個用户");
-                    break; // 成功載入就停止嘗試其他路徑
-
-                } catch (IOException e) {
-                    System.err.println("無法讀取用户文件 " + path + "：" + e.getMessage());
-                }
-            }
-        }
-
-        if (userIdToNameMap.isEmpty()) {
-            System.out.println("警告：未找到用户文件或用户映射為空");
-        }
-    }
-
-    /**
-     * 根據用戶ID取得用戶名稱
-     */
-    private String getUserNameById(String userId) {
-        return userIdToNameMap.getOrDefault(userId, userId);
-    }
-
     @FXML
     private void handleAddEvent() {
         // 確保有當前主辦人
@@ -240,20 +224,31 @@ public class EventController implements Initializable {
 
         EventDialog dialog = new EventDialog(null, currentOrganizer);
         Optional<Event> result = dialog.showAndWait();
+        if (result.isEmpty() || hasRoomConflict(result.get(), null)) {
+            return;
+        }
 
-        result.ifPresent(event -> {
-            String eventId = generateEventId();
-            if (currentOrganizer != null) {
-                event.setOrganizer(currentOrganizer);
-            }
-            Event newEvent = new Event(eventId, event.getTitle(), event.getLocation(),
-                    event.getTime(), event.getCapacity(), event.getOrganizer());
-
-            eventList.add(newEvent);
-            filteredEventList.add(newEvent);
-            saveEventsToCSV();
-            showAlert("成功", "活動已成功新增！", Alert.AlertType.INFORMATION);
-        });
+        // 活動編號的序號檔在背景更新
+        result.ifPresent(event -> loadingState.track(dataService.allocateEventId(), "產生活動編號中…")
+                .whenCompleteAsync((eventId, error) -> {
+                    if (error != null) {
+                        Throwable cause = AsyncDataService.rootCause(error);
+                        cause.printStackTrace();
+                        showAlert("錯誤", "無法產生活動編號：" + cause.getMessage(), Alert.AlertType.ERROR);
+                        return;
+                    }
+                    System.out.println("生成新的活動編號：" + eventId);
+                    if (currentOrganizer != null) {
+                        event.setOrganizer(currentOrganizer);
+                    }
+                    Event newEvent = new Event(eventId, event.getTitle(), event.getLocation(),
+                            event.getTime(), event.getCapacity(), event.getOrganizer());
+
+                    eventRepository.add(newEvent);
+                    eventList.add(newEvent);
+                    eventFilter.refresh();
+                    saveEventsToCSV("活動已成功新增！");
+                }, fxUpdates));
     }
 
     private void handleEditEvent(Event event) {
@@ -261,17 +256,40 @@ public class EventController implements Initializable {
         Optional<Event> result = dialog.showAndWait();
 
         result.ifPresent(updatedEvent -> {
-            event.setTitle(updatedEvent.getTitle());
-            event.setLocation(updatedEvent.getLocation());
-            event.setTime(updatedEvent.getTime());
-            event.setCapacity(updatedEvent.getCapacity());
+            if (hasRoomConflict(updatedEvent, event)) {
+                return;
+            }
+            eventRepository.update(event, updatedEvent.getTitle(), updatedEvent.getLocation(),
+                    updatedEvent.getTime(), updatedEvent.getCapacity());
 
             eventTable.refresh();
-            saveEventsToCSV();
-            showAlert("成功", "活動已成功更新！", Alert.AlertType.INFORMATION);
+            eventFilter.refresh();
+            saveEventsToCSV("活動已成功更新！", dataService.saveEvents(event.getId()));
         });
     }
 
+    /**
+     * 同一場地、時段已有其他活動時顯示衝突的活動並回傳 true（ignore 為修改中的活動本身）
+     */
+    private boolean hasRoomConflict(Event event, Event ignore) {
+        List<Event> conflicts = eventRepository.findRoomConflicts(event.getLocation(), event.getTime(), ignore);
+        if (conflicts.isEmpty()) {
+            return false;
+        }
+        StringBuilder message = new StringBuilder("「" + event.getLocation() + "」在 " + event.getTime()
+                + " 已有以下活動，請更換地點或時間：");
+        for (int i = 0; i < conflicts.size() && i < MAX_LISTED_CONFLICTS; i++) {
+            Event other = conflicts.get(i);
+            message.append("\n").append(other.getId()).append(" ").append(other.getTitle())
+                    .append("（").append(other.getTime()).append("）");
+        }
+        if (conflicts.size() > MAX_LISTED_CONFLICTS) {
+            message.append("\n...");
+        }
+        showAlert("場地衝突", message.toString(), Alert.AlertType.WARNING);
+        return true;
+    }
+
     private void handleDeleteEvent(Event event) {
         Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
         alert.setTitle("確認刪除");
@@ -280,10 +298,9 @@ public class EventController implements Initializable {
 
         Optional<ButtonType> result = alert.showAndWait();
         if (result.isPresent() && result.get() == ButtonType.OK) {
+            eventRepository.remove(event);
             eventList.remove(event);
-            filteredEventList.remove(event);
-            saveEventsToCSV();
-            showAlert("成功", "活動已成功刪除！", Alert.AlertType.INFORMATION);
+            saveEventsToCSV("活動已成功刪除！");
         }
     }
 
@@ -340,31 +357,33 @@ public class EventController implements Initializable {
             currentOrganizer = globalCurrentOrganizer;
         }
 
-        loadUserIdToNameMapping();
-        loadEventsFromCSV();
-        eventTable.refresh();
+        loadingState.track(dataService.reloadEvents(), "活動重新載入中…")
+                .whenCompleteAsync((result, error) -> {
+                    if (error != null) {
+                        showAlert("錯誤", "無法重新載入活動：" + AsyncDataService.rootCause(error).getMessage(),
+                                Alert.AlertType.ERROR);
+                        return;
+                    }
+                    showEvents();
+                    eventTable.refresh();
 
-        System.out.println("eventList 大小：" + eventList.size());
-        System.out.println("filteredEventList 大小：" + filteredEventList.size());
+                    System.out.println("eventList 大小：" + eventList.size());
+                    System.out.println("顯示中的活動數量：" + eventFilter.getFilteredList().size());
 
-        showAlert("完成", "資料已重新整理！載入了 " + eventList.size() + " 個活動", Alert.AlertType.INFORMATION);
+                    showAlert("完成", "資料已重新整理！載入了 " + eventList.size() + " 個活動", Alert.AlertType.INFORMATION);
+                }, fxUpdates);
     }
 
     @FXML
     private void handleBackToMain() {
         try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/主辦人主畫面.fxml"));
-            Parent root = loader.load();
-
-            HostMainController controller = loader.getController();
-            if (currentOrganizer != null) {
-                controller.setOrganizer(currentOrganizer);
-            }
-
             Stage stage = (Stage) backButton.getScene().getWindow();
-            stage.setScene(new Scene(root));
-            stage.setTitle("主辦人管理系統");
-            stage.show();
+            NavigationManager.getInstance().show(stage, NavigationManager.HOST_MAIN, "主辦人管理系統",
+                    (HostMainController controller) -> {
+                        if (currentOrganizer != null) {
+                            controller.setOrganizer(currentOrganizer);
+                        }
+                    });
         } catch (IOException e) {
             System.err.println("無法載入主辦人主畫面：" + e.getMessage());
             e.printStackTrace();
@@ -372,328 +391,172 @@ public class EventController implements Initializable {
         }
     }
 
-    // 其餘方法保持不變...
-    private String generateEventId() {
-        Set<String> existingIds = new HashSet<>();
-
-        // 從現有活動列表中取得所有ID
-        for (Event event : eventList) {
-            if (event.getId() != null && !event.getId().isEmpty()) {
-                existingIds.add(event.getId());
-            }
+    /**
+     * 在背景確保活動已載入，完成後顯示當前主辦人的活動
+     */
+    private void loadEvents() {
+        if (currentOrganizer == null) {
+            System.out.println("警告：當前主辦人為空，無法載入活動");
+            return;
         }
-
-        // 生成唯一的活動編號
-        int counter = 1;
-        String newId;
-
-        do {
-            newId = "A" + String.format("%03d", counter);
-            counter++;
-        } while (existingIds.contains(newId));
-
-        System.out.println("生成新的活動編號：" + newId);
-        return newId;
+        loadingState.track(dataService.loadEvents(), "活動載入中…")
+                .thenRunAsync(this::showEvents, fxUpdates);
     }
 
-    private void loadEventsFromCSV() {
+    /**
+     * 從共用活動資料庫（已在記憶體中）取出當前主辦人的活動
+     */
+    private void showEvents() {
         if (currentOrganizer == null) {
-            System.out.println("警告：當前主辦人為空，無法載入活動");
             return;
         }
 
-        eventList.clear();
-        String usedPath = null;
-
-        // 嘗試多個可能的CSV檔案路徑
-        for (String csvPath : csvPaths) {
-            File file = new File(csvPath);
-            if (file.exists() && file.canRead()) {
-                usedPath = csvPath;
-                try (BufferedReader br = new BufferedReader(
-                        new InputStreamReader(new FileInputStream(file), "UTF-8"))) {
-
-                    loadFromBufferedReader(br);
-                    System.out.println("成功從 " + csvPath + " 載入活動資料，當前主辦人 " +
-                            currentOrganizer.getName() + " 共有 " + eventList.size() + " 個活動");
-                    break;
-
-                } catch (IOException e) {
-                    System.err.println("讀取 " + csvPath + " 時發生錯誤：" + e.getMessage());
-                    e.printStackTrace();
-                }
-            }
+        List<Event> events = eventRepository.findByOrganizer(currentOrganizer.getId());
+        // 舊資料可能以主辦人名稱記錄主辦單位
+        if (!currentOrganizer.getName().equals(currentOrganizer.getId())) {
+            events.addAll(eventRepository.findByOrganizer(currentOrganizer.getName()));
         }
 
-        if (usedPath == null) {
-            System.out.println("找不到活動列表CSV檔案，嘗試以下路徑：");
-            for (String path : csvPaths) {
-                System.out.println("  - " + path);
-            }
-            // 創建一個空的CSV檔案
-            createEmptyCSV();
+        for (Event event : events) {
+            eventRepository.setOrganizer(event, currentOrganizer);
         }
 
-        // 更新過濾列表
-        filteredEventList.setAll(eventList);
-    }
+        eventList.setAll(events);
+        System.out.println("當前主辦人 " + currentOrganizer.getName() + " 共有 " + eventList.size() + " 個活動");
 
-    private void loadEventsFromCSVResource() {
-        try {
-            // 嘗試從 resources 目錄載入
-            InputStream inputStream = getClass().getResourceAsStream("/活動列表.csv");
-            if (inputStream != null) {
-                BufferedReader br = new BufferedReader(
-                        new InputStreamReader(inputStream, "UTF-8"));
-                loadFromBufferedReader(br);
-                br.close();
-                return;
-            }
-        } catch (IOException e) {
-            System.err.println("從資源載入失敗：" + e.getMessage());
-        }
-
-        // 如果資源載入失敗，使用原有的文件路徑方式
-        loadEventsFromCSV();
+        // 重新載入後活動物件已更換，以目前的搜尋條件重新過濾
+        eventFilter.refresh();
     }
 
+    /**
+     * 在背景匯入活動，匯入期間顯示進度並可取消
+     */
     private void importEventsFromCSV(File file) {
-        try (BufferedReader br = new BufferedReader(
-                new InputStreamReader(new FileInputStream(file), "UTF-8"))) {
-
-            List<Event> importedEvents = new ArrayList<>();
-            String line;
-            boolean firstLine = true;
-            int lineNumber = 0;
-            int importedCount = 0;
-
-            while ((line = br.readLine()) != null) {
-                lineNumber++;
-
-                if (firstLine) {
-                    firstLine = false;
-                    System.out.println("導入檔案標題行：" + line);
-                    continue;
-                }
-
-                String[] tokens = line.split(",", -1);
-
-                if (tokens.length >= 5) { // 至少需要5個欄位
-                    try {
-                        String id = tokens.length > 0 ? tokens[0].trim() : generateEventId();
-                        String title = tokens.length > 1 ? tokens[1].trim() : "";
-                        String location = tokens.length > 2 ? tokens[2].trim() : "";
-                        String time = tokens.length > 3 ? tokens[3].trim() : "";
-                        String organizerInfo = tokens.length > 4 ? tokens[4].trim() : "";
-                        int capacity = tokens.length > 5 ? Integer.parseInt(tokens[5].trim()) : 0;
-
-                        if (title.isEmpty()) {
-                            System.out.println("跳過空標題的活動 (第" + lineNumber + "行)");
-                            continue;
-                        }
+        EventImportTask task = new EventImportTask(file, currentOrganizer);
+
+        ProgressBar progressBar = new ProgressBar();
+        progressBar.setPrefWidth(320);
+        progressBar.progressProperty().bind(task.progressProperty());
+        Label messageLabel = new Label();
+        messageLabel.textProperty().bind(task.messageProperty());
+
+        Alert progressDialog = new Alert(Alert.AlertType.NONE);
+        progressDialog.setTitle("導入CSV");
+        progressDialog.setHeaderText(null);
+        progressDialog.getDialogPane().setContent(new VBox(10, messageLabel, progressBar));
+        progressDialog.getButtonTypes().setAll(ButtonType.CANCEL);
+        progressDialog.setOnCloseRequest(e -> {
+            // 已經在儲存時不能取消，繼續顯示進度
+            if (task.isRunning() && !task.cancel()) {
+                e.consume();
+            }
+        });
 
-                        // 確保ID唯一
-                        if (id.isEmpty() || isEventIdExists(id)) {
-                            id = generateEventId();
-                        }
+        importButton.setDisable(true);
 
-                        // 使用當前主辦人
-                        Organizer organizer = currentOrganizer;
+        task.setOnSucceeded(e -> {
+            closeProgressDialog(progressDialog);
+            EventImportTask.Summary summary = task.getValue();
 
-                        Event event = new Event(id, title, location, time, capacity, organizer);
-                        importedEvents.add(event);
-                        importedCount++;
+            // 一次加入表格，只觸發一次清單變更
+            eventList.addAll(summary.getImportedEvents());
+            eventFilter.refresh();
 
-                    } catch (NumberFormatException e) {
-                        System.out.println("解析數字時發生錯誤 (第" + lineNumber + "行)，跳過此筆資料");
-                    }
-                } else {
-                    System.out.println("資料格式不正確 (第" + lineNumber + "行，欄位數量: " + tokens.length + ")");
+            StringBuilder message = new StringBuilder("成功導入 " + summary.getImportedEvents().size() + " 個活動\n共處理 "
+                    + summary.getProcessedLines() + " 行資料");
+            if (summary.getErrorCount() > 0) {
+                message.append("\n略過 ").append(summary.getErrorCount()).append(" 行有問題的資料：");
+                for (String error : summary.getErrors()) {
+                    message.append("\n").append(error);
+                }
+                if (summary.getErrors().size() < summary.getErrorCount()) {
+                    message.append("\n...");
                 }
             }
+            showAlert("導入完成", message.toString(), Alert.AlertType.INFORMATION);
+        });
+        task.setOnCancelled(e -> {
+            closeProgressDialog(progressDialog);
+            showAlert("已取消", "已取消導入，活動列表未變更。", Alert.AlertType.INFORMATION);
+        });
+        task.setOnFailed(e -> {
+            closeProgressDialog(progressDialog);
+            Throwable error = task.getException();
+            error.printStackTrace();
+            showAlert("導入失敗", "無法導入檔案：" + error.getMessage(), Alert.AlertType.ERROR);
+        });
 
-            // 將導入的活動加入到列表中
-            eventList.addAll(importedEvents);
-            filteredEventList.setAll(eventList);
-
-            // 儲存更新後的資料
-            saveEventsToCSV();
-
-            showAlert("導入完成",
-                    "成功導入 " + importedCount + " 個活動\n共處理 " + (lineNumber - 1) + " 行資料",
-                    Alert.AlertType.INFORMATION);
+        Thread thread = new Thread(task, "event-import");
+        thread.setDaemon(true);
+        thread.start();
+        progressDialog.show();
+    }
 
-        } catch (IOException e) {
-            e.printStackTrace();
-            showAlert("導入失敗", "無法讀取檔案：" + e.getMessage(), Alert.AlertType.ERROR);
-        }
+    private void closeProgressDialog(Alert progressDialog) {
+        importButton.setDisable(false);
+        progressDialog.setOnCloseRequest(null);
+        // 沒有可關閉的按鈕結果時 close() 會被忽略，先指定結果再關閉
+        progressDialog.setResult(ButtonType.CANCEL);
+        progressDialog.close();
     }
 
     private void exportEventsToCSV(File file) {
-        try (BufferedWriter bw = new BufferedWriter(
-                new OutputStreamWriter(new FileOutputStream(file), "UTF-8"))) {
-
-            // 寫入標題行
-            bw.write("活動編號,標題,地點,時間,主辦單位,名額");
-            bw.newLine();
-
-            // 寫入活動資料
-            for (Event event : eventList) {
-                String line = String.format("%s,%s,%s,%s,%s,%d",
-                        event.getId() != null ? event.getId() : "",
-                        event.getTitle(),
-                        event.getLocation(),
-                        event.getTime(),
-                        event.getOrganizer().getName(),
-                        event.getCapacity());
-                bw.write(line);
-                bw.newLine();
-            }
-
-            showAlert("匯出完成", "成功匯出 " + eventList.size() + " 個活動到檔案", Alert.AlertType.INFORMATION);
-
-        } catch (IOException e) {
-            e.printStackTrace();
-            showAlert("匯出失敗", "無法寫入檔案：" + e.getMessage(), Alert.AlertType.ERROR);
+        // 在 JavaFX 執行緒上取出要匯出的內容，寫檔交給背景執行緒
+        List<String> lines = new ArrayList<>(eventList.size());
+        for (Event event : eventList) {
+            lines.add(String.format("%s,%s,%s,%s,%s,%d",
+                    event.getId() != null ? event.getId() : "",
+                    event.getTitle(),
+                    event.getLocation(),
+                    event.getTime(),
+                    event.getOrganizer().getName(),
+                    event.getCapacity()));
         }
-    }
-
-    private boolean isEventIdExists(String id) {
-        return eventList.stream().anyMatch(event -> id.equals(event.getId()));
-    }
-
-    private void createEmptyCSV() {
-        try {
-            String defaultPath = "活動列表.csv";
-            File csvFile = new File(defaultPath);
 
+        loadingState.track(dataService.run(() -> {
             try (BufferedWriter bw = new BufferedWriter(
-                    new OutputStreamWriter(new FileOutputStream(csvFile), "UTF-8"))) {
+                    new OutputStreamWriter(new FileOutputStream(file), "UTF-8"))) {
 
+                // 寫入標題行
                 bw.write("活動編號,標題,地點,時間,主辦單位,名額");
                 bw.newLine();
-                System.out.println("已創建空的CSV檔案：" + defaultPath);
-            }
-        } catch (IOException e) {
-            System.err.println("無法創建CSV檔案：" + e.getMessage());
-        }
-    }
-
-    private void loadFromBufferedReader(BufferedReader br) throws IOException {
-        String line;
-        boolean firstLine = true;
-        int lineNumber = 0;
-        int loadedCount = 0;
-
-        System.out.println("=== 開始載入 CSV 資料 ===");
-        System.out.println("當前主辦人：" + (currentOrganizer != null ?
-                currentOrganizer.getId() + " (" + currentOrganizer.getName() + ")" : "null"));
-
-        while ((line = br.readLine()) != null) {
-            lineNumber++;
-
-            if (firstLine) {
-                firstLine = false;
-                continue;
-            }
-
-            String[] tokens = line.split(",", -1);
-
-            if (tokens.length >= 5) {
-                try {
-                    String id = tokens[0].trim();
-                    String title = tokens[1].trim();
-                    String location = tokens[2].trim();
-                    String time = tokens[3].trim();
-                    String organizerInfo = tokens[4].trim();
-                    int capacity = tokens.length > 5 ? Integer.parseInt(tokens[5].trim()) : 0;
 
-                    if (title.isEmpty()) {
-                        continue;
-                    }
-
-                    // 處理主辦人資訊
-                    Organizer organizer;
-                    String organizerName = getUserNameById(organizerInfo);
-
-                    if (organizerName.equals(organizerInfo)) {
-                        organizerName = organizerInfo;
-                    }
-
-                    organizer = new Organizer(organizerInfo, organizerName, "");
-
-                    // 檢查是否應該載入此活動
-                    boolean shouldLoad = false;
-                    if (currentOrganizer != null) {
-                        shouldLoad = organizerInfo.equals(currentOrganizer.getId()) ||
-                                organizerInfo.equals(currentOrganizer.getName());
-                    } else {
-                        shouldLoad = true;
-                    }
-
-                    if (shouldLoad) {
-                        Event event = new Event(id, title, location, time, capacity, organizer);
-                        eventList.add(event);
-                        loadedCount++;
-                    }
-
-                } catch (NumberFormatException e) {
-                    System.out.println("解析數字時發生錯誤 (第" + lineNumber + "行)");
+                // 寫入活動資料
+                for (String line : lines) {
+                    bw.write(line);
+                    bw.newLine();
                 }
             }
-        }
-
-        System.out.println("=== CSV 載入完成 ===");
-        System.out.println("成功載入 " + loadedCount + " 個活動");
-    }
-
-    private void saveEventsToCSV() {
-        String csvPath = findExistingCSVPath();
-        if (csvPath == null) {
-            csvPath = "活動列表.csv";
-        }
-
-        try (BufferedWriter bw = new BufferedWriter(
-                new OutputStreamWriter(new FileOutputStream(csvPath), "UTF-8"))) {
-
-            // 寫入標題行
-            bw.write("活動編號,標題,地點,時間,主辦單位,名額");
-            bw.newLine();
-
-            // 寫入活動資料
-            for (Event event : eventList) {
-                String organizerId = event.getOrganizer().getId();
-                if (organizerId == null || organizerId.isEmpty()) {
-                    organizerId = currentOrganizer != null ? currentOrganizer.getId() : "";
-                }
-
-                String line = String.format("%s,%s,%s,%s,%s,%d",
-                        event.getId() != null ? event.getId() : generateEventId(),
-                        event.getTitle(),
-                        event.getLocation(),
-                        event.getTime(),
-                        organizerId,
-                        event.getCapacity());
-                bw.write(line);
-                bw.newLine();
+        }), "匯出中…").whenCompleteAsync((result, error) -> {
+            if (error != null) {
+                error.printStackTrace();
+                showAlert("匯出失敗", "無法寫入檔案：" + AsyncDataService.rootCause(error).getMessage(),
+                        Alert.AlertType.ERROR);
+            } else {
+                showAlert("匯出完成", "成功匯出 " + lines.size() + " 個活動到檔案", Alert.AlertType.INFORMATION);
             }
+        }, fxUpdates);
+    }
 
-            System.out.println("活動資料已成功儲存到：" + csvPath);
-
-        } catch (IOException e) {
-            e.printStackTrace();
-            showAlert("錯誤", "無法儲存活動列表！", Alert.AlertType.ERROR);
-        }
+    /**
+     * 在背景寫入快照，完成後才顯示結果；儲存期間停用新增、匯入與重新整理
+     */
+    private void saveEventsToCSV(String successMessage) {
+        // 寫入快照時一併合併報名日誌，避免日誌中較舊的名額覆蓋修改後的設定
+        saveEventsToCSV(successMessage, dataService.saveEvents());
     }
 
-    private String findExistingCSVPath() {
-        for (String path : csvPaths) {
-            File file = new File(path);
-            if (file.exists() && file.canWrite()) {
-                return path;
+    private void saveEventsToCSV(String successMessage, CompletableFuture<Void> save) {
+        loadingState.track(save, "儲存中…").whenCompleteAsync((result, error) -> {
+            if (error != null) {
+                error.printStackTrace();
+                showAlert("錯誤", "無法儲存活動列表！", Alert.AlertType.ERROR);
+            } else {
+                // 修改名額後可能有候補者遞補，重畫剩餘名額
+                eventTable.refresh();
+                showAlert("成功", successMessage, Alert.AlertType.INFORMATION);
             }
-        }
-        return null;
+        }, fxUpdates);
     }
 
     private void showAlert(String title, String message, Alert.AlertType type) {
@@ -6,13 +6,14 @@ import javafx.scene.layout.GridPane;
 import javafx.scene.layout.HBox;
 import javafx.util.converter.IntegerStringConverter;
 import model.Event;
+import model.EventRepository;
+import model.EventTime;
 import model.Organizer;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
 
 public class EventDialog extends Dialog<Event> {
 
@@ -75,8 +76,8 @@ public class EventDialog extends Dialog<Event> {
             titleField.setText(event.getTitle());
             locationField.setText(event.getLocation());
 
-            // 解析時間字符串並設定日期時間選擇器
-            parseAndSetDateTime(event.getTime());
+            // 活動時間在載入時已解析，直接設定日期時間選擇器
+            setDateTime(event);
 
             organizerField.setText(event.getOrganizer().getName());
             organizerField.setEditable(false);
@@ -166,8 +167,14 @@ public class EventDialog extends Dialog<Event> {
                         organizer = new Organizer("", organizerName, "");
                     }
 
-                    // 創建活動物件
-                    return new Event("", title, location, formattedDateTime, capacity, organizer);
+                    // 創建活動物件；欄位過長時不截斷，請主辦人修改
+                    Event edited = new Event("", title, location, formattedDateTime, capacity, organizer);
+                    String tooLong = EventRepository.getInstance().findOverlongField(edited);
+                    if (tooLong != null) {
+                        showValidationError(tooLong + "，請縮短後再儲存。");
+                        return null;
+                    }
+                    return edited;
 
                 } catch (NumberFormatException e) {
                     showValidationError("名額必須是有效的正整數。");
@@ -226,24 +233,20 @@ public class EventDialog extends Dialog<Event> {
         return timeBox;
     }
 
-    private void parseAndSetDateTime(String timeString) {
-        try {
-            // 嘗試解析 "yyyy-MM-dd HH:mm" 格式
-            LocalDateTime dateTime = LocalDateTime.parse(timeString,
-                    DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm"));
-
+    private void setDateTime(Event event) {
+        LocalDateTime dateTime = EventTime.toLocalDateTime(event.getStartTime());
+        if (dateTime != null) {
             datePicker.setValue(dateTime.toLocalDate());
             hourSpinner.getValueFactory().setValue(dateTime.getHour());
             minuteSpinner.getValueFactory().setValue(dateTime.getMinute());
-
-        } catch (DateTimeParseException e) {
+        } else {
             // 如果解析失敗，使用預設值
             datePicker.setValue(LocalDate.now());
             hourSpinner.getValueFactory().setValue(9);
             minuteSpinner.getValueFactory().setValue(0);
 
             // 可以選擇顯示警告
-            System.err.println("無法解析時間格式: " + timeString + "，使用預設值");
+            System.err.println("無法解析時間格式: " + event.getTime() + "，使用預設值");
         }
     }
 
@@ -0,0 +1,51 @@
+import javafx.application.Platform;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 把背景執行緒的結果交給 JavaFX 執行緒套用。
+ * 同一段時間內送來的更新合併成一次 Platform.runLater，依送出的順序執行，
+ * 大量背景工作同時完成時不會塞滿 JavaFX 的事件佇列。
+ */
+public class FxUpdateQueue implements Executor {
+
+    private static FxUpdateQueue instance;
+
+    private final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+    private FxUpdateQueue() {
+    }
+
+    public static synchronized FxUpdateQueue getInstance() {
+        if (instance == null) {
+            instance = new FxUpdateQueue();
+        }
+        return instance;
+    }
+
+    @Override
+    public void execute(Runnable update) {
+        pending.add(update);
+        if (scheduled.compareAndSet(false, true)) {
+            Platform.runLater(this::drain);
+        }
+    }
+
+    private void drain() {
+        // 先清除旗標：執行途中送來的更新會再排一次，不會遺漏
+        scheduled.set(false);
+        Runnable update;
+        while ((update = pending.poll()) != null) {
+            try {
+                update.run();
+            } catch (RuntimeException e) {
+                System.err.println("更新畫面時發生錯誤：" + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+}
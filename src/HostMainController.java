@@ -1,7 +1,4 @@
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
@@ -14,6 +11,8 @@ public class HostMainController {
 
     private Organizer organizer;
 
+    private final NavigationManager navigationManager = NavigationManager.getInstance();
+
     @FXML private Button eventManagementButton;  // 活動管理按鈕
     @FXML private Button registrationListButton; // 修正：改為正確的按鈕名稱
     @FXML private Button logoutButton;           // 登出按鈕
@@ -34,25 +33,17 @@ public class HostMainController {
     @FXML
     private void handleEventManagement() {
         try {
-            // 載入活動管理畫面
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/活動管理.fxml"));
-            Parent root = loader.load();
-
-            // 取得 EventController 並設定當前主辦人
-            EventController controller = loader.getController();
-            if (organizer != null) {
-                controller.setCurrentOrganizer(organizer);
-                System.out.println("已將主辦人資訊傳遞到活動管理畫面：" + organizer.getName());
-            }
-
             // 取得當前視窗
             Stage stage = (Stage) eventManagementButton.getScene().getWindow();
 
-            // 設定新場景
-            Scene scene = new Scene(root);
-            stage.setScene(scene);
-            stage.setTitle("活動管理系統");
-            stage.show();
+            // 切換到活動管理畫面並設定當前主辦人
+            navigationManager.show(stage, NavigationManager.EVENT_MANAGEMENT, "活動管理系統",
+                    (EventController controller) -> {
+                        if (organizer != null) {
+                            controller.setCurrentOrganizer(organizer);
+                            System.out.println("已將主辦人資訊傳遞到活動管理畫面：" + organizer.getName());
+                        }
+                    });
 
         } catch (IOException e) {
             System.err.println("無法載入活動管理畫面：" + e.getMessage());
@@ -65,18 +56,11 @@ public class HostMainController {
     @FXML
     private void handleRegistrationList() {
         try {
-            // 載入報名名單查詢的 FXML 檔案
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/報名名單查詢.fxml"));
-            Parent root = loader.load();
-
             // 獲取當前窗口
             Stage stage = (Stage) registrationListButton.getScene().getWindow();
 
-            // 設置新場景
-            Scene scene = new Scene(root);
-            stage.setScene(scene);
-            stage.setTitle("報名名單查詢");
-            stage.show();
+            // 切換到報名名單查詢畫面（顯示時依記憶體中的資料更新）
+            navigationManager.show(stage, NavigationManager.REGISTRATION_LIST, "報名名單查詢");
 
         } catch (IOException e) {
             e.printStackTrace();
@@ -90,12 +74,10 @@ public class HostMainController {
     @FXML
     private void handleLogout() {
         try {
-            // 回到登入畫面
-            Parent root = FXMLLoader.load(getClass().getResource("/login.fxml"));
+            // 結束這次登入快取的畫面，回到登入畫面
+            navigationManager.endSession();
             Stage stage = (Stage) logoutButton.getScene().getWindow();
-            stage.setScene(new Scene(root, 800, 500));
-            stage.setTitle("系統登入");
-            stage.show();
+            navigationManager.show(stage, NavigationManager.LOGIN, "系統登入");
 
             System.out.println("主辦人 " + (organizer != null ? organizer.getName() : "未知") + " 已登出");
 
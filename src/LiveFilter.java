@@ -0,0 +1,148 @@
+import javafx.animation.PauseTransition;
+import javafx.collections.ObservableList;
+import javafx.collections.transformation.FilteredList;
+import javafx.concurrent.Task;
+import javafx.util.Duration;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * 表格的即時過濾。
+ * 表格顯示同一份資料清單上的 {@link FilteredList}；輸入停頓 {@value #DEBOUNCE_MILLIS} 毫秒後才開始搜尋，
+ * 比對在背景執行緒進行，新的關鍵字會取消尚未完成的舊搜尋，
+ * 結果以一次 setPredicate 套用到表格，只觸發一次清單變更。
+ */
+public class LiveFilter<T> {
+
+    private static final int DEBOUNCE_MILLIS = 200;
+    // 每比對這麼多筆檢查一次是否已被取消
+    private static final int CANCEL_CHECK_INTERVAL = 1024;
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "live-filter");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ObservableList<T> source;
+    private final FilteredList<T> filtered;
+    private final PauseTransition debounce = new PauseTransition(Duration.millis(DEBOUNCE_MILLIS));
+
+    private Supplier<Predicate<T>> query;
+    private Task<Predicate<T>> currentTask;
+    private Runnable onApplied;
+
+    public LiveFilter(ObservableList<T> source) {
+        this.source = source;
+        this.filtered = new FilteredList<>(source);
+        debounce.setOnFinished(e -> run());
+    }
+
+    /**
+     * 給表格使用的過濾後清單
+     */
+    public FilteredList<T> getFilteredList() {
+        return filtered;
+    }
+
+    /**
+     * 過濾結果套用到表格後執行（例如更新統計數字）
+     */
+    public void setOnApplied(Runnable onApplied) {
+        this.onApplied = onApplied;
+    }
+
+    /**
+     * 輸入過程中呼叫：停頓後才搜尋。
+     * query 在背景執行緒執行，回傳要套用的條件；回傳 null 表示顯示全部。
+     */
+    public void filter(Supplier<Predicate<T>> query) {
+        this.query = query;
+        debounce.playFromStart();
+    }
+
+    /**
+     * 立即搜尋（按下搜尋按鈕或切換下拉選單時）
+     */
+    public void filterNow(Supplier<Predicate<T>> query) {
+        this.query = query;
+        debounce.stop();
+        run();
+    }
+
+    /**
+     * 資料清單變動後以目前的條件重新過濾
+     */
+    public void refresh() {
+        debounce.stop();
+        run();
+    }
+
+    /**
+     * 取消過濾，顯示全部
+     */
+    public void clear() {
+        filterNow(null);
+    }
+
+    private void run() {
+        if (currentTask != null) {
+            currentTask.cancel();
+            currentTask = null;
+        }
+        Supplier<Predicate<T>> currentQuery = query;
+        if (currentQuery == null) {
+            apply(null);
+            return;
+        }
+
+        // 在 JavaFX 執行緒上取得快照，背景執行緒只讀取快照
+        List<T> snapshot = new ArrayList<>(source);
+        Task<Predicate<T>> task = new Task<Predicate<T>>() {
+            @Override
+            protected Predicate<T> call() {
+                Predicate<T> predicate = currentQuery.get();
+                if (predicate == null) {
+                    return null;
+                }
+                Set<T> matches = Collections.newSetFromMap(new IdentityHashMap<>());
+                for (int i = 0; i < snapshot.size(); i++) {
+                    if (i % CANCEL_CHECK_INTERVAL == 0 && isCancelled()) {
+                        return null;
+                    }
+                    T item = snapshot.get(i);
+                    if (predicate.test(item)) {
+                        matches.add(item);
+                    }
+                }
+                return matches::contains;
+            }
+        };
+        task.setOnSucceeded(e -> {
+            if (task == currentTask) {
+                currentTask = null;
+                apply(task.getValue());
+            }
+        });
+        task.setOnFailed(e -> {
+            if (task == currentTask) {
+                currentTask = null;
+                System.err.println("搜尋時發生錯誤：" + task.getException().getMessage());
+                task.getException().printStackTrace();
+            }
+        });
+        currentTask = task;
+        EXECUTOR.submit(task);
+    }
+
+    private void apply(Predicate<T> predicate) {
+        filtered.setPredicate(predicate);
+        if (onApplied != null) {
+            onApplied.run();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+import javafx.scene.Cursor;
+import javafx.scene.Node;
+import javafx.scene.control.Label;
+import javafx.scene.control.TableView;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 畫面的載入／儲存狀態。
+ * 背景工作進行中時表格顯示進行中的訊息、游標改為等待狀態，並停用會重複觸發工作的按鈕；
+ * 全部完成後恢復。只在 JavaFX 執行緒上使用。
+ */
+public class LoadingState {
+
+    private final TableView<?> table;
+    private final Node[] controls;
+
+    private int running = 0;
+    private Node originalPlaceholder;
+
+    public LoadingState(TableView<?> table, Node... controls) {
+        this.table = table;
+        this.controls = controls;
+    }
+
+    /**
+     * 顯示 message 直到 future 完成，回傳同一個 future
+     */
+    public <T> CompletableFuture<T> track(CompletableFuture<T> future, String message) {
+        begin(message);
+        future.whenCompleteAsync((result, error) -> end(), FxUpdateQueue.getInstance());
+        return future;
+    }
+
+    public boolean isBusy() {
+        return running > 0;
+    }
+
+    private void begin(String message) {
+        if (running++ == 0) {
+            originalPlaceholder = table.getPlaceholder();
+            setBusy(true);
+        }
+        table.setPlaceholder(new Label(message));
+    }
+
+    private void end() {
+        if (--running == 0) {
+            table.setPlaceholder(originalPlaceholder);
+            setBusy(false);
+        }
+    }
+
+    private void setBusy(boolean busy) {
+        if (table.getScene() != null) {
+            table.getScene().setCursor(busy ? Cursor.WAIT : Cursor.DEFAULT);
+        }
+        for (Node control : controls) {
+            if (control != null) {
+                control.setDisable(busy);
+            }
+        }
+    }
+}
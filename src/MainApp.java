@@ -1,21 +1,17 @@
 import javafx.application.Application;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
 import javafx.stage.Stage;
+import model.DataDirectoryWatcher;
 public class MainApp extends Application {
 
     @Override
     public void start(Stage primaryStage) throws Exception {
-        Parent root = FXMLLoader.load(getClass().getResource("/login.fxml"));
-        // 設定場景大小
-        Scene scene = new Scene(root, 800, 500);
-
-        primaryStage.setTitle("登入系統");
-        primaryStage.setScene(scene);
         primaryStage.setMinWidth(800);  // 最小寬度
         primaryStage.setMinHeight(500); // 最小高度
-        primaryStage.show();
+        // 登入畫面（800x500）顯示期間會在背景預先載入主畫面
+        NavigationManager.getInstance().show(primaryStage, NavigationManager.LOGIN, "登入系統");
+
+        // 其他程式修改資料檔時在背景重新讀檔，再通知開啟中的畫面（合併為一次 JavaFX 執行緒的更新）
+        DataDirectoryWatcher.getInstance().start(FxUpdateQueue.getInstance());
     }
 
     public static void main(String[] args) {
@@ -0,0 +1,246 @@
+import javafx.application.Platform;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.stage.Stage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 畫面切換。
+ * 每個 FXML 在一次登入期間只載入一次，畫面與控制器都保留下來重複使用；
+ * 切換時只換掉視窗的 Scene，再呼叫控制器的 {@link Screen#onShow()} 以記憶體中的資料更新畫面，
+ * 不必重新解析 FXML、重新建立元件或重新讀取 CSV。
+ *
+ * 登入畫面顯示期間預先載入主畫面，登入後再預先載入該身分會用到的子畫面：
+ * 背景執行緒只讀取 FXML 檔案並載入控制器類別，建立元件與控制器的 initialize 交給 JavaFX 執行緒，
+ * 控制器（以及 {@link LoadingState} 等畫面狀態）只會在 JavaFX 執行緒上被存取。
+ * 登出時結束工作階段，丟棄所有快取的畫面（登入畫面除外）。
+ */
+public class NavigationManager {
+
+    public static final String LOGIN = "/login.fxml";
+    public static final String STUDENT_MAIN = "/學生主畫面.fxml";
+    public static final String HOST_MAIN = "/主辦人主畫面.fxml";
+    public static final String EVENT_BROWSER = "/活動瀏覽.fxml";
+    public static final String REGISTRATION_RECORDS = "/查詢報名紀錄.fxml";
+    public static final String EVENT_MANAGEMENT = "/活動管理.fxml";
+    public static final String REGISTRATION_LIST = "/報名名單查詢.fxml";
+
+    /**
+     * 需要在切換時更新資料或在登出時釋放資源的控制器
+     */
+    public interface Screen {
+        /**
+         * 每次切換到此畫面時（在 JavaFX 執行緒上）呼叫
+         */
+        default void onShow() {
+        }
+
+        /**
+         * 工作階段結束（登出）時呼叫，例如移除資料變更的監聽器
+         */
+        default void onDispose() {
+        }
+    }
+
+    private static NavigationManager instance;
+
+    private static final ExecutorService PRELOADER = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "scene-preloader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final Pattern CONTROLLER_ATTRIBUTE = Pattern.compile("fx:controller\\s*=\\s*\"([^\"]+)\"");
+
+    // FXML 路徑 -> 載入中或已載入的畫面（只在 JavaFX 執行緒上完成）
+    private final Map<String, CompletableFuture<FXMLLoader>> loaders = new ConcurrentHashMap<>();
+    // FXML 路徑 -> 畫面的 Scene（只在 JavaFX 執行緒上存取）
+    private final Map<String, Scene> scenes = new ConcurrentHashMap<>();
+
+    private NavigationManager() {
+    }
+
+    public static synchronized NavigationManager getInstance() {
+        if (instance == null) {
+            instance = new NavigationManager();
+        }
+        return instance;
+    }
+
+    /**
+     * 預先載入畫面：背景執行緒讀取 FXML 與控制器類別，完成後排入 JavaFX 執行緒建立畫面；
+     * 已載入或載入中的畫面不重複載入
+     */
+    public void preload(String... fxmlPaths) {
+        for (String fxml : fxmlPaths) {
+            loaders.computeIfAbsent(fxml, path -> {
+                CompletableFuture<FXMLLoader> future = new CompletableFuture<>();
+                CompletableFuture.supplyAsync(() -> readSource(path), PRELOADER)
+                        .whenComplete((source, error) -> Platform.runLater(() -> {
+                            if (future.isDone()) {
+                                return; // 切換畫面時已直接載入
+                            }
+                            if (error != null) {
+                                future.completeExceptionally(error);
+                                return;
+                            }
+                            try {
+                                future.complete(load(path, source));
+                            } catch (RuntimeException e) {
+                                future.completeExceptionally(e);
+                            }
+                        }));
+                return future;
+            });
+        }
+    }
+
+    public <T> T show(Stage stage, String fxml, String title) throws IOException {
+        return show(stage, fxml, title, null);
+    }
+
+    /**
+     * 切換到指定畫面並回傳其控制器。
+     * prepare 在畫面顯示前執行（例如傳入目前登入的學生），之後呼叫 {@link Screen#onShow()}。
+     */
+    public <T> T show(Stage stage, String fxml, String title, Consumer<T> prepare) throws IOException {
+        FXMLLoader loader = obtain(fxml);
+        T controller = loader.getController();
+
+        if (prepare != null) {
+            prepare.accept(controller);
+        }
+        if (controller instanceof Screen) {
+            ((Screen) controller).onShow();
+        }
+
+        Scene scene = scenes.computeIfAbsent(fxml, path -> createScene(stage, loader.getRoot()));
+        if (stage.getScene() != scene) {
+            stage.setScene(scene);
+        }
+        stage.setTitle(title);
+        stage.show();
+        return controller;
+    }
+
+    /**
+     * 登出：丟棄這次登入期間快取的畫面（登入畫面保留）
+     */
+    public void endSession() {
+        for (Map.Entry<String, CompletableFuture<FXMLLoader>> entry : loaders.entrySet()) {
+            if (entry.getKey().equals(LOGIN)) {
+                continue;
+            }
+            CompletableFuture<FXMLLoader> future = entry.getValue();
+            if (future.isDone() && !future.isCompletedExceptionally()) {
+                Object controller = future.join().getController();
+                if (controller instanceof Screen) {
+                    ((Screen) controller).onDispose();
+                }
+            } else {
+                // 仍在預先載入中的畫面載入完成後再釋放
+                future.thenAccept(loader -> {
+                    if (loader.getController() instanceof Screen) {
+                        ((Screen) loader.getController()).onDispose();
+                    }
+                });
+            }
+        }
+        loaders.keySet().removeIf(path -> !path.equals(LOGIN));
+        scenes.keySet().removeIf(path -> !path.equals(LOGIN));
+    }
+
+    /**
+     * 取得已載入的畫面（在 JavaFX 執行緒上呼叫）；預先載入尚未排到或已失敗時直接載入，
+     * 之後排到的預先載入不會再建立一次
+     */
+    private FXMLLoader obtain(String fxml) throws IOException {
+        CompletableFuture<FXMLLoader> future = loaders.get(fxml);
+        if (future != null && future.isDone()) {
+            try {
+                return future.join();
+            } catch (CompletionException e) {
+                System.err.println("預先載入 " + fxml + " 失敗，改為直接載入：" + e.getCause());
+                loaders.remove(fxml, future);
+                future = null;
+            }
+        }
+        FXMLLoader loader;
+        try {
+            loader = load(fxml, readSource(fxml));
+        } catch (UncheckedIOException e) {
+            if (future != null) {
+                future.completeExceptionally(e);
+                loaders.remove(fxml, future);
+            }
+            throw e.getCause();
+        }
+        if (future != null) {
+            future.complete(loader);
+        } else {
+            loaders.put(fxml, CompletableFuture.completedFuture(loader));
+        }
+        return loader;
+    }
+
+    /**
+     * 新畫面沿用目前視窗的尺寸；視窗還沒有畫面時使用 FXML 的預設尺寸
+     */
+    private static Scene createScene(Stage stage, Parent root) {
+        Scene current = stage.getScene();
+        if (current == null) {
+            return new Scene(root);
+        }
+        return new Scene(root, current.getWidth(), current.getHeight());
+    }
+
+    /**
+     * 讀取 FXML 檔案並載入（不初始化）其控制器類別；不碰任何畫面元件，可在背景執行緒執行
+     */
+    private static byte[] readSource(String fxml) {
+        URL url = NavigationManager.class.getResource(fxml);
+        if (url == null) {
+            throw new UncheckedIOException(new IOException("找不到畫面檔案：" + fxml));
+        }
+        byte[] source;
+        try (InputStream in = url.openStream()) {
+            source = in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Matcher controller = CONTROLLER_ATTRIBUTE.matcher(new String(source, StandardCharsets.UTF_8));
+        if (controller.find()) {
+            try {
+                Class.forName(controller.group(1), false, NavigationManager.class.getClassLoader());
+            } catch (ClassNotFoundException e) {
+                // 交給 FXMLLoader 回報
+            }
+        }
+        return source;
+    }
+
+    /**
+     * 建立畫面並呼叫控制器的 initialize（在 JavaFX 執行緒上呼叫）
+     */
+    private static FXMLLoader load(String fxml, byte[] source) {
+        FXMLLoader loader = new FXMLLoader(NavigationManager.class.getResource(fxml));
+        try {
+            loader.load(new ByteArrayInputStream(source));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return loader;
+    }
+}
@@ -1,24 +1,39 @@
-import javafx.beans.property.SimpleIntegerProperty;
-import javafx.beans.property.SimpleStringProperty;
+import javafx.beans.property.ReadOnlyStringWrapper;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
 import javafx.scene.control.*;
-import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
+import javafx.util.StringConverter;
+import model.AsyncDataService;
+import model.DataDirectoryWatcher;
+import model.Event;
+import model.EventRepository;
+import model.EventStatistics;
+import model.KeyDictionary;
+import model.RegistrationEntry;
+import model.RegistrationIndex;
+import model.RegistrationService;
+import model.UserDirectory;
+
 import java.io.*;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
 import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+public class RegistrationListController implements Initializable, NavigationManager.Screen {
 
-public class RegistrationListController implements Initializable {
+    // 活動選單中「全部活動」的值；其他選項都是活動編號
+    private static final String ALL_EVENTS = "";
 
     @FXML private ComboBox<String> eventComboBox;
     @FXML private TextField studentSearchField;
@@ -27,189 +42,190 @@ public class RegistrationListController implements Initializable {
     @FXML private Label totalRegistrationsLabel;
     @FXML private Label remainingCapacityLabel;
     @FXML private Label eventStatusLabel;
-    @FXML private TableView<Registration> registrationTable;
-    @FXML private TableColumn<Registration, Integer> sequenceColumn;
-    @FXML private TableColumn<Registration, String> studentIdColumn;
-    @FXML private TableColumn<Registration, String> studentNameColumn;
-    @FXML private TableColumn<Registration, String> registrationTimeColumn;
-    @FXML private TableColumn<Registration, String> eventNameColumn;
+    @FXML private TableView<RegistrationEntry> registrationTable;
+    @FXML private TableColumn<RegistrationEntry, Integer> sequenceColumn;
+    @FXML private TableColumn<RegistrationEntry, String> studentIdColumn;
+    @FXML private TableColumn<RegistrationEntry, String> studentNameColumn;
+    @FXML private TableColumn<RegistrationEntry, String> registrationTimeColumn;
+    @FXML private TableColumn<RegistrationEntry, String> eventNameColumn;
     @FXML private Button exportButton;
     @FXML private Button refreshButton;
     @FXML private Button deleteButton;
     @FXML private Button backButton;
 
-    private ObservableList<Registration> allRegistrations = FXCollections.observableArrayList();
-    private ObservableList<Registration> filteredRegistrations = FXCollections.observableArrayList();
+    // 直接使用報名索引中的報名紀錄，不另外為每一筆建立畫面用的物件；
+    // 表格只為畫面上看得到的列產生儲存格內容，名單再長也只佔用一個畫面的資源
+    private ObservableList<RegistrationEntry> allRegistrations = FXCollections.observableArrayList();
+    // 表格顯示 allRegistrations 經過活動與關鍵字過濾後的結果
+    private final LiveFilter<RegistrationEntry> registrationFilter = new LiveFilter<>(allRegistrations);
+    // 活動選單的選項（活動編號，以標題顯示）：標題可能重複或被修改，查詢時一律以編號找活動
     private ObservableList<String> eventList = FXCollections.observableArrayList();
 
-    // 儲存活動資訊的 Map
-    private Map<String, EventInfo> eventInfoMap = new HashMap<>();
+    // 全系統共用的活動資料庫
+    private final EventRepository eventRepository = EventRepository.getInstance();
+    // 全系統共用的報名索引
+    private final RegistrationIndex registrationIndex = RegistrationIndex.getInstance();
+    // 各活動的報名統計
+    private final RegistrationService registrationService = RegistrationService.getInstance();
+
+    // 全系統共用的使用者資料
+    private final UserDirectory userDirectory = UserDirectory.getInstance();
+
+    // 讀寫檔案都在背景進行，結果再交給 JavaFX 執行緒
+    private final AsyncDataService dataService = AsyncDataService.getInstance();
+    private final FxUpdateQueue fxUpdates = FxUpdateQueue.getInstance();
+    private LoadingState loadingState;
 
-    // 儲存學生資訊的 Map（如果有學生資料的話）
-    private Map<String, String> studentNameMap = new HashMap<>();
+    // 其他程式修改資料時只更新受影響的部分（在 JavaFX 執行緒上呼叫）
+    private final DataDirectoryWatcher dataWatcher = DataDirectoryWatcher.getInstance();
+    private final Consumer<Set<DataDirectoryWatcher.Change>> dataChangeListener = this::handleDataChange;
+    // 畫面第一次顯示時資料剛在 initialize 載入，不必再更新
+    private boolean shown = false;
 
     @Override
     public void initialize(URL location, ResourceBundle resources) {
+        loadingState = new LoadingState(registrationTable, refreshButton, exportButton);
         setupTableColumns();
-        loadUserData();
-        loadEventData();
-        loadRegistrationData();
+        eventComboBox.setConverter(new EventTitleConverter());
         setupEventComboBox();
 
         // 預設顯示所有報名記錄
-        filteredRegistrations.setAll(allRegistrations);
-        registrationTable.setItems(filteredRegistrations);
+        registrationTable.setItems(registrationFilter.getFilteredList());
+        registrationFilter.setOnApplied(this::updateStatistics);
+        studentSearchField.textProperty().addListener((observable, oldValue, newValue) ->
+                registrationFilter.filter(registrationQuery()));
         updateStatistics();
-    }
+        dataWatcher.addListener(dataChangeListener);
 
-    private void setupTableColumns() {
-        sequenceColumn.setCellValueFactory(cellData -> {
-            int index = registrationTable.getItems().indexOf(cellData.getValue()) + 1;
-            return new SimpleIntegerProperty(index).asObject();
-        });
-
-        studentIdColumn.setCellValueFactory(new PropertyValueFactory<>("studentId"));
-        studentNameColumn.setCellValueFactory(new PropertyValueFactory<>("studentName"));
-        registrationTimeColumn.setCellValueFactory(new PropertyValueFactory<>("registrationTime"));
-        eventNameColumn.setCellValueFactory(new PropertyValueFactory<>("eventName"));
+        // 使用者、活動與報名在背景同時載入，完成後才填入名單
+        loadingState.track(dataService.loadAll(), "報名資料載入中…")
+                .thenRunAsync(() -> applyDataChange(EnumSet.of(DataDirectoryWatcher.Change.EVENTS,
+                        DataDirectoryWatcher.Change.REGISTRATIONS)), fxUpdates);
     }
 
-    private void loadUserData() {
-        try {
-            // 讀取 users.csv
-            InputStream inputStream = getClass().getResourceAsStream("/users.csv");
-            if (inputStream == null) {
-                System.err.println("找不到users.csv檔案");
-                return;
-            }
+    /**
+     * 其他程式報名、取消或修改活動後更新名單，保留目前選擇的活動與搜尋條件
+     */
+    private void handleDataChange(Set<DataDirectoryWatcher.Change> changes) {
+        // 畫面未顯示時略過，切換回來時 onShow 會更新
+        if (registrationTable.getScene() == null || registrationTable.getScene().getWindow() == null) {
+            return;
+        }
+        applyDataChange(changes);
+    }
 
-            BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
-            String line;
+    /**
+     * 從主畫面切換回來時，以記憶體中的活動與報名資料更新名單（主辦人可能剛新增或修改活動）
+     */
+    @Override
+    public void onShow() {
+        if (shown) {
+            applyDataChange(EnumSet.of(DataDirectoryWatcher.Change.EVENTS, DataDirectoryWatcher.Change.REGISTRATIONS));
+        }
+        shown = true;
+    }
 
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length >= 4) {
-                    String userId = parts[0].trim();
-                    String userName = parts[1].trim();
-                    String userType = parts[3].trim();
+    /**
+     * 登出時停止接收資料變更的通知
+     */
+    @Override
+    public void onDispose() {
+        dataWatcher.removeListener(dataChangeListener);
+    }
 
-                    // 只儲存學生資料 (userType = "s")
-                    if ("s".equals(userType)) {
-                        studentNameMap.put(userId, userName);
-                    }
-                }
+    private void applyDataChange(Set<DataDirectoryWatcher.Change> changes) {
+        boolean eventsChanged = changes.contains(DataDirectoryWatcher.Change.EVENTS);
+        boolean registrationsChanged = changes.contains(DataDirectoryWatcher.Change.REGISTRATIONS);
+        if (eventsChanged) {
+            String selectedEvent = eventComboBox.getValue();
+            eventList.clear();
+            loadEventData();
+            setupEventComboBox();
+            if (selectedEvent != null && eventList.contains(selectedEvent)) {
+                eventComboBox.setValue(selectedEvent);
             }
-            reader.close();
-
-            System.out.println("載入了 " + studentNameMap.size() + " 位學生資料");
+        }
+        if (registrationsChanged) {
+            loadRegistrationData();
+        }
 
-        } catch (IOException e) {
-            System.err.println("讀取使用者資料時發生錯誤：" + e.getMessage());
-            e.printStackTrace();
+        if (eventsChanged || registrationsChanged) {
+            registrationFilter.refresh();
+        } else {
+            registrationTable.refresh(); // 只有學生姓名變更
         }
     }
 
-    private void loadEventData() {
-        try {
-            // 讀取活動列表.csv
-            InputStream inputStream = getClass().getResourceAsStream("/活動列表.csv");
-            if (inputStream == null) {
-                System.err.println("找不到活動列表.csv檔案");
-                return;
+    private void setupTableColumns() {
+        // 序號取自列的位置，不必在清單中搜尋
+        sequenceColumn.setCellFactory(column -> new TableCell<RegistrationEntry, Integer>() {
+            @Override
+            protected void updateItem(Integer item, boolean empty) {
+                super.updateItem(item, empty);
+                setText(empty ? null : String.valueOf(getIndex() + 1));
             }
+        });
 
-            BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
-            String line;
-            boolean isFirstLine = true;
-
-            while ((line = reader.readLine()) != null) {
-                if (isFirstLine) {
-                    isFirstLine = false;
-                    continue; // 跳過標題行
-                }
-
-                String[] parts = line.split(",");
-                if (parts.length >= 6) {
-                    String eventId = parts[0].trim();
-                    String title = parts[1].trim();
-                    String location = parts[2].trim();
-                    String time = parts[3].trim();
-                    String organizer = parts[4].trim();
-                    int capacity = Integer.parseInt(parts[5].trim());
-
-                    EventInfo eventInfo = new EventInfo(eventId, title, location, time, organizer, capacity);
-                    eventInfoMap.put(eventId, eventInfo);
-                    eventList.add(title);
-                }
-            }
-            reader.close();
+        studentIdColumn.setCellValueFactory(cellData ->
+                new ReadOnlyStringWrapper(cellData.getValue().getStudentId()));
+        studentNameColumn.setCellValueFactory(cellData ->
+                new ReadOnlyStringWrapper(getStudentName(cellData.getValue().getStudentId())));
+        registrationTimeColumn.setCellValueFactory(cellData ->
+                new ReadOnlyStringWrapper(cellData.getValue().getRegistrationTime()));
+        eventNameColumn.setCellValueFactory(cellData ->
+                new ReadOnlyStringWrapper(getEventName(cellData.getValue())));
+    }
 
-        } catch (IOException | NumberFormatException e) {
-            System.err.println("讀取活動列表時發生錯誤：" + e.getMessage());
-            e.printStackTrace();
+    // 以下兩個方法只讀取記憶體中的資料，檔案由 AsyncDataService 在背景載入
+    private void loadEventData() {
+        for (Event event : eventRepository.getAll()) {
+            eventList.add(event.getId());
         }
     }
 
     private void loadRegistrationData() {
-        try {
-            // 讀取已報名.csv
-            InputStream inputStream = getClass().getResourceAsStream("/已報名.csv");
-            if (inputStream == null) {
-                System.err.println("找不到已報名.csv檔案");
-                return;
-            }
-
-            BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
-            String line;
-            boolean isFirstLine = true;
-
-            while ((line = reader.readLine()) != null) {
-                if (isFirstLine) {
-                    isFirstLine = false;
-                    continue; // 跳過標題行
-                }
-
-                String[] parts = line.split(",");
-                if (parts.length >= 3) {
-                    String studentId = parts[0].trim();
-                    String eventId = parts[1].trim();
-                    String registrationTime = parts[2].trim();
-
-                    // 從活動資訊中獲取活動名稱
-                    EventInfo eventInfo = eventInfoMap.get(eventId);
-                    String eventName = eventInfo != null ? eventInfo.getTitle() : "未知活動";
-
-                    // 獲取學生姓名（如果沒有學生資料，使用學號）
-                    String studentName = getStudentName(studentId);
-
-                    Registration registration = new Registration(
-                            studentId,
-                            studentName,
-                            eventName,
-                            registrationTime
-                    );
-
-                    allRegistrations.add(registration);
-                }
-            }
-            reader.close();
-
-        } catch (IOException e) {
-            System.err.println("讀取報名資料時發生錯誤：" + e.getMessage());
-            e.printStackTrace();
-        }
+        allRegistrations.setAll(registrationIndex.getAll());
     }
 
     private String getStudentName(String studentId) {
-        // 從 studentNameMap 中獲取學生姓名，如果找不到則返回學號
-        return studentNameMap.getOrDefault(studentId, studentId);
+        // 從使用者資料中獲取學生姓名，如果找不到則返回學號
+        return userDirectory.getName(studentId);
+    }
+
+    private String getEventName(RegistrationEntry registration) {
+        // 以報名紀錄中的活動代碼直接取得活動
+        Event event = eventRepository.findByKey(registration.getEventKey());
+        return event != null ? event.getTitle() : "未知活動";
     }
 
     private void setupEventComboBox() {
         eventComboBox.setItems(eventList);
         // 添加"全部活動"選項
-        eventComboBox.getItems().add(0, "全部活動");
-        eventComboBox.setValue("全部活動");
+        eventComboBox.getItems().add(0, ALL_EVENTS);
+        eventComboBox.setValue(ALL_EVENTS);
+    }
+
+    /**
+     * 活動選單以「標題（活動編號）」顯示，同名的活動也分得出來
+     */
+    private class EventTitleConverter extends StringConverter<String> {
+        @Override
+        public String toString(String eventId) {
+            if (eventId == null) {
+                return null;
+            }
+            if (eventId.equals(ALL_EVENTS)) {
+                return "全部活動";
+            }
+            Event event = eventRepository.findById(eventId);
+            return event != null ? event.getTitle() + "（" + eventId + "）" : eventId;
+        }
+
+        @Override
+        public String fromString(String text) {
+            // 選單不可編輯，不會把文字轉回選項
+            return null;
+        }
     }
 
     @FXML
@@ -217,73 +233,69 @@ public class RegistrationListController implements Initializable {
         String selectedEvent = eventComboBox.getValue();
         if (selectedEvent == null) return;
 
-        filterRegistrations();
-        updateStatistics();
+        registrationFilter.filterNow(registrationQuery());
     }
 
     @FXML
     private void handleSearch() {
-        filterRegistrations();
+        registrationFilter.filterNow(registrationQuery());
     }
 
     @FXML
     private void handleClear() {
         studentSearchField.clear();
-        eventComboBox.setValue("全部活動");
-        filteredRegistrations.setAll(allRegistrations);
-        registrationTable.setItems(filteredRegistrations);
-        updateStatistics();
+        eventComboBox.setValue(ALL_EVENTS);
+        registrationFilter.clear();
     }
 
-    private void filterRegistrations() {
+    /**
+     * 依目前選擇的活動與搜尋文字建立過濾條件（在背景執行緒比對）；沒有任何條件時回傳 null
+     */
+    private Supplier<Predicate<RegistrationEntry>> registrationQuery() {
         String selectedEvent = eventComboBox.getValue();
-        String searchText = studentSearchField.getText().toLowerCase().trim();
-
-        filteredRegistrations.clear();
+        String searchText = studentSearchField.getText() != null
+                ? studentSearchField.getText().toLowerCase().trim() : "";
+        boolean allEvents = selectedEvent == null || selectedEvent.equals(ALL_EVENTS);
+        if (allEvents && searchText.isEmpty()) {
+            return null;
+        }
+        // 選擇的活動先轉成代碼，比對每一筆報名時只比較整數
+        Event event = allEvents ? null : eventRepository.findById(selectedEvent);
+        int selectedEventKey = event != null ? event.getKey() : KeyDictionary.NONE;
 
-        for (Registration registration : allRegistrations) {
-            boolean matchEvent = selectedEvent.equals("全部活動") ||
-                    registration.getEventName().equals(selectedEvent);
+        return () -> registration -> {
+            boolean matchEvent = allEvents || registration.getEventKey() == selectedEventKey;
 
             boolean matchSearch = searchText.isEmpty() ||
                     registration.getStudentId().toLowerCase().contains(searchText) ||
-                    registration.getStudentName().toLowerCase().contains(searchText);
+                    getStudentName(registration.getStudentId()).toLowerCase().contains(searchText);
 
-            if (matchEvent && matchSearch) {
-                filteredRegistrations.add(registration);
-            }
-        }
-
-        registrationTable.setItems(filteredRegistrations);
-        updateStatistics();
+            return matchEvent && matchSearch;
+        };
     }
 
+    /**
+     * 統計數字直接取自各活動的計數器，不必計算清單
+     */
     private void updateStatistics() {
         String selectedEvent = eventComboBox.getValue();
-        int totalRegistrations = filteredRegistrations.size();
-
-        totalRegistrationsLabel.setText("總報名人數：" + totalRegistrations);
-
-        if (selectedEvent != null && !selectedEvent.equals("全部活動")) {
-            // 從活動資訊中獲取總名額
-            int totalCapacity = getTotalCapacityForEvent(selectedEvent);
-            int remaining = Math.max(0, totalCapacity - totalRegistrations);
-            remainingCapacityLabel.setText("剩餘名額：" + remaining);
-            eventStatusLabel.setText("活動狀態：" + (remaining > 0 ? "開放報名" : "已額滿"));
-        } else {
-            remainingCapacityLabel.setText("剩餘名額：-");
-            eventStatusLabel.setText("活動狀態：全部活動");
-        }
-    }
-
-    private int getTotalCapacityForEvent(String eventName) {
-        // 從活動資訊中獲取名額
-        for (EventInfo eventInfo : eventInfoMap.values()) {
-            if (eventInfo.getTitle().equals(eventName)) {
-                return eventInfo.getCapacity();
+        boolean searching = studentSearchField.getText() != null && !studentSearchField.getText().trim().isEmpty();
+
+        if (selectedEvent != null && !selectedEvent.equals(ALL_EVENTS)) {
+            EventStatistics statistics = registrationService.getStatistics(selectedEvent);
+            if (statistics != null) {
+                int totalRegistrations = searching ? registrationFilter.getFilteredList().size() : statistics.getRegistered();
+                totalRegistrationsLabel.setText("總報名人數：" + totalRegistrations);
+                remainingCapacityLabel.setText("剩餘名額：" + statistics.getRemaining());
+                eventStatusLabel.setText("活動狀態：" + (statistics.isFull() ? "已額滿" : "開放報名"));
+                return;
             }
         }
-        return 0;
+
+        int totalRegistrations = searching ? registrationFilter.getFilteredList().size() : registrationIndex.size();
+        totalRegistrationsLabel.setText("總報名人數：" + totalRegistrations);
+        remainingCapacityLabel.setText("剩餘名額：-");
+        eventStatusLabel.setText("活動狀態：全部活動");
     }
 
     @FXML
@@ -300,7 +312,6 @@ public class RegistrationListController implements Initializable {
 
             if (file != null) {
                 exportToCSV(file);
-                showInfoAlert("匯出成功", "報名名單已成功匯出至：" + file.getAbsolutePath());
             }
 
         } catch (Exception e) {
@@ -308,61 +319,60 @@ public class RegistrationListController implements Initializable {
         }
     }
 
-    private void exportToCSV(File file) throws IOException {
-        try (FileWriter writer = new FileWriter(file, StandardCharsets.UTF_8)) {
-            // 寫入 BOM 以支援中文
-            writer.write('\uFEFF');
-
-            // 寫入標題行
-            writer.write("序號,學號,姓名,報名時間,活動名稱\n");
-
-            // 寫入資料
-            int sequence = 1;
-            for (Registration registration : filteredRegistrations) {
-                writer.write(String.format("%d,%s,%s,%s,%s\n",
-                        sequence++,
-                        registration.getStudentId(),
-                        registration.getStudentName(),
-                        registration.getRegistrationTime(),
-                        registration.getEventName()
-                ));
+    /**
+     * 在 JavaFX 執行緒上取出目前顯示的名單，寫檔交給背景執行緒
+     */
+    private void exportToCSV(File file) {
+        List<RegistrationEntry> rows = new ArrayList<>(registrationFilter.getFilteredList());
+        loadingState.track(dataService.run(() -> {
+            try (FileWriter writer = new FileWriter(file, StandardCharsets.UTF_8)) {
+                // 寫入 BOM 以支援中文
+                writer.write('\uFEFF');
+
+                // 寫入標題行
+                writer.write("序號,學號,姓名,報名時間,活動名稱\n");
+
+                // 寫入資料
+                int sequence = 1;
+                for (RegistrationEntry registration : rows) {
+                    writer.write(String.format("%d,%s,%s,%s,%s\n",
+                            sequence++,
+                            registration.getStudentId(),
+                            getStudentName(registration.getStudentId()),
+                            registration.getRegistrationTime(),
+                            getEventName(registration)
+                    ));
+                }
             }
-        }
+        }), "匯出中…").whenCompleteAsync((result, error) -> {
+            if (error != null) {
+                showErrorAlert("匯出失敗", "匯出過程中發生錯誤：" + AsyncDataService.rootCause(error).getMessage());
+            } else {
+                showInfoAlert("匯出成功", "報名名單已成功匯出至：" + file.getAbsolutePath());
+            }
+        }, fxUpdates);
     }
 
     @FXML
     private void handleRefresh() {
-        // 重新載入資料
-        allRegistrations.clear();
-        eventList.clear();
-        eventInfoMap.clear();
-        studentNameMap.clear();
-
-        loadUserData();
-        loadEventData();
-        loadRegistrationData();
-        setupEventComboBox();
-
-        filteredRegistrations.setAll(allRegistrations);
-        registrationTable.setItems(filteredRegistrations);
-        updateStatistics();
-
-        showInfoAlert("重新整理", "資料已更新");
+        // 在背景重新載入活動與使用者，報名只讀取新增的部分
+        loadingState.track(dataService.reloadAll(), "重新整理中…").whenCompleteAsync((result, error) -> {
+            if (error != null) {
+                showErrorAlert("重新整理失敗", AsyncDataService.rootCause(error).getMessage());
+                return;
+            }
+            // 保留選擇的活動，以目前的條件重新過濾新載入的資料
+            applyDataChange(EnumSet.of(DataDirectoryWatcher.Change.EVENTS, DataDirectoryWatcher.Change.REGISTRATIONS));
+            showInfoAlert("重新整理", "資料已更新");
+        }, fxUpdates);
     }
 
     @FXML
     private void handleBackToMain() {
         try {
-            Parent root = FXMLLoader.load(getClass().getResource("/主辦人主畫面.fxml"));
+            // 回到已載入的主辦人主畫面（保持當前視窗尺寸）
             Stage stage = (Stage) backButton.getScene().getWindow();
-
-            // 保持當前視窗尺寸
-            double currentWidth = stage.getWidth();
-            double currentHeight = stage.getHeight();
-
-            stage.setScene(new Scene(root, currentWidth, currentHeight));
-            stage.setTitle("主辦人管理系統");
-            stage.show();
+            NavigationManager.getInstance().show(stage, NavigationManager.HOST_MAIN, "主辦人管理系統");
         } catch (IOException e) {
             System.err.println("無法載入主辦人主畫面：" + e.getMessage());
             e.printStackTrace();
@@ -392,57 +402,4 @@ public class RegistrationListController implements Initializable {
         alert.setContentText(content);
         alert.showAndWait();
     }
-
-    // EventInfo 類別
-    private static class EventInfo {
-        private final String id;
-        private final String title;
-        private final String location;
-        private final String time;
-        private final String organizer;
-        private final int capacity;
-
-        public EventInfo(String id, String title, String location, String time, String organizer, int capacity) {
-            this.id = id;
-            this.title = title;
-            this.location = location;
-            this.time = time;
-            this.organizer = organizer;
-            this.capacity = capacity;
-        }
-
-        public String getId() { return id; }
-        public String getTitle() { return title; }
-        public String getLocation() { return location; }
-        public String getTime() { return time; }
-        public String getOrganizer() { return organizer; }
-        public int getCapacity() { return capacity; }
-    }
-
-    // Registration 資料類別
-    public static class Registration {
-        private final SimpleStringProperty studentId;
-        private final SimpleStringProperty studentName;
-        private final SimpleStringProperty eventName;
-        private final SimpleStringProperty registrationTime;
-
-        public Registration(String studentId, String studentName, String eventName, String registrationTime) {
-            this.studentId = new SimpleStringProperty(studentId);
-            this.studentName = new SimpleStringProperty(studentName);
-            this.eventName = new SimpleStringProperty(eventName);
-            this.registrationTime = new SimpleStringProperty(registrationTime);
-        }
-
-        // Getter methods
-        public String getStudentId() { return studentId.get(); }
-        public String getStudentName() { return studentName.get(); }
-        public String getEventName() { return eventName.get(); }
-        public String getRegistrationTime() { return registrationTime.get(); }
-
-        // Property methods for TableView binding
-        public SimpleStringProperty studentIdProperty() { return studentId; }
-        public SimpleStringProperty studentNameProperty() { return studentName; }
-        public SimpleStringProperty eventNameProperty() { return eventName; }
-        public SimpleStringProperty registrationTimeProperty() { return registrationTime; }
-    }
-}
\ No newline at end of file
+}
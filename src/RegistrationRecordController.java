@@ -1,14 +1,27 @@
+import javafx.beans.property.ReadOnlyStringWrapper;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.control.*;
 import javafx.event.ActionEvent;
+import model.AsyncDataService;
+import model.DataDirectoryWatcher;
+import model.Event;
+import model.EventRepository;
+import model.EventTime;
+import model.KeyDictionary;
+import model.RegistrationEntry;
+import model.RegistrationIndex;
+import model.UserDirectory;
+
 import java.io.*;
 import java.net.URL;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
-public class RegistrationRecordController implements Initializable {
+public class RegistrationRecordController implements Initializable, NavigationManager.Screen {
 
     @FXML private TableView<RegistrationRecord> registrationTable;
     @FXML private TableColumn<RegistrationRecord, String> eventTitleColumn;
@@ -28,120 +41,123 @@ public class RegistrationRecordController implements Initializable {
     private ObservableList<RegistrationRecord> registrationData = FXCollections.observableArrayList();
     private ObservableList<RegistrationRecord> allData = FXCollections.observableArrayList(); // 所有資料（for 顯示全部/搜尋）
     private String currentStudentId = null; // 由主畫面呼叫 setCurrentStudentId 設定
+    // 幾天內開始的活動顯示為「即將舉行」
+    private static final int UPCOMING_DAYS = 7;
 
-    private static final String EVENT_CSV_PATH = "src/活動列表.csv";
-    private static final String REG_CSV_PATH = "src/已報名.csv";
-    private static final String USERS_CSV_PATH = "src/users.csv"; // 新增：用戶資料路徑
-
-    private Map<String, EventData> eventMap = new HashMap<>();
-    private Map<String, String> userIdToNameMap = new HashMap<>(); // 新增：用戶ID到姓名的映射
+    // 全系統共用的活動資料庫
+    private final EventRepository eventRepository = EventRepository.getInstance();
+    // 全系統共用的報名索引
+    private final RegistrationIndex registrationIndex = RegistrationIndex.getInstance();
+    // 全系統共用的使用者資料
+    private final UserDirectory userDirectory = UserDirectory.getInstance();
+    // 讀寫檔案都在背景進行，結果再交給 JavaFX 執行緒；取消報名只在日誌附加墓碑並歸還名額
+    private final AsyncDataService dataService = AsyncDataService.getInstance();
+    private final FxUpdateQueue fxUpdates = FxUpdateQueue.getInstance();
+    private LoadingState loadingState;
+    // 其他程式修改資料時自動更新（在 JavaFX 執行緒上呼叫）
+    private final DataDirectoryWatcher dataWatcher = DataDirectoryWatcher.getInstance();
+    private final Consumer<Set<DataDirectoryWatcher.Change>> dataChangeListener = this::handleDataChange;
 
     @Override
     public void initialize(URL location, java.util.ResourceBundle resources) {
-        eventTitleColumn.setCellValueFactory(cell -> cell.getValue().eventTitleProperty());
-        locationColumn.setCellValueFactory(cell -> cell.getValue().locationProperty());
-        timeColumn.setCellValueFactory(cell -> cell.getValue().timeProperty());
-        organizerColumn.setCellValueFactory(cell -> cell.getValue().organizerProperty());
-        registrationTimeColumn.setCellValueFactory(cell -> cell.getValue().registrationTimeProperty());
-        statusColumn.setCellValueFactory(cell -> cell.getValue().statusProperty());
+        loadingState = new LoadingState(registrationTable, refreshButton);
+        // 只為顯示中的列建立唯讀屬性，紀錄本身只保存字串
+        eventTitleColumn.setCellValueFactory(cell -> new ReadOnlyStringWrapper(cell.getValue().getEventTitle()));
+        locationColumn.setCellValueFactory(cell -> new ReadOnlyStringWrapper(cell.getValue().getLocation()));
+        timeColumn.setCellValueFactory(cell -> new ReadOnlyStringWrapper(cell.getValue().getTime()));
+        organizerColumn.setCellValueFactory(cell -> new ReadOnlyStringWrapper(cell.getValue().getOrganizer()));
+        registrationTimeColumn.setCellValueFactory(cell -> new ReadOnlyStringWrapper(cell.getValue().getRegistrationTime()));
+        statusColumn.setCellValueFactory(cell -> new ReadOnlyStringWrapper(cell.getValue().getStatus()));
 
         registrationTable.setItems(registrationData);
+        dataWatcher.addListener(dataChangeListener);
+    }
+
+    /**
+     * 資料變更後只重新整理目前學生的報名紀錄，保留搜尋關鍵字
+     */
+    private void handleDataChange(Set<DataDirectoryWatcher.Change> changes) {
+        // 畫面未顯示時略過，切換回來時 setCurrentStudentId 會重新查詢
+        if (registrationTable.getScene() == null || registrationTable.getScene().getWindow() == null) {
+            return;
+        }
+        loadRegistrationData();
+        if (keywordField != null && !keywordField.getText().trim().isEmpty()) {
+            handleSearch(null);
+        }
+    }
+
+    /**
+     * 登出時停止接收資料變更的通知
+     */
+    @Override
+    public void onDispose() {
+        dataWatcher.removeListener(dataChangeListener);
     }
 
     // 主畫面切換頁面時會呼叫
     public void setCurrentStudentId(String studentId) {
         this.currentStudentId = studentId;
-        loadUserData(); // 新增：載入用戶資料
-        loadEventMap();
-        loadRegistrationData();
         registrationTable.setItems(registrationData);
-        updateTotalLabel();
-    }
-
-    // 新增：載入用戶資料的方法
-    private void loadUserData() {
-        userIdToNameMap.clear();
-        try (BufferedReader reader = new BufferedReader(new FileReader(USERS_CSV_PATH))) {
-            String line;
-            boolean isFirstLine = true;
-            while ((line = reader.readLine()) != null) {
-                if (isFirstLine) {
-                    isFirstLine = false;
-                    continue;
-                }
-                String[] parts = line.split(",", -1);
-                if (parts.length >= 2) {
-                    String userId = parts[0].trim();
-                    String userName = parts[1].trim();
-                    userIdToNameMap.put(userId, userName);
-                }
-            }
-            System.out.println("成功載入 " + userIdToNameMap.size() + " 個用戶資料");
-        } catch (IOException e) {
-            e.printStackTrace();
-            System.out.println("讀取用戶資料時發生錯誤: " + e.getMessage());
-        }
+        // 資料在背景載入（已載入時立即完成），之後只從記憶體組合紀錄
+        loadingState.track(dataService.loadAll(), "報名紀錄載入中…")
+                .thenRunAsync(this::loadRegistrationData, fxUpdates);
     }
 
     // 新增：根據用戶ID獲取姓名的方法
     private String getOrganizerName(String organizerId) {
-        return userIdToNameMap.getOrDefault(organizerId, organizerId); // 如果找不到對應姓名，返回原ID
-    }
-
-    // 讀取活動列表.csv 到 eventMap
-    private void loadEventMap() {
-        eventMap.clear();
-        try (BufferedReader reader = new BufferedReader(new FileReader(EVENT_CSV_PATH))) {
-            String line;
-            boolean firstLine = true;
-            while ((line = reader.readLine()) != null) {
-                if (firstLine) { firstLine = false; continue; }
-                String[] parts = line.split(",", -1);
-                if (parts.length >= 6) {
-                    String eventId = parts[0].trim();
-                    String title = parts[1].trim();
-                    String location = parts[2].trim();
-                    String time = parts[3].trim();
-                    String organizerId = parts[4].trim(); // 這是主辦單位ID
-                    String organizerName = getOrganizerName(organizerId); // 轉換為姓名
-                    eventMap.put(eventId, new EventData(title, location, time, organizerName)); // 使用姓名
-                }
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+        return userDirectory.getName(organizerId); // 如果找不到對應姓名，返回原ID
     }
 
-    // 讀取已報名.csv 並組合資料
+    // 從報名索引取出當前學生的報名並組合資料
     private void loadRegistrationData() {
         registrationData.clear();
         allData.clear();
         if (currentStudentId == null) return;
-        try (BufferedReader reader = new BufferedReader(new FileReader(REG_CSV_PATH))) {
-            String line;
-            boolean firstLine = true;
-            while ((line = reader.readLine()) != null) {
-                if (firstLine) { firstLine = false; continue; }
-                String[] parts = line.split(",", -1);
-                if (parts.length >= 3) {
-                    String studentId = parts[0].trim();
-                    String eventId = parts[1].trim();
-                    String regTime = parts[2].trim();
-                    if (studentId.equals(currentStudentId) && eventMap.containsKey(eventId)) {
-                        EventData event = eventMap.get(eventId);
-                        RegistrationRecord record = new RegistrationRecord(
-                                event.getTitle(), event.getLocation(), event.getTime(), event.getOrganizer(), regTime, "已報名");
-                        registrationData.add(record);
-                        allData.add(record);
-                    }
-                }
+        int now = EventTime.now();
+        int upcomingEnd = EventTime.plusDays(now, UPCOMING_DAYS);
+        for (RegistrationEntry entry : registrationIndex.findByStudent(currentStudentId)) {
+            Event event = eventRepository.findByKey(entry.getEventKey());
+            if (event != null) {
+                String organizerName = getOrganizerName(event.getOrganizer().getId()); // 轉換為姓名
+                RegistrationRecord record = new RegistrationRecord(entry.getEventKey(),
+                        event.getTitle(), event.getLocation(), event.getTime(), organizerName,
+                        entry.getRegistrationTime(), registrationStatus(event, now, upcomingEnd), false);
+                registrationData.add(record);
+                allData.add(record);
+            }
+        }
+        // 候補中的活動也列出，狀態顯示目前排在第幾位
+        for (RegistrationEntry entry : registrationIndex.findWaitingByStudent(currentStudentId)) {
+            Event event = eventRepository.findByKey(entry.getEventKey());
+            if (event != null) {
+                int position = registrationIndex.getWaitingPosition(entry.getStudentKey(), entry.getEventKey());
+                RegistrationRecord record = new RegistrationRecord(entry.getEventKey(),
+                        event.getTitle(), event.getLocation(), event.getTime(),
+                        getOrganizerName(event.getOrganizer().getId()),
+                        entry.getRegistrationTime(), "候補第" + position + "位", true);
+                registrationData.add(record);
+                allData.add(record);
             }
-        } catch (IOException e) {
-            e.printStackTrace();
         }
         updateTotalLabel();
     }
 
+    /**
+     * 依活動開始時間決定狀態：已開始為「已結束」，UPCOMING_DAYS 天內開始為「即將舉行」；
+     * 時間無法解析的活動維持「已報名」
+     */
+    private static String registrationStatus(Event event, int now, int upcomingEnd) {
+        int startTime = event.getStartTime();
+        if (startTime == EventTime.UNKNOWN) {
+            return "已報名";
+        }
+        if (startTime < now) {
+            return "已結束";
+        }
+        return startTime < upcomingEnd ? "即將舉行" : "已報名";
+    }
+
     private void updateTotalLabel() {
         totalLabel.setText("總計活動: " + registrationData.size() + " 項");
     }
@@ -176,11 +192,15 @@ public class RegistrationRecordController implements Initializable {
     // 重新整理
     @FXML
     private void handleRefresh(ActionEvent event) {
-        loadUserData(); // 新增：重新載入用戶資料
-        loadEventMap();
-        loadRegistrationData();
-        updateTotalLabel();
-        if (keywordField != null) keywordField.clear();
+        // 在背景重新讀取使用者與活動，報名只讀取新增的部分
+        loadingState.track(dataService.reloadAll(), "重新整理中…").whenCompleteAsync((result, error) -> {
+            if (error != null) {
+                showAlert(Alert.AlertType.ERROR, "錯誤", "重新整理失敗：" + AsyncDataService.rootCause(error).getMessage());
+                return;
+            }
+            loadRegistrationData();
+            if (keywordField != null) keywordField.clear();
+        }, fxUpdates);
     }
 
     // 清除搜尋
@@ -201,81 +221,43 @@ public class RegistrationRecordController implements Initializable {
         // 彈出確認對話框
         Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
         alert.setTitle("確認取消");
-        alert.setHeaderText("你確定要取消這個報名嗎？");
+        alert.setHeaderText(selected.isWaitlisted() ? "你確定要離開候補名單嗎？" : "你確定要取消這個報名嗎？");
         alert.setContentText("活動名稱：" + selected.getEventTitle());
         alert.showAndWait().ifPresent(result -> {
             if (result == ButtonType.OK) {
-                // **1. 從 CSV 移除那一筆**
-                boolean removed = removeRecordFromCSV(selected);
+                // **1. 在背景寫入取消紀錄**
+                loadingState.track(removeRecordFromCSV(selected), "取消報名中…").whenCompleteAsync((removed, error) -> {
+                    if (error != null) {
+                        error.printStackTrace();
+                        showAlert(Alert.AlertType.ERROR, "錯誤", "無法寫入取消紀錄：" + AsyncDataService.rootCause(error).getMessage());
+                        return;
+                    }
 
-                // **2. 從畫面上移除**
-                registrationData.remove(selected);
-                allData.remove(selected);
-                updateTotalLabel();
+                    // **2. 從畫面上移除**
+                    registrationData.remove(selected);
+                    allData.remove(selected);
+                    updateTotalLabel();
 
-                if (removed) {
-                    showAlert(Alert.AlertType.INFORMATION, "已取消", "已成功取消報名！");
-                } else {
-                    showAlert(Alert.AlertType.WARNING, "提醒", "取消報名失敗（檔案內無此紀錄）");
-                }
+                    if (removed) {
+                        showAlert(Alert.AlertType.INFORMATION, "已取消",
+                                selected.isWaitlisted() ? "已離開候補名單！" : "已成功取消報名！");
+                    } else {
+                        showAlert(Alert.AlertType.WARNING, "提醒", "取消報名失敗（檔案內無此紀錄）");
+                    }
+                }, fxUpdates);
             }
         });
     }
 
     // === 新增這個方法 ===
-    private boolean removeRecordFromCSV(RegistrationRecord record) {
-        File inputFile = new File(REG_CSV_PATH);
-        File tempFile = new File(REG_CSV_PATH + ".tmp");
-        boolean removed = false;
-
-        try (
-                BufferedReader reader = new BufferedReader(new FileReader(inputFile));
-                PrintWriter writer = new PrintWriter(new OutputStreamWriter(new FileOutputStream(tempFile), "UTF-8"))
-        ) {
-            String line;
-            boolean isFirstLine = true;
-            while ((line = reader.readLine()) != null) {
-                if (isFirstLine) {
-                    writer.println(line); // 保留標題
-                    isFirstLine = false;
-                    continue;
-                }
-                String[] parts = line.split(",", -1);
-                if (parts.length < 3) continue;
-                // 比對「學生ID + 活動名稱/編號 + 報名時間」是否完全相符
-                String studentId = parts[0].trim();
-                String eventId = parts[1].trim();
-                String regTime = parts[2].trim();
-                // eventMap 反查 eventId by eventTitle
-                String realEventId = null;
-                for (Map.Entry<String, EventData> entry : eventMap.entrySet()) {
-                    if (entry.getValue().getTitle().equals(record.getEventTitle())) {
-                        realEventId = entry.getKey();
-                        break;
-                    }
-                }
-                if (studentId.equals(currentStudentId)
-                        && eventId.equals(realEventId)
-                        && regTime.equals(record.getRegistrationTime())) {
-                    removed = true;
-                    continue; // 跳過這一筆（不寫入）
-                }
-                writer.println(line); // 其餘資料寫回
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-            return false;
-        }
-        // 覆蓋原檔
-        if (removed) {
-            if (!inputFile.delete() || !tempFile.renameTo(inputFile)) {
-                System.err.println("CSV 檔案取代失敗！");
-                return false;
-            }
-        } else {
-            tempFile.delete();
+    private CompletableFuture<Boolean> removeRecordFromCSV(RegistrationRecord record) {
+        // 紀錄保存了活動代碼，不必再以標題反查活動
+        String eventId = KeyDictionary.EVENTS.decode(record.getEventKey());
+        if (record.isWaitlisted()) {
+            return dataService.leaveWaitlist(currentStudentId, eventId);
         }
-        return removed;
+        // 釋出的名額由報名日誌交給候補名單第一位
+        return dataService.cancel(currentStudentId, eventId).thenApply(removed -> removed != null);
     }
 
 
@@ -283,12 +265,8 @@ public class RegistrationRecordController implements Initializable {
     private void handleBack(javafx.event.ActionEvent event) {
         // 返回上一頁邏輯，以下為基本寫法，可依你需求調整
         try {
-            javafx.fxml.FXMLLoader loader = new javafx.fxml.FXMLLoader(getClass().getResource("學生主畫面.fxml"));
-            javafx.scene.Parent root = loader.load();
             javafx.stage.Stage stage = (javafx.stage.Stage) registrationTable.getScene().getWindow();
-            stage.setScene(new javafx.scene.Scene(root));
-            stage.setTitle("學生主畫面");
-            stage.show();
+            NavigationManager.getInstance().show(stage, NavigationManager.STUDENT_MAIN, "學生主畫面");
         } catch (Exception e) {
             e.printStackTrace();
             showAlert(Alert.AlertType.ERROR, "錯誤", "無法返回主畫面！");
@@ -304,50 +282,36 @@ public class RegistrationRecordController implements Initializable {
         alert.showAndWait();
     }
 
-    // 內部 class：活動資料
-    private static class EventData {
-        private final String title, location, time, organizer;
-        public EventData(String title, String location, String time, String organizer) {
-            this.title = title;
+    // 報名紀錄資料
+    public static class RegistrationRecord {
+        private final int eventKey;
+        private final String eventTitle;
+        private final String location;
+        private final String time;
+        private final String organizer;
+        private final String registrationTime;
+        private final String status;
+        // 候補中（尚未報名成功）的活動
+        private final boolean waitlisted;
+
+        public RegistrationRecord(int eventKey, String eventTitle, String location, String time, String organizer, String registrationTime, String status, boolean waitlisted) {
+            this.eventKey = eventKey;
+            this.eventTitle = eventTitle;
             this.location = location;
             this.time = time;
             this.organizer = organizer;
+            this.registrationTime = registrationTime;
+            this.status = status;
+            this.waitlisted = waitlisted;
         }
-        public String getTitle() { return title; }
+
+        public int getEventKey() { return eventKey; }
+        public String getEventTitle() { return eventTitle; }
         public String getLocation() { return location; }
         public String getTime() { return time; }
         public String getOrganizer() { return organizer; }
+        public String getRegistrationTime() { return registrationTime; }
+        public String getStatus() { return status; }
+        public boolean isWaitlisted() { return waitlisted; }
     }
-
-    // 報名紀錄資料
-    public static class RegistrationRecord {
-        private final javafx.beans.property.SimpleStringProperty eventTitle;
-        private final javafx.beans.property.SimpleStringProperty location;
-        private final javafx.beans.property.SimpleStringProperty time;
-        private final javafx.beans.property.SimpleStringProperty organizer;
-        private final javafx.beans.property.SimpleStringProperty registrationTime;
-        private final javafx.beans.property.SimpleStringProperty status; // 新增
-
-        public RegistrationRecord(String eventTitle, String location, String time, String organizer, String registrationTime, String status) {
-            this.eventTitle = new javafx.beans.property.SimpleStringProperty(eventTitle);
-            this.location = new javafx.beans.property.SimpleStringProperty(location);
-            this.time = new javafx.beans.property.SimpleStringProperty(time);
-            this.organizer = new javafx.beans.property.SimpleStringProperty(organizer);
-            this.registrationTime = new javafx.beans.property.SimpleStringProperty(registrationTime);
-            this.status = new javafx.beans.property.SimpleStringProperty(status); // 新增
-        }
-        public javafx.beans.property.StringProperty eventTitleProperty() { return eventTitle; }
-        public javafx.beans.property.StringProperty locationProperty() { return location; }
-        public javafx.beans.property.StringProperty timeProperty() { return time; }
-        public javafx.beans.property.StringProperty organizerProperty() { return organizer; }
-        public javafx.beans.property.StringProperty registrationTimeProperty() { return registrationTime; }
-        public javafx.beans.property.StringProperty statusProperty() { return status; } // 新增
-
-        public String getEventTitle() { return eventTitle.get(); }
-        public String getLocation() { return location.get(); }
-        public String getTime() { return time.get(); }
-        public String getOrganizer() { return organizer.get(); }
-        public String getRegistrationTime() { return registrationTime.get(); }
-        public String getStatus() { return status.get(); }
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,471 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import model.DataDirectoryWatcher;
+import model.Event;
+import model.EventRepository;
+import model.EventStatistics;
+import model.LoginService;
+import model.Organizer;
+import model.RegistrationEntry;
+import model.RegistrationIndex;
+import model.RegistrationService;
+import model.SessionStore;
+import model.User;
+import model.UserDirectory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 不需要 JavaFX 視窗的報名服務（本機 HTTP/JSON）。
+ * 報名開放時大量學生同時操作，每個請求各自在一條虛擬執行緒上執行；
+ * 報名、取消、瀏覽與名單查詢都與桌面版共用 {@link RegistrationService}。
+ *
+ * 登入成功後回覆 token；標示「需登入」的端點要附上 Authorization: Bearer &lt;token&gt;，
+ * 且只能操作登入者自己的報名：studentId 可省略，省略時即為登入者，與登入者不同時回覆 403。
+ * 標示「主辦人」的端點同樣要附上 token，且登入者必須是主辦人，學生回覆 403。
+ *
+ * POST /login              userId, password（驗證在獨立的執行緒池進行，回應不佔用請求執行緒）
+ * POST /logout             需登入
+ * GET  /events?q=關鍵字
+ * POST /register           需登入；eventId, allowTimeConflict（與已報名的活動時間重疊時回覆 TIME_CONFLICT
+ *                          與重疊的活動，學生確認後以 allowTimeConflict=true 再送一次）
+ * POST /cancel             需登入；eventId
+ * POST /waitlist/join      需登入；eventId（仍有名額時不加入候補，回覆 SEATS_AVAILABLE，改用 /register）
+ * POST /waitlist/leave     需登入；eventId
+ * GET  /waitlist/position  需登入；?eventId=
+ * GET  /registrations      需登入
+ * GET  /roster?eventId=     主辦人
+ * GET  /stats?eventId=      主辦人
+ */
+public class RegistrationServer {
+
+    private static final int DEFAULT_PORT = 8080;
+    private static final int BACKLOG = 4096;
+    // JDK 不支援虛擬執行緒時，改用的執行緒池大小
+    private static final int FALLBACK_POOL_SIZE = 200;
+
+    private final RegistrationService registrationService = RegistrationService.getInstance();
+    private final LoginService loginService = LoginService.getInstance();
+    private final SessionStore sessionStore = SessionStore.getInstance();
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    public RegistrationServer(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), BACKLOG);
+        executor = newRequestExecutor();
+        server.setExecutor(executor);
+
+        server.createContext("/login", this::handleLogin);
+        server.createContext("/logout", exchange -> handle(exchange, "POST", params -> handleLogout(exchange)));
+        server.createContext("/events", exchange -> handle(exchange, "GET", this::handleEvents));
+        server.createContext("/register", exchange -> handleAuthenticated(exchange, "POST", this::handleRegister));
+        server.createContext("/cancel", exchange -> handleAuthenticated(exchange, "POST", this::handleCancel));
+        server.createContext("/waitlist/join", exchange -> handleAuthenticated(exchange, "POST", this::handleWaitlistJoin));
+        server.createContext("/waitlist/leave", exchange -> handleAuthenticated(exchange, "POST", this::handleWaitlistLeave));
+        server.createContext("/waitlist/position", exchange -> handleAuthenticated(exchange, "GET", this::handleWaitlistPosition));
+        server.createContext("/registrations", exchange -> handleAuthenticated(exchange, "GET", this::handleRegistrations));
+        server.createContext("/roster", exchange -> handleOrganizer(exchange, "GET", this::handleRoster));
+        server.createContext("/stats", exchange -> handleOrganizer(exchange, "GET", this::handleStats));
+    }
+
+    public void start() {
+        EventRepository.getInstance().ensureLoaded();
+        RegistrationIndex.getInstance().ensureLoaded();
+        UserDirectory.getInstance().ensureLoaded();
+        // 多個服務或桌面版共用資料目錄時，讀取其他程式寫入的變更
+        DataDirectoryWatcher.getInstance().start();
+        server.start();
+        System.out.println("報名服務已啟動：http://127.0.0.1:" + server.getAddress().getPort());
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+        DataDirectoryWatcher.getInstance().stop();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        new RegistrationServer(port).start();
+    }
+
+    /**
+     * 每個請求一條虛擬執行緒（JDK 21 以上）；舊版 JDK 改用固定大小的執行緒池
+     */
+    private static ExecutorService newRequestExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            System.out.println("此 JDK 不支援虛擬執行緒，改用 " + FALLBACK_POOL_SIZE + " 條執行緒的執行緒池");
+            return Executors.newFixedThreadPool(FALLBACK_POOL_SIZE);
+        }
+    }
+
+    private interface Handler {
+        String handle(Map<String, String> params) throws IOException;
+    }
+
+    /**
+     * 需登入的端點：studentId 為登入者的學號
+     */
+    private interface AuthenticatedHandler {
+        String handle(String studentId, Map<String, String> params) throws IOException;
+    }
+
+    /**
+     * 以指定狀態碼回覆的請求錯誤（未登入、權限不足）
+     */
+    private static final class RequestException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        private final int status;
+
+        RequestException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private void handle(HttpExchange exchange, String method, Handler handler) throws IOException {
+        try {
+            if (!method.equals(exchange.getRequestMethod())) {
+                send(exchange, 405, error("不支援的請求方法"));
+                return;
+            }
+            Map<String, String> params = parseParams(exchange);
+            send(exchange, 200, handler.handle(params));
+        } catch (RequestException e) {
+            if (e.status == 401) {
+                exchange.getResponseHeaders().set("WWW-Authenticate", "Bearer");
+            }
+            send(exchange, e.status, error(e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            send(exchange, 400, error(e.getMessage()));
+        } catch (IOException e) {
+            System.err.println("處理請求時發生錯誤：" + e.getMessage());
+            send(exchange, 500, error("伺服器寫入資料失敗"));
+        } catch (RuntimeException e) {
+            // 未預期的錯誤也要回覆，用戶端不會一直等到逾時
+            System.err.println("處理請求時發生未預期的錯誤：" + e);
+            e.printStackTrace();
+            send(exchange, 500, error("伺服器內部錯誤"));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleAuthenticated(HttpExchange exchange, String method, AuthenticatedHandler handler)
+            throws IOException {
+        handle(exchange, method, params -> handler.handle(authenticate(exchange, params), params));
+    }
+
+    /**
+     * 只開放給主辦人的端點：沒有有效的 token 回覆 401，登入者不是主辦人回覆 403
+     */
+    private void handleOrganizer(HttpExchange exchange, String method, Handler handler) throws IOException {
+        handle(exchange, method, params -> {
+            String userId = sessionStore.findUser(bearerToken(exchange));
+            if (userId == null) {
+                throw new RequestException(401, "請先登入");
+            }
+            if (!(UserDirectory.getInstance().findById(userId) instanceof Organizer)) {
+                throw new RequestException(403, "只有主辦人可以查看報名名單與統計");
+            }
+            return handler.handle(params);
+        });
+    }
+
+    /**
+     * 由 Authorization: Bearer 取出登入者；沒有有效的 token 回覆 401，
+     * 請求的 studentId 與登入者不同回覆 403
+     */
+    private String authenticate(HttpExchange exchange, Map<String, String> params) {
+        String userId = sessionStore.findUser(bearerToken(exchange));
+        if (userId == null) {
+            throw new RequestException(401, "請先登入");
+        }
+        String studentId = params.get("studentId");
+        if (studentId != null && !studentId.trim().isEmpty() && !studentId.trim().equals(userId)) {
+            throw new RequestException(403, "只能操作自己的報名");
+        }
+        return userId;
+    }
+
+    private static String bearerToken(HttpExchange exchange) {
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        if (header == null || !header.regionMatches(true, 0, "Bearer ", 0, 7)) {
+            return null;
+        }
+        return header.substring(7).trim();
+    }
+
+    private String handleLogout(HttpExchange exchange) {
+        return "{\"loggedOut\":" + sessionStore.close(bearerToken(exchange)) + "}";
+    }
+
+    /**
+     * 登入：雜湊驗證完成後才由驗證執行緒送出回應；
+     * 成功時附上工作階段 token；同一帳號在同一用戶端（來源位址）嘗試次數過多回覆 429，
+     * 驗證佇列已滿回覆 503，兩者都附上 Retry-After
+     */
+    private void handleLogin(HttpExchange exchange) throws IOException {
+        String userId;
+        String password;
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                send(exchange, 405, error("不支援的請求方法"));
+                exchange.close();
+                return;
+            }
+            Map<String, String> params = parseParams(exchange);
+            userId = require(params, "userId");
+            password = require(params, "password");
+        } catch (IllegalArgumentException e) {
+            send(exchange, 400, error(e.getMessage()));
+            exchange.close();
+            return;
+        }
+
+        String client = exchange.getRemoteAddress().getAddress().getHostAddress();
+        loginService.login(userId, password, client).whenComplete((result, failure) -> {
+            try {
+                if (failure != null) {
+                    System.err.println("登入驗證時發生錯誤：" + failure.getMessage());
+                    send(exchange, 500, error("登入驗證失敗"));
+                    return;
+                }
+                switch (result.getStatus()) {
+                    case SUCCESS:
+                        User user = result.getUser();
+                        String token = sessionStore.open(user.getId());
+                        send(exchange, 200, "{\"token\":" + quote(token)
+                                + ",\"userId\":" + quote(user.getId())
+                                + ",\"name\":" + quote(user.getName())
+                                + ",\"role\":" + quote(user instanceof Organizer ? "organizer" : "student") + "}");
+                        break;
+                    case INVALID_CREDENTIALS:
+                        send(exchange, 401, error("學號或密碼錯誤"));
+                        break;
+                    case RATE_LIMITED:
+                        setRetryAfter(exchange, result.getRetryAfterMillis());
+                        send(exchange, 429, error("嘗試次數過多，請稍後再試"));
+                        break;
+                    default:
+                        setRetryAfter(exchange, result.getRetryAfterMillis());
+                        send(exchange, 503, error("目前登入人數眾多，請稍後再試"));
+                        break;
+                }
+            } catch (IOException e) {
+                System.err.println("回應登入請求時發生錯誤：" + e.getMessage());
+            } finally {
+                exchange.close();
+            }
+        });
+    }
+
+    private static void setRetryAfter(HttpExchange exchange, long retryAfterMillis) {
+        exchange.getResponseHeaders().set("Retry-After", String.valueOf(Math.max(1, (retryAfterMillis + 999) / 1000)));
+    }
+
+    private String handleEvents(Map<String, String> params) {
+        List<Event> events = registrationService.browseEvents(params.get("q"));
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < events.size(); i++) {
+            Event event = events.get(i);
+            if (i > 0) json.append(',');
+            json.append("{\"eventId\":").append(quote(event.getId()))
+                    .append(",\"title\":").append(quote(event.getTitle()))
+                    .append(",\"location\":").append(quote(event.getLocation()))
+                    .append(",\"time\":").append(quote(event.getTime()))
+                    .append(",\"organizerId\":").append(quote(event.getOrganizer().getId()))
+                    .append(",\"remainingCapacity\":").append(registrationService.getRemainingSeats(event.getId()))
+                    .append('}');
+        }
+        return json.append(']').toString();
+    }
+
+    private String handleRegister(String studentId, Map<String, String> params) throws IOException {
+        String eventId = require(params, "eventId");
+        boolean allowTimeConflict = Boolean.parseBoolean(params.get("allowTimeConflict"));
+        RegistrationService.Result result = registrationService.register(studentId, eventId, allowTimeConflict);
+        // 額滿時附上候補人數，用戶端可改用 /waitlist/join 排入候補
+        StringBuilder json = new StringBuilder("{\"result\":").append(quote(result.name()))
+                .append(",\"remainingCapacity\":").append(registrationService.getRemainingSeats(eventId))
+                .append(",\"waitlistSize\":").append(registrationService.getWaitlistSize(eventId));
+        if (result == RegistrationService.Result.TIME_CONFLICT) {
+            Event event = EventRepository.getInstance().findById(eventId);
+            List<Event> conflicts = event != null
+                    ? registrationService.findTimeConflicts(studentId, event) : Collections.emptyList();
+            json.append(",\"conflicts\":[");
+            for (int i = 0; i < conflicts.size(); i++) {
+                Event conflict = conflicts.get(i);
+                if (i > 0) json.append(',');
+                json.append("{\"eventId\":").append(quote(conflict.getId()))
+                        .append(",\"title\":").append(quote(conflict.getTitle()))
+                        .append(",\"time\":").append(quote(conflict.getTime()))
+                        .append('}');
+            }
+            json.append(']');
+        }
+        return json.append('}').toString();
+    }
+
+    private String handleCancel(String studentId, Map<String, String> params) throws IOException {
+        String eventId = require(params, "eventId");
+        RegistrationEntry removed = registrationService.cancel(studentId, eventId);
+        return "{\"cancelled\":" + (removed != null)
+                + ",\"remainingCapacity\":" + registrationService.getRemainingSeats(eventId) + "}";
+    }
+
+    private String handleWaitlistJoin(String studentId, Map<String, String> params) throws IOException {
+        String eventId = require(params, "eventId");
+        if (!EventRepository.getInstance().containsId(eventId)) {
+            throw new IllegalArgumentException("找不到活動：" + eventId);
+        }
+        int position = registrationService.joinWaitlist(studentId, eventId);
+        String result;
+        if (position > 0) {
+            result = "WAITING";
+        } else if (position == RegistrationService.SEATS_AVAILABLE) {
+            result = "SEATS_AVAILABLE";
+        } else {
+            result = "ALREADY_REGISTERED";
+        }
+        return "{\"result\":" + quote(result) + ",\"position\":" + Math.max(position, 0)
+                + ",\"remainingCapacity\":" + registrationService.getRemainingSeats(eventId) + "}";
+    }
+
+    private String handleWaitlistLeave(String studentId, Map<String, String> params) throws IOException {
+        String eventId = require(params, "eventId");
+        boolean left = registrationService.leaveWaitlist(studentId, eventId);
+        return "{\"left\":" + left + "}";
+    }
+
+    private String handleWaitlistPosition(String studentId, Map<String, String> params) {
+        String eventId = require(params, "eventId");
+        return "{\"position\":" + registrationService.getWaitlistPosition(studentId, eventId)
+                + ",\"waitlistSize\":" + registrationService.getWaitlistSize(eventId) + "}";
+    }
+
+    private String handleRegistrations(String studentId, Map<String, String> params) {
+        return toJson(registrationService.getStudentRegistrations(studentId));
+    }
+
+    private String handleRoster(Map<String, String> params) {
+        return toJson(registrationService.getRoster(require(params, "eventId")));
+    }
+
+    private String handleStats(Map<String, String> params) {
+        String eventId = require(params, "eventId");
+        EventStatistics statistics = registrationService.getStatistics(eventId);
+        if (statistics == null) {
+            throw new IllegalArgumentException("找不到活動：" + eventId);
+        }
+        return "{\"eventId\":" + quote(eventId)
+                + ",\"registered\":" + statistics.getRegistered()
+                + ",\"capacity\":" + statistics.getCapacity()
+                + ",\"remaining\":" + statistics.getRemaining()
+                + ",\"full\":" + statistics.isFull() + "}";
+    }
+
+    private static String toJson(List<RegistrationEntry> entries) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < entries.size(); i++) {
+            RegistrationEntry entry = entries.get(i);
+            if (i > 0) json.append(',');
+            json.append("{\"studentId\":").append(quote(entry.getStudentId()))
+                    .append(",\"eventId\":").append(quote(entry.getEventId()))
+                    .append(",\"registrationTime\":").append(quote(entry.getRegistrationTime()))
+                    .append('}');
+        }
+        return json.append(']').toString();
+    }
+
+    private static String require(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null || value.trim().isEmpty()) {
+            throw new IllegalArgumentException("缺少參數：" + name);
+        }
+        return value.trim();
+    }
+
+    /**
+     * 合併網址查詢字串與 application/x-www-form-urlencoded 內容
+     */
+    private static Map<String, String> parseParams(HttpExchange exchange) throws IOException {
+        Map<String, String> params = new HashMap<>();
+        parseQuery(exchange.getRequestURI().getRawQuery(), params);
+        try (InputStream body = exchange.getRequestBody()) {
+            byte[] bytes = body.readAllBytes();
+            if (bytes.length > 0) {
+                parseQuery(new String(bytes, StandardCharsets.UTF_8), params);
+            }
+        }
+        return params;
+    }
+
+    private static void parseQuery(String query, Map<String, String> params) {
+        if (query == null || query.isEmpty()) {
+            return;
+        }
+        for (String pair : query.split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, separator), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String error(String message) {
+        return "{\"error\":" + quote(message) + "}";
+    }
+
+    private static String quote(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder sb = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
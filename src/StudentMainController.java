@@ -1,9 +1,6 @@
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
 import javafx.stage.Stage;
@@ -20,6 +17,8 @@ public class StudentMainController implements Initializable {
 
     private Student student;
 
+    private final NavigationManager navigationManager = NavigationManager.getInstance();
+
     @FXML
     private Button browseEventsButton;
 
@@ -84,17 +83,10 @@ public class StudentMainController implements Initializable {
         }
 
         try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("活動瀏覽.fxml"));
-            Parent root = loader.load();
-
-            // 取得 EventBrowserController 並設定學生資訊
-            EventBrowserController eventController = loader.getController();
-            eventController.setCurrentStudent(currentStudent);
-
+            // 重複使用已載入的畫面，並設定學生資訊
             Stage stage = (Stage) browseEventsButton.getScene().getWindow();
-            Scene scene = new Scene(root, 800, 500);
-            stage.setScene(scene);
-            stage.setTitle("瀏覽活動");
+            navigationManager.show(stage, NavigationManager.EVENT_BROWSER, "瀏覽活動",
+                    (EventBrowserController eventController) -> eventController.setCurrentStudent(currentStudent));
         } catch (IOException e) {
             e.printStackTrace();
             showErrorAlert("錯誤", "無法載入瀏覽活動頁面", e.getMessage());
@@ -114,18 +106,10 @@ public class StudentMainController implements Initializable {
         }
 
         try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("查詢報名紀錄.fxml"));
-            Parent root = loader.load();
-
-            // 取得 RegistrationRecordController 並傳遞學生ID
-            RegistrationRecordController controller = loader.getController();
-            controller.setCurrentStudentId(currentStudent.getId());
-
+            // 傳遞學生ID，畫面依此重新查詢報名紀錄
             Stage stage = (Stage) registerEventsButton.getScene().getWindow();
-            Scene scene = new Scene(root);
-            stage.setScene(scene);
-            stage.setTitle("查詢報名紀錄");
-            stage.show();
+            navigationManager.show(stage, NavigationManager.REGISTRATION_RECORDS, "查詢報名紀錄",
+                    (RegistrationRecordController controller) -> controller.setCurrentStudentId(currentStudent.getId()));
 
         } catch (IOException e) {
             e.printStackTrace();
@@ -142,12 +126,10 @@ public class StudentMainController implements Initializable {
             // 清除靜態變數中的學生資訊
             clearLoggedInStudent();
 
-            // 回到登入畫面
-            Parent root = FXMLLoader.load(getClass().getResource("/login.fxml"));
+            // 結束這次登入快取的畫面，回到登入畫面
+            navigationManager.endSession();
             Stage stage = (Stage) logoutButton.getScene().getWindow();
-            stage.setScene(new Scene(root));
-            stage.setTitle("系統登入");
-            stage.show();
+            navigationManager.show(stage, NavigationManager.LOGIN, "系統登入");
 
         } catch (IOException e) {
             System.err.println("無法載入登入畫面：" + e.getMessage());
@@ -185,14 +167,8 @@ public class StudentMainController implements Initializable {
      */
     public void returnToMainMenu() {
         try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("學生主畫面.fxml"));
-            Parent root = loader.load();
-
             Stage stage = (Stage) browseEventsButton.getScene().getWindow();
-            Scene scene = new Scene(root);
-            stage.setScene(scene);
-            stage.setTitle("主選單");
-            stage.show();
+            navigationManager.show(stage, NavigationManager.STUDENT_MAIN, "主選單");
 
         } catch (IOException e) {
             e.printStackTrace();
@@ -1,7 +1,5 @@
+import javafx.application.Platform;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
 import javafx.scene.control.TextField;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Alert.AlertType;
@@ -9,90 +7,45 @@ import javafx.stage.Stage;
 import model.User;
 import model.Student;
 import model.Organizer;
-import java.io.FileReader;
+import model.LoginService;
+import model.AsyncDataService;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.io.IOException;
-import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-
-public class login {
+public class login implements NavigationManager.Screen {
 
     @FXML
     private TextField studentIdField;
     @FXML
     private TextField passwordField;
 
-    private ArrayList<User> userList = new ArrayList<>();
+    // 密碼驗證（背景執行緒池，限制嘗試次數）
+    private final LoginService loginService = LoginService.getInstance();
+    private final NavigationManager navigationManager = NavigationManager.getInstance();
+    private boolean loggingIn = false;
 
-    // 初始化時讀 users.csv 產生物件
+    // 初始化時在背景同時載入使用者、活動與報名資料，登入與之後的畫面不必等待讀檔
     public void initialize() {
-        loadUsersFromCSV();
+        AsyncDataService.getInstance().loadAll().exceptionally(error -> {
+            System.err.println("預先載入資料失敗：" + AsyncDataService.rootCause(error).getMessage());
+            return null;
+        });
     }
 
-    private void loadUsersFromCSV() {
-
-            try (InputStream inputStream = getClass().getResourceAsStream("/users.csv");
-                 BufferedReader br = new BufferedReader(new InputStreamReader(inputStream, "UTF-8"))) {
-
-                userList.clear(); // 清空之前的嘗試
-                String line;
-
-                // 讀取所有行並處理
-                while ((line = br.readLine()) != null) {
-                    // 跳過空行
-                    if (line.trim().isEmpty()) {
-                        continue;
-                    }
-
-                    // 處理每一行
-                    processUserLine(line);
-                }
-
-                // 檢查是否成功讀取到用戶
-                if (!userList.isEmpty()) {
-                    return; // 成功讀取，退出方法
-                }
-
-            } catch (Exception e) {
-                // 嘗試下一個編碼
-            }
-    }
-
-    private void processUserLine(String line) {
-        if (line == null || line.trim().isEmpty()) {
-            return;
-        }
-
-        try {
-            String[] data = line.split(",");
-
-            if (data.length >= 4) {
-                String id = data[0].trim();
-                String name = data[1].trim();
-                String password = data[2].trim();
-                String role = data[3].trim();
-
-                // 跳過明顯是標題的行
-                if (id.equalsIgnoreCase("id") || id.equalsIgnoreCase("學號") || id.contains("ID")) {
-                    return;
-                }
-
-                if (role.equalsIgnoreCase("s")) {
-                    userList.add(new Student(id, name, password));
-                } else if (role.equalsIgnoreCase("h")) {
-                    userList.add(new Organizer(id, name, password));
-                }
-            }
-        } catch (Exception e) {
-            // 靜默處理錯誤
-        }
+    /**
+     * 顯示登入畫面時清除上一位使用者輸入的內容，並趁使用者輸入時在背景預先載入主畫面
+     */
+    @Override
+    public void onShow() {
+        studentIdField.clear();
+        passwordField.clear();
+        setInputDisabled(false);
+        navigationManager.preload(NavigationManager.STUDENT_MAIN, NavigationManager.HOST_MAIN);
     }
 
     @FXML
     private void handleLogin() {
+        if (loggingIn) {
+            return; // 上一次登入還在驗證中
+        }
         String userId = studentIdField.getText().trim();
         String password = passwordField.getText().trim();
 
@@ -102,8 +55,23 @@ public class login {
             return;
         }
 
-        for (User u : userList) {
-            if (u.getId().equals(userId) && u.getPassword().equals(password)) {
+        // 驗證在背景進行，等待期間停用輸入欄位，避免重複送出
+        setInputDisabled(true);
+        loginService.login(userId, password).whenComplete((result, error) -> Platform.runLater(() -> {
+            setInputDisabled(false);
+            if (error != null) {
+                System.err.println("登入時發生錯誤：" + error.getMessage());
+                showAlert(AlertType.ERROR, "登入失敗", "登入時發生錯誤，請稍後再試。");
+                return;
+            }
+            handleLoginResult(result);
+        }));
+    }
+
+    private void handleLoginResult(LoginService.Result result) {
+        switch (result.getStatus()) {
+            case SUCCESS:
+                User u = result.getUser();
                 showAlert(AlertType.INFORMATION, "登入成功", "歡迎，" + u.getName() + "！");
                 if (u instanceof Student) {
                     loadStudentMain((Student) u);
@@ -111,13 +79,26 @@ public class login {
                     loadOrganizerMain((Organizer) u);
                 }
                 return;
-            }
+            case RATE_LIMITED:
+                showAlert(AlertType.WARNING, "登入受限", "嘗試次數過多，請於 "
+                        + Math.max(1, result.getRetryAfterMillis() / 1000) + " 秒後再試。");
+                break;
+            case BUSY:
+                showAlert(AlertType.WARNING, "系統忙碌", "目前登入人數眾多，請稍後再試。");
+                break;
+            default:
+                showAlert(AlertType.ERROR, "登入失敗", "學號或密碼錯誤！");
+                break;
         }
-
-        showAlert(AlertType.ERROR, "登入失敗", "學號或密碼錯誤！");
         passwordField.clear(); // 登入失敗時清除密碼欄位
     }
 
+    private void setInputDisabled(boolean disabled) {
+        loggingIn = disabled;
+        studentIdField.setDisable(disabled);
+        passwordField.setDisable(disabled);
+    }
+
     private void showAlert(AlertType type, String title, String msg) {
         Alert alert = new Alert(type);
         alert.setTitle(title);
@@ -129,16 +110,11 @@ public class login {
     // 主畫面切換，根據你的FXML配置
     private void loadStudentMain(Student student) {
         try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("學生主畫面.fxml"));
-            Parent root = loader.load();
-            StudentMainController controller = loader.getController();
-            controller.setStudent(student);
-
-            // 如果學生主畫面有活動瀏覽功能，也可以在這裡設定學生ID
-            // 或者在學生主畫面的 Controller 中處理
-
             Stage stage = (Stage) studentIdField.getScene().getWindow();
-            stage.setScene(new Scene(root));
+            navigationManager.show(stage, NavigationManager.STUDENT_MAIN, "學生系統",
+                    (StudentMainController controller) -> controller.setStudent(student));
+            // 學生接下來會用到的畫面
+            navigationManager.preload(NavigationManager.EVENT_BROWSER, NavigationManager.REGISTRATION_RECORDS);
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -147,12 +123,10 @@ public class login {
 
     private void loadOrganizerMain(Organizer organizer) {
         try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("主辦人主畫面.fxml"));
-            Parent root = loader.load();
-            HostMainController controller = loader.getController();
-            controller.setOrganizer(organizer);
             Stage stage = (Stage) studentIdField.getScene().getWindow();
-            stage.setScene(new Scene(root));
+            navigationManager.show(stage, NavigationManager.HOST_MAIN, "主辦人管理系統",
+                    (HostMainController controller) -> controller.setOrganizer(organizer));
+            navigationManager.preload(NavigationManager.EVENT_MANAGEMENT, NavigationManager.REGISTRATION_LIST);
         } catch (Exception e) {
             e.printStackTrace();
         }
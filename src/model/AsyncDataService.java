@@ -0,0 +1,192 @@
+package model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 非同步的資料存取：所有讀檔、寫檔都在背景的 I/O 執行緒上進行，回傳 CompletableFuture，
+ * 畫面只在完成後（交給 JavaFX 執行緒）更新，磁碟再慢也不會讓視窗停止回應。
+ *
+ * 使用者、活動與報名三份資料各自的鎖互不相依，因此可以同時讀取。
+ */
+public class AsyncDataService {
+
+    /**
+     * 會丟出 IOException 的檔案操作（例如匯出）
+     */
+    @FunctionalInterface
+    public interface IoAction {
+        void run() throws IOException;
+    }
+
+    // 使用者、活動、報名三份資料可同時載入
+    private static final int IO_THREADS = 3;
+
+    private static AsyncDataService instance;
+
+    private final UserDirectory userDirectory = UserDirectory.getInstance();
+    private final EventRepository eventRepository = EventRepository.getInstance();
+    private final RegistrationIndex registrationIndex = RegistrationIndex.getInstance();
+    private final RegistrationService registrationService = RegistrationService.getInstance();
+    private final RegistrationJournal registrationJournal = RegistrationJournal.getInstance();
+    private final ExecutorService io;
+
+    private AsyncDataService() {
+        AtomicInteger counter = new AtomicInteger();
+        io = Executors.newFixedThreadPool(IO_THREADS, r -> {
+            Thread thread = new Thread(r, "data-io-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static synchronized AsyncDataService getInstance() {
+        if (instance == null) {
+            instance = new AsyncDataService();
+        }
+        return instance;
+    }
+
+    /**
+     * 確保使用者、活動與報名資料都已載入（已載入的部分立即完成）
+     */
+    public CompletableFuture<Void> loadAll() {
+        return CompletableFuture.allOf(
+                CompletableFuture.runAsync(userDirectory::ensureLoaded, io),
+                CompletableFuture.runAsync(eventRepository::ensureLoaded, io),
+                CompletableFuture.runAsync(registrationIndex::ensureLoaded, io));
+    }
+
+    /**
+     * 重新整理：重新讀取使用者與活動，報名只讀取日誌新附加的部分
+     */
+    public CompletableFuture<Void> reloadAll() {
+        return CompletableFuture.allOf(
+                CompletableFuture.runAsync(userDirectory::reload, io),
+                CompletableFuture.runAsync(eventRepository::reload, io),
+                CompletableFuture.runAsync(registrationIndex::refresh, io));
+    }
+
+    public CompletableFuture<Void> loadEvents() {
+        return CompletableFuture.runAsync(eventRepository::ensureLoaded, io);
+    }
+
+    public CompletableFuture<Void> reloadEvents() {
+        return CompletableFuture.runAsync(eventRepository::reload, io);
+    }
+
+    /**
+     * 將活動與報名寫回快照（主辦人新增、修改、刪除活動後呼叫）
+     */
+    public CompletableFuture<Void> saveEvents() {
+        return run(registrationJournal::compact);
+    }
+
+    /**
+     * 主辦人修改活動後寫回快照；名額增加時先由該活動的候補名單依序遞補
+     */
+    public CompletableFuture<Void> saveEvents(String updatedEventId) {
+        return run(() -> {
+            registrationJournal.promoteWaiting(updatedEventId);
+            registrationJournal.compact();
+        });
+    }
+
+    /**
+     * 配發新的活動編號（更新編號序號檔）
+     */
+    public CompletableFuture<String> allocateEventId() {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return EventIdAllocator.getInstance().allocate();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, io);
+    }
+
+    /**
+     * 報名；allowTimeConflict 為 true 時不檢查與已報名活動的時間重疊（學生已確認）
+     */
+    public CompletableFuture<RegistrationService.Result> register(String studentId, String eventId,
+                                                                 boolean allowTimeConflict) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return registrationService.register(studentId, eventId, allowTimeConflict);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, io);
+    }
+
+    /**
+     * 取消報名，完成時的值為被取消的報名紀錄（不存在時為 null）
+     */
+    public CompletableFuture<RegistrationEntry> cancel(String studentId, String eventId) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return registrationService.cancel(studentId, eventId);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, io);
+    }
+
+    /**
+     * 加入候補名單，完成時的值為排在第幾位（已報名時為 0，仍有名額時為 {@link RegistrationService#SEATS_AVAILABLE}）
+     */
+    public CompletableFuture<Integer> joinWaitlist(String studentId, String eventId) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return registrationService.joinWaitlist(studentId, eventId);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, io);
+    }
+
+    /**
+     * 離開候補名單，完成時的值為是否原本在名單中
+     */
+    public CompletableFuture<Boolean> leaveWaitlist(String studentId, String eventId) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return registrationService.leaveWaitlist(studentId, eventId);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, io);
+    }
+
+    /**
+     * 在 I/O 執行緒上執行其他檔案操作
+     */
+    public CompletableFuture<Void> run(IoAction action) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                action.run();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, io);
+    }
+
+    /**
+     * 取出 future 失敗的原始原因（去掉 CompletionException、ExecutionException 與 UncheckedIOException 的包裝）
+     */
+    public static Throwable rootCause(Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException
+                || cause instanceof UncheckedIOException)
+                && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+}
@@ -0,0 +1,237 @@
+package model;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 資料目錄的變更監看（WatchService）。
+ * 其他程式（另一個視窗或報名服務）修改資料檔時，只重新載入受影響的資料，
+ * 再通知開啟中的畫面，不必按「重新整理」重新讀取所有檔案。
+ *
+ * 本程式自己寫入後以 {@link #recordOwnWrite(File)} 記下檔案的修改時間與大小，
+ * 收到的通知與記錄相同時表示是自己的變更，不重新載入。
+ * 重新讀檔在監看執行緒上進行，完成後才把通知交給啟動時指定的 Executor
+ * （桌面版為 JavaFX 執行緒），畫面不會等待讀檔。
+ */
+public class DataDirectoryWatcher {
+
+    /**
+     * 變更的資料種類
+     */
+    public enum Change {
+        EVENTS,
+        REGISTRATIONS,
+        USERS
+    }
+
+    // 收到通知後等待這段時間沒有新的通知才處理，連續寫入合併為一次
+    private static final long QUIET_MILLIS = 150;
+
+    private static final String EVENTS_FILE_NAME = "活動列表.csv";
+    private static final String REGISTRATIONS_FILE_NAME = "已報名.csv";
+    private static final String JOURNAL_FILE_PREFIX = "已報名.journal";
+    private static final String USERS_FILE_NAME = "users.csv";
+
+    private static DataDirectoryWatcher instance;
+
+    private final List<Consumer<Set<Change>>> listeners = new CopyOnWriteArrayList<>();
+    // 檔案的絕對路徑 -> 本程式最後一次讀寫後的 {修改時間, 大小}
+    private final Map<String, long[]> knownSignatures = new ConcurrentHashMap<>();
+
+    private WatchService watchService;
+    private Thread thread;
+    private Executor dispatcher = Runnable::run;
+
+    private DataDirectoryWatcher() {
+    }
+
+    public static synchronized DataDirectoryWatcher getInstance() {
+        if (instance == null) {
+            instance = new DataDirectoryWatcher();
+        }
+        return instance;
+    }
+
+    /**
+     * 開始監看資料檔所在的目錄，通知直接在監看執行緒上進行（無畫面的服務使用）
+     */
+    public void start() {
+        start(Runnable::run);
+    }
+
+    /**
+     * 開始監看資料檔所在的目錄，通知交給 dispatcher 執行；已啟動時不做任何事
+     */
+    public synchronized void start(Executor dispatcher) {
+        if (thread != null) {
+            return;
+        }
+        this.dispatcher = dispatcher;
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            Set<Path> directories = new LinkedHashSet<>();
+            for (String fileName : new String[] { EVENTS_FILE_NAME, REGISTRATIONS_FILE_NAME, USERS_FILE_NAME }) {
+                String path = DataFiles.resolve(fileName, "src/" + fileName);
+                File file = new File(path).getAbsoluteFile();
+                recordOwnWrite(file);
+                directories.add(file.getParentFile().toPath());
+            }
+            for (Path directory : directories) {
+                if (Files.isDirectory(directory)) {
+                    directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                            StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+                    System.out.println("監看資料目錄：" + directory);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("無法監看資料目錄，請使用重新整理：" + e.getMessage());
+            return;
+        }
+
+        thread = new Thread(this::run, "data-directory-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public synchronized void stop() {
+        if (thread == null) {
+            return;
+        }
+        thread.interrupt();
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            System.err.println("關閉資料目錄監看時發生錯誤：" + e.getMessage());
+        }
+        thread = null;
+    }
+
+    public void addListener(Consumer<Set<Change>> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Consumer<Set<Change>> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * 記下本程式寫入（或讀入）後檔案的狀態，之後收到相同狀態的通知時忽略
+     */
+    public void recordOwnWrite(File file) {
+        knownSignatures.put(file.getAbsolutePath(), signature(file));
+    }
+
+    private void run() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                Set<Path> changed = new LinkedHashSet<>();
+                collect(watchService.take(), changed);
+
+                // 等待連續寫入結束
+                WatchKey key;
+                while ((key = watchService.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    collect(key, changed);
+                }
+                process(changed);
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // 停止監看
+        }
+    }
+
+    private static void collect(WatchKey key, Set<Path> changed) {
+        Path directory = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // 通知太多而遺失時，視為所有資料檔都已變更
+                changed.add(directory.resolve(EVENTS_FILE_NAME));
+                changed.add(directory.resolve(REGISTRATIONS_FILE_NAME));
+                changed.add(directory.resolve(USERS_FILE_NAME));
+            } else {
+                changed.add(directory.resolve((Path) event.context()));
+            }
+        }
+        key.reset();
+    }
+
+    private void process(Set<Path> changedFiles) {
+        EnumSet<Change> changes = EnumSet.noneOf(Change.class);
+        for (Path path : changedFiles) {
+            Change change = classify(path.getFileName().toString());
+            if (change == null) {
+                continue;
+            }
+            File file = path.toFile().getAbsoluteFile();
+            long[] known = knownSignatures.get(file.getAbsolutePath());
+            long[] current = signature(file);
+            if (known != null && Arrays.equals(known, current)) {
+                continue; // 本程式自己的寫入
+            }
+            knownSignatures.put(file.getAbsolutePath(), current);
+            changes.add(change);
+        }
+        if (changes.isEmpty()) {
+            return;
+        }
+
+        System.out.println("偵測到其他程式修改資料：" + changes);
+        Set<Change> notified = Collections.unmodifiableSet(changes);
+        try {
+            reload(notified);
+        } catch (RuntimeException e) {
+            System.err.println("重新載入變更的資料時發生錯誤：" + e.getMessage());
+            e.printStackTrace();
+            return;
+        }
+        dispatcher.execute(() -> {
+            for (Consumer<Set<Change>> listener : listeners) {
+                try {
+                    listener.accept(notified);
+                } catch (RuntimeException e) {
+                    System.err.println("通知資料變更時發生錯誤：" + e.getMessage());
+                }
+            }
+        });
+    }
+
+    /**
+     * 只重新載入變更的資料
+     */
+    private static void reload(Set<Change> changes) {
+        if (changes.contains(Change.EVENTS)) {
+            // 重新載入活動時也會套用報名日誌中的名額
+            EventRepository.getInstance().reload();
+        }
+        if (changes.contains(Change.REGISTRATIONS)) {
+            // 只讀取日誌新附加的行；快照被改寫時才完整重新載入
+            RegistrationIndex.getInstance().refresh();
+        }
+        if (changes.contains(Change.USERS)) {
+            UserDirectory.getInstance().reloadIfChanged();
+        }
+    }
+
+    private static Change classify(String fileName) {
+        if (fileName.equals(EVENTS_FILE_NAME)) {
+            return Change.EVENTS;
+        }
+        if (fileName.equals(REGISTRATIONS_FILE_NAME) || fileName.startsWith(JOURNAL_FILE_PREFIX)) {
+            return Change.REGISTRATIONS;
+        }
+        if (fileName.equals(USERS_FILE_NAME)) {
+            return Change.USERS;
+        }
+        return null; // 暫存檔、二進位活動檔、編號序號檔等
+    }
+
+    private static long[] signature(File file) {
+        return new long[] { file.lastModified(), file.length() };
+    }
+}
@@ -0,0 +1,75 @@
+package model;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * 資料檔位置的解析。
+ * 預設依序在工作目錄、src/ 等位置尋找；以 -Dcampus.dataDir=目錄 啟動時只使用該目錄，
+ * 方便效能測試或多個實例共用同一份資料。
+ */
+public final class DataFiles {
+
+    public static final String DATA_DIR_PROPERTY = "campus.dataDir";
+
+    private DataFiles() {
+    }
+
+    /**
+     * 可能的檔案路徑（依搜尋順序）
+     */
+    public static String[] candidates(String fileName) {
+        String dataDir = System.getProperty(DATA_DIR_PROPERTY);
+        if (dataDir != null) {
+            return new String[] { new File(dataDir, fileName).getPath() };
+        }
+        return new String[] {
+                fileName,
+                "src/" + fileName,
+                "src/main/resources/" + fileName,
+                "./" + fileName,
+                "../" + fileName
+        };
+    }
+
+    /**
+     * 回傳第一個存在且可讀取的路徑，都不存在時回傳 null
+     */
+    public static String find(String fileName) {
+        for (String path : candidates(fileName)) {
+            File file = new File(path);
+            if (file.exists() && file.canRead()) {
+                return path;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 回傳既有檔案的路徑；不存在時回傳新檔案應建立的位置
+     */
+    public static String resolve(String fileName, String defaultPath) {
+        String existing = find(fileName);
+        if (existing != null) {
+            return existing;
+        }
+        String dataDir = System.getProperty(DATA_DIR_PROPERTY);
+        return dataDir != null ? new File(dataDir, fileName).getPath() : defaultPath;
+    }
+
+    /**
+     * 檔案本身的識別（inode 等）：同一個路徑被換成另一個檔案（改名取代、重建）時會不同；
+     * 檔案不存在時回傳 null
+     */
+    public static Object fileKey(File file) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+            // 不提供 fileKey 的檔案系統改用建立時間
+            return attributes.fileKey() != null ? attributes.fileKey() : attributes.creationTime();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
@@ -3,21 +3,44 @@ package model;
 import javafx.beans.property.SimpleIntegerProperty;
 import javafx.beans.property.SimpleStringProperty;
 
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * 一個活動。
+ * 資料以一般欄位保存：活動編號與地點另存 {@link KeyDictionary} 的整數代碼，
+ * 時間字串也由 KeyDictionary.TIMES 共用同一份，並另存解析後的數值時間（{@link EventTime}）；
+ * JavaFX 屬性只在表格實際顯示這一列、呼叫 xxxProperty() 時才建立；
+ * 大量活動只在記憶體中時不必為每個活動配置五個屬性物件。
+ */
 public class Event {
-    private final SimpleStringProperty id;
-    private final SimpleStringProperty title;
-    private final SimpleStringProperty location;
-    private final SimpleStringProperty time;
-    private final SimpleIntegerProperty capacity;
+    private String id;
+    // 活動編號在 KeyDictionary.EVENTS 中的代碼
+    private int key;
+    private String title;
+    // 地點只存代碼，字串由 KeyDictionary.LOCATIONS 保存
+    private int locationKey;
+    private String time;
+    // 解析後的時間（EventTime 的分鐘數），排序與範圍查詢使用；time 保留檔案中的原文
+    private int startTime;
+    // 剩餘名額；報名與取消由 SeatReservationEngine 以 CAS 增減，不取得任何鎖
+    private volatile int capacity;
     private Organizer organizer;
 
+    // 第一次要求屬性時才建立
+    private Properties properties;
+
+    private static final AtomicIntegerFieldUpdater<Event> CAPACITY =
+            AtomicIntegerFieldUpdater.newUpdater(Event.class, "capacity");
+
     // 完整建構子
     public Event(String id, String title, String location, String time, int capacity, Organizer organizer) {
-        this.id = new SimpleStringProperty(id);
-        this.title = new SimpleStringProperty(title);
-        this.location = new SimpleStringProperty(location);
-        this.time = new SimpleStringProperty(time);
-        this.capacity = new SimpleIntegerProperty(capacity);
+        this.id = KeyDictionary.EVENTS.intern(id);
+        this.key = KeyDictionary.EVENTS.encode(id);
+        this.title = title;
+        this.locationKey = KeyDictionary.LOCATIONS.encode(location);
+        this.time = internTime(time);
+        this.startTime = EventTime.parse(time);
+        this.capacity = capacity;
         this.organizer = organizer;
     }
 
@@ -28,67 +51,191 @@ public class Event {
 
     // ID 相關方法
     public String getId() {
-        return id.get();
+        return id;
     }
 
     public void setId(String id) {
-        this.id.set(id);
+        this.id = KeyDictionary.EVENTS.intern(id);
+        this.key = KeyDictionary.EVENTS.encode(id);
+        if (properties != null && properties.id != null) {
+            properties.id.set(id);
+        }
+    }
+
+    /**
+     * 活動編號的整數代碼（報名紀錄以此對應活動）
+     */
+    public int getKey() {
+        return key;
     }
 
     public SimpleStringProperty idProperty() {
-        return id;
+        Properties p = properties();
+        if (p.id == null) {
+            p.id = new SimpleStringProperty(this, "id", id) {
+                @Override
+                protected void invalidated() {
+                    Event.this.id = KeyDictionary.EVENTS.intern(get());
+                    Event.this.key = KeyDictionary.EVENTS.encode(get());
+                }
+            };
+        }
+        return p.id;
     }
 
     // 標題相關方法
     public String getTitle() {
-        return title.get();
+        return title;
     }
 
     public void setTitle(String title) {
-        this.title.set(title);
+        this.title = title;
+        if (properties != null && properties.title != null) {
+            properties.title.set(title);
+        }
     }
 
     public SimpleStringProperty titleProperty() {
-        return title;
+        Properties p = properties();
+        if (p.title == null) {
+            p.title = new SimpleStringProperty(this, "title", title) {
+                @Override
+                protected void invalidated() {
+                    Event.this.title = get();
+                }
+            };
+        }
+        return p.title;
     }
 
     // 地點相關方法
     public String getLocation() {
-        return location.get();
+        return KeyDictionary.LOCATIONS.decode(locationKey);
+    }
+
+    public int getLocationKey() {
+        return locationKey;
     }
 
     public void setLocation(String location) {
-        this.location.set(location);
+        this.locationKey = KeyDictionary.LOCATIONS.encode(location);
+        if (properties != null && properties.location != null) {
+            properties.location.set(getLocation());
+        }
     }
 
     public SimpleStringProperty locationProperty() {
-        return location;
+        Properties p = properties();
+        if (p.location == null) {
+            p.location = new SimpleStringProperty(this, "location", getLocation()) {
+                @Override
+                protected void invalidated() {
+                    Event.this.locationKey = KeyDictionary.LOCATIONS.encode(get());
+                }
+            };
+        }
+        return p.location;
     }
 
     // 時間相關方法
     public String getTime() {
-        return time.get();
+        return time;
     }
 
     public void setTime(String time) {
-        this.time.set(time);
+        this.time = internTime(time);
+        this.startTime = EventTime.parse(time);
+        if (properties != null && properties.time != null) {
+            properties.time.set(this.time);
+        }
+    }
+
+    // 大量活動共用少數幾個時段，相同的時間字串只保留一份
+    private static String internTime(String time) {
+        return time != null ? KeyDictionary.TIMES.intern(time) : null;
+    }
+
+    /**
+     * 活動開始時間（EventTime 的分鐘數）；無法解析時為 {@link EventTime#UNKNOWN}
+     */
+    public int getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * 活動佔用場地的結束時間（見 {@link EventTime#endOf}）
+     */
+    public int getEndTime() {
+        return EventTime.endOf(time, startTime);
     }
 
     public SimpleStringProperty timeProperty() {
-        return time;
+        Properties p = properties();
+        if (p.time == null) {
+            p.time = new SimpleStringProperty(this, "time", time) {
+                @Override
+                protected void invalidated() {
+                    Event.this.time = internTime(get());
+                    Event.this.startTime = EventTime.parse(get());
+                }
+            };
+        }
+        return p.time;
     }
 
     // 名額相關方法
     public int getCapacity() {
-        return capacity.get();
+        return capacity;
     }
 
     public void setCapacity(int capacity) {
-        this.capacity.set(capacity);
+        this.capacity = capacity;
+        publishCapacity();
+    }
+
+    /**
+     * 名額大於 0 時以 CAS 扣除一個，回傳扣除後的剩餘名額；已額滿回傳 -1
+     */
+    int takeSeat() {
+        int current;
+        do {
+            current = capacity;
+            if (current <= 0) {
+                return -1;
+            }
+        } while (!CAPACITY.compareAndSet(this, current, current - 1));
+        publishCapacity();
+        return current - 1;
+    }
+
+    /**
+     * 以 CAS 歸還一個名額，回傳歸還後的剩餘名額
+     */
+    int returnSeat() {
+        int current;
+        do {
+            current = capacity;
+        } while (!CAPACITY.compareAndSet(this, current, Math.max(0, current) + 1));
+        publishCapacity();
+        return Math.max(0, current) + 1;
     }
 
+    /**
+     * 名額屬性只供表格顯示，不寫回欄位：欄位由 CAS 維護，不可被較舊的顯示值蓋掉
+     */
     public SimpleIntegerProperty capacityProperty() {
-        return capacity;
+        Properties p = properties();
+        if (p.capacity == null) {
+            p.capacity = new SimpleIntegerProperty(this, "capacity", capacity);
+        }
+        return p.capacity;
+    }
+
+    private void publishCapacity() {
+        Properties p = properties;
+        if (p != null && p.capacity != null) {
+            p.capacity.set(capacity);
+        }
     }
 
     // 主辦人相關方法
@@ -100,10 +247,26 @@ public class Event {
         this.organizer = organizer;
     }
 
+    private Properties properties() {
+        if (properties == null) {
+            properties = new Properties();
+        }
+        return properties;
+    }
+
     @Override
     public String toString() {
         return String.format("Event{id='%s', title='%s', location='%s', time='%s', capacity=%d, organizer='%s'}",
                 getId(), getTitle(), getLocation(), getTime(), getCapacity(),
                 organizer != null ? organizer.getName() : "無");
     }
-}
\ No newline at end of file
+
+    // 表格顯示時才建立的屬性（各自在第一次要求時建立）
+    private static final class Properties {
+        SimpleStringProperty id;
+        SimpleStringProperty title;
+        SimpleStringProperty location;
+        SimpleStringProperty time;
+        SimpleIntegerProperty capacity;
+    }
+}
@@ -0,0 +1,163 @@
+package model;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 活動編號配發器。
+ * 下一個可用的號碼記在 活動編號.seq（與 活動列表.csv 同目錄），配發時以檔案鎖保護，
+ * 同時開啟的多個程式共用同一個資料目錄也不會拿到相同的編號；號碼只增不減，
+ * 不必每次掃描所有活動。大量匯入時可一次預留一段號碼。
+ *
+ * 第一次使用（或 .seq 落後時）會以現有活動編號中最大的號碼接續。
+ */
+public class EventIdAllocator {
+
+    private static final String SEQUENCE_FILE_NAME = "活動編號.seq";
+    private static final String ID_PREFIX = "A";
+
+    private static EventIdAllocator instance;
+
+    private final EventRepository eventRepository = EventRepository.getInstance();
+
+    // 本程式啟動後是否已比對過現有活動編號
+    private boolean seeded = false;
+
+    private EventIdAllocator() {
+    }
+
+    public static synchronized EventIdAllocator getInstance() {
+        if (instance == null) {
+            instance = new EventIdAllocator();
+        }
+        return instance;
+    }
+
+    /**
+     * 配發一個新的活動編號
+     */
+    public String allocate() throws IOException {
+        String id;
+        do {
+            id = reserve(1).next();
+        } while (id == null); // 號碼已被匯入的活動使用，再取下一個
+        return id;
+    }
+
+    /**
+     * 預留連續 count 個號碼（匯入時使用）
+     */
+    public synchronized IdBlock reserve(int count) throws IOException {
+        if (count <= 0) {
+            throw new IllegalArgumentException("預留數量必須大於 0");
+        }
+        File sequenceFile = sequenceFile();
+        try (RandomAccessFile raf = new RandomAccessFile(sequenceFile, "rw");
+             FileChannel channel = raf.getChannel()) {
+
+            // 其他程式同時配發時在此等待，讀出與寫回之間不會有人插入
+            FileLock lock = channel.lock();
+            try {
+                long next = readNext(channel);
+                if (!seeded) {
+                    next = Math.max(next, maxExistingNumber() + 1);
+                    seeded = true;
+                }
+
+                byte[] bytes = String.valueOf(next + count).getBytes(StandardCharsets.UTF_8);
+                channel.truncate(0);
+                channel.write(ByteBuffer.wrap(bytes), 0);
+                channel.force(true);
+
+                return new IdBlock(next, next + count);
+            } finally {
+                lock.release();
+            }
+        }
+    }
+
+    /**
+     * 與原本的編號規則相同：A001、A002...，超過 999 時位數自動增加
+     */
+    static String format(long number) {
+        return ID_PREFIX + String.format("%03d", number);
+    }
+
+    private static long readNext(FileChannel channel) throws IOException {
+        int size = (int) Math.min(channel.size(), 64);
+        if (size == 0) {
+            return 1;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        channel.read(buffer, 0);
+        String content = new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8).trim();
+        try {
+            return Math.max(1, Long.parseLong(content));
+        } catch (NumberFormatException e) {
+            System.err.println(SEQUENCE_FILE_NAME + " 內容無法解析，改由現有活動編號接續：" + content);
+            return 1;
+        }
+    }
+
+    /**
+     * 現有活動中 A+數字 格式的最大號碼
+     */
+    private long maxExistingNumber() {
+        eventRepository.ensureLoaded();
+        long max = 0;
+        for (Event event : eventRepository.getAll()) {
+            String id = event.getId();
+            if (id == null || !id.startsWith(ID_PREFIX) || id.length() == ID_PREFIX.length()) {
+                continue;
+            }
+            try {
+                max = Math.max(max, Long.parseLong(id.substring(ID_PREFIX.length())));
+            } catch (NumberFormatException e) {
+                // 不是自動產生的編號
+            }
+        }
+        return max;
+    }
+
+    private static File sequenceFile() {
+        String csvPath = DataFiles.find("活動列表.csv");
+        if (csvPath != null) {
+            return new File(new File(csvPath).getAbsoluteFile().getParentFile(), SEQUENCE_FILE_NAME);
+        }
+        return new File(DataFiles.resolve(SEQUENCE_FILE_NAME, SEQUENCE_FILE_NAME));
+    }
+
+    /**
+     * 一段已預留的號碼 [start, end)。
+     * 取號時略過已被使用的編號（例如匯入檔案中自帶的編號）；用完時 next() 回傳 null。
+     */
+    public static class IdBlock {
+        private long current;
+        private final long end;
+
+        IdBlock(long start, long end) {
+            this.current = start;
+            this.end = end;
+        }
+
+        public boolean hasNext() {
+            return current < end;
+        }
+
+        public String next() {
+            EventRepository repository = EventRepository.getInstance();
+            while (current < end) {
+                String id = format(current++);
+                if (!repository.containsId(id)) {
+                    return id;
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package model;
+
+import javafx.concurrent.Task;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * 在背景執行緒匯入活動 CSV。
+ * 逐行讀取（解析）→ 檢查欄位、活動編號與場地衝突（驗證）→ 暫存；讀完且未取消時才每 {@value #BATCH_SIZE} 筆
+ * 加入活動資料庫（提交），全部完成後只儲存一次。進度依已讀取的位元組計算。
+ * 提交前其他畫面看不到匯入中的活動，學生不會報名到之後被撤回的活動；取消時直接丟棄暫存，不寫入檔案。
+ */
+public class EventImportTask extends Task<EventImportTask.Summary> {
+
+    private static final int BATCH_SIZE = 5000;
+    // 每次向配發器預留的活動編號數量
+    private static final int ID_BLOCK_SIZE = 1000;
+    // 錯誤訊息最多保留的筆數（總數仍會計算）
+    private static final int MAX_REPORTED_ERRORS = 200;
+
+    private final File file;
+    private final Organizer organizer;
+    private final EventRepository eventRepository = EventRepository.getInstance();
+    private final EventIdAllocator idAllocator = EventIdAllocator.getInstance();
+
+    // 目前預留中的活動編號
+    private EventIdAllocator.IdBlock idBlock;
+    // 暫存中的活動所借用的場地；活動資料庫中的由其索引檢查
+    private final RoomBookingIndex pendingBookings = new RoomBookingIndex();
+
+    // 進入儲存階段後不再接受取消，避免檔案已寫入但畫面顯示為取消
+    private final Object cancelLock = new Object();
+    private boolean saving = false;
+
+    public EventImportTask(File file, Organizer organizer) {
+        this.file = file;
+        this.organizer = organizer;
+    }
+
+    @Override
+    protected Summary call() throws Exception {
+        eventRepository.ensureLoaded();
+
+        List<Event> staged = new ArrayList<>();
+        Set<String> importedIds = new HashSet<>();
+        List<String> errors = new ArrayList<>();
+        int errorCount = 0;
+        int lineNumber = 0;
+        long totalBytes = Math.max(1, file.length());
+
+        updateMessage("正在導入 " + file.getName());
+        try (CountingInputStream counter = new CountingInputStream(new FileInputStream(file));
+             BufferedReader br = new BufferedReader(new InputStreamReader(counter, StandardCharsets.UTF_8))) {
+
+            String line;
+            while ((line = br.readLine()) != null) {
+                lineNumber++;
+                if (lineNumber == 1) {
+                    System.out.println("導入檔案標題行：" + line);
+                    continue;
+                }
+                if (isCancelled()) {
+                    break;
+                }
+                // 每讀一行就更新進度，整份都是錯誤的檔案也看得到進度
+                updateProgress(counter.getCount(), totalBytes);
+                updateMessage("已讀取 " + (lineNumber - 1) + " 行，暫存 " + staged.size() + " 個活動");
+
+                // 解析與驗證
+                String error = null;
+                Event event = null;
+                String[] tokens = line.split(",", -1);
+                if (tokens.length < 5) {
+                    error = "資料格式不正確（欄位數量：" + tokens.length + "）";
+                } else if (tokens[1].trim().isEmpty()) {
+                    error = "標題為空";
+                } else {
+                    try {
+                        int capacity = tokens.length > 5 ? Integer.parseInt(tokens[5].trim()) : 0;
+                        String id = tokens[0].trim();
+                        // 確保ID唯一
+                        if (id.isEmpty() || eventRepository.containsId(id) || importedIds.contains(id)) {
+                            id = generateEventId(importedIds);
+                        }
+                        event = new Event(id, tokens[1].trim(), tokens[2].trim(), tokens[3].trim(),
+                                capacity, organizer);
+                        error = eventRepository.findOverlongField(event);
+                        if (error == null) {
+                            error = findRoomConflict(event);
+                        }
+                        if (error == null) {
+                            importedIds.add(id);
+                        }
+                    } catch (NumberFormatException e) {
+                        error = "名額格式錯誤：" + tokens[5].trim();
+                    }
+                }
+
+                if (error != null) {
+                    errorCount++;
+                    if (errors.size() < MAX_REPORTED_ERRORS) {
+                        errors.add("第" + lineNumber + "行：" + error);
+                    }
+                    continue;
+                }
+
+                // 暫存
+                staged.add(event);
+                pendingBookings.add(event);
+            }
+        }
+
+        synchronized (cancelLock) {
+            if (isCancelled()) {
+                System.out.println("已取消導入，捨棄 " + staged.size() + " 個尚未提交的活動");
+                return null;
+            }
+            saving = true;
+        }
+        commit(staged);
+
+        // 全部提交後只儲存一次（一併合併報名日誌）
+        updateMessage("正在儲存活動列表");
+        RegistrationJournal.getInstance().compact();
+        updateProgress(totalBytes, totalBytes);
+
+        return new Summary(staged, Math.max(0, lineNumber - 1), errorCount, errors);
+    }
+
+    /**
+     * 儲存階段開始後回傳 false，不取消
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        synchronized (cancelLock) {
+            return !saving && super.cancel(mayInterruptIfRunning);
+        }
+    }
+
+    /**
+     * 分批加入活動資料庫，每批只短暫持有活動資料庫的鎖
+     */
+    private void commit(List<Event> staged) {
+        for (int from = 0; from < staged.size(); from += BATCH_SIZE) {
+            eventRepository.addAll(staged.subList(from, Math.min(from + BATCH_SIZE, staged.size())));
+            updateMessage("已導入 " + Math.min(from + BATCH_SIZE, staged.size()) + " 個活動");
+        }
+        pendingBookings.clear();
+    }
+
+    /**
+     * 與活動資料庫或本次暫存的活動在同一場地、時段重疊時回傳錯誤訊息
+     */
+    private String findRoomConflict(Event event) {
+        List<Event> conflicts = eventRepository.findRoomConflicts(event.getLocation(), event.getTime(), null);
+        if (conflicts.isEmpty() && event.getStartTime() != EventTime.UNKNOWN) {
+            conflicts = pendingBookings.findConflicts(event.getLocation(), event.getStartTime(), event.getEndTime(), null);
+        }
+        if (conflicts.isEmpty()) {
+            return null;
+        }
+        Event other = conflicts.get(0);
+        return "場地衝突：" + event.getLocation() + " 在 " + event.getTime() + " 已有活動「"
+                + other.getTitle() + "」（" + other.getTime() + "）";
+    }
+
+    /**
+     * 從預留的號碼中取出不重複的活動編號，用完時再向配發器預留一段
+     */
+    private String generateEventId(Set<String> importedIds) throws IOException {
+        String newId;
+        do {
+            newId = idBlock != null ? idBlock.next() : null;
+            if (newId == null) {
+                idBlock = idAllocator.reserve(ID_BLOCK_SIZE);
+            }
+        } while (newId == null || importedIds.contains(newId));
+        return newId;
+    }
+
+    // 匯入結果
+    public static class Summary {
+        private final List<Event> importedEvents;
+        private final int processedLines;
+        private final int errorCount;
+        private final List<String> errors;
+
+        Summary(List<Event> importedEvents, int processedLines, int errorCount, List<String> errors) {
+            this.importedEvents = importedEvents;
+            this.processedLines = processedLines;
+            this.errorCount = errorCount;
+            this.errors = errors;
+        }
+
+        public List<Event> getImportedEvents() { return importedEvents; }
+        public int getProcessedLines() { return processedLines; }
+        public int getErrorCount() { return errorCount; }
+        public List<String> getErrors() { return errors; }
+    }
+
+    // 計算已讀取位元組數，用來估計進度
+    private static class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
+}
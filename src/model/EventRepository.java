@@ -0,0 +1,558 @@
+package model;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 全系統共用的活動資料庫。
+ * 活動列表.csv 只在第一次使用時讀取一次，之後各畫面都從記憶體中的索引查詢，
+ * 只有按下「重新整理」時才會重新讀檔。
+ * 報名造成的名額變動記錄在 {@link RegistrationJournal}，載入時會重播到快照上。
+ *
+ * 以 -Dcampus.eventStore=mapped 啟動時改用 {@link MappedEventStore}（活動列表.dat）
+ * 作為儲存後端：載入不必解析 CSV，名額變動直接原地寫入二進位檔；
+ * 活動列表.csv 仍會在儲存時輸出，且被外部修改時會自動重新匯入。
+ */
+public class EventRepository {
+
+    public static final String CSV_HEADER = "活動編號,標題,地點,時間,主辦單位,名額";
+
+    private static final String CSV_FILE_NAME = "活動列表.csv";
+    // 讀取途中日誌被合併時最多重新讀取的次數
+    private static final int MAX_RELOAD_ATTEMPTS = 3;
+
+    private static final String MAPPED_STORE_FILE_NAME = "活動列表.dat";
+    private static final boolean MAPPED_STORE_ENABLED =
+            "mapped".equalsIgnoreCase(System.getProperty("campus.eventStore"));
+
+    private static EventRepository instance;
+
+    // 依活動編號建立的主索引（保留檔案中的順序）
+    private final Map<String, Event> eventsById = new LinkedHashMap<>();
+    // 報名時以活動編號查詢活動、扣除名額使用，不取得本物件的鎖；重新載入時不清空，只替換與移除
+    private final ConcurrentHashMap<String, Event> seatLookup = new ConcurrentHashMap<>();
+    // 活動代碼（KeyDictionary.EVENTS）-> 活動，報名紀錄以代碼直接取得活動
+    private final List<Event> eventsByKey = new ArrayList<>();
+    // 依主辦單位ID建立的索引
+    private final Map<String, List<Event>> eventsByOrganizer = new HashMap<>();
+    // 依開始時間排序的索引（EventTime 的分鐘數 -> 活動），依時間列出活動時不必再排序
+    private final TreeMap<Integer, List<Event>> eventsByTime = new TreeMap<>();
+    // 各場地的借用時段，檢查場地衝突
+    private final RoomBookingIndex roomBookings = new RoomBookingIndex();
+    // 搜尋框使用的全文索引
+    private final EventSearchIndex searchIndex = new EventSearchIndex();
+
+    private String csvPath;
+    private volatile boolean loaded = false;
+
+    // 選用的記憶體對映儲存後端
+    private volatile MappedEventStore mappedStore;
+
+    private EventRepository() {
+    }
+
+    public static synchronized EventRepository getInstance() {
+        if (instance == null) {
+            instance = new EventRepository();
+        }
+        return instance;
+    }
+
+    /**
+     * 確保資料已載入；已載入過則直接使用記憶體中的資料
+     */
+    public void ensureLoaded() {
+        if (!loaded) {
+            synchronized (RegistrationJournal.getInstance()) {
+                synchronized (this) {
+                    if (!loaded) {
+                        reloadLocked();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 重新從 CSV 讀取所有活動（重新整理時使用）。
+     * 在日誌的鎖內進行（鎖的順序：日誌 -> 活動資料庫）：名額在日誌的鎖內扣除並寫入日誌，
+     * 重新建立活動物件時不會有扣在舊物件上、或已扣除但尚未寫入日誌而被重新計算掉的名額
+     */
+    public void reload() {
+        synchronized (RegistrationJournal.getInstance()) {
+            synchronized (this) {
+                reloadLocked();
+            }
+        }
+    }
+
+    private void reloadLocked() {
+        String compactingBefore = RegistrationJournal.getInstance().compactingIdentity();
+        clearIndexes();
+        csvPath = DataFiles.find(CSV_FILE_NAME);
+
+        if (MAPPED_STORE_ENABLED && loadFromMappedStore()) {
+            System.out.println("成功從 " + mappedStore.getFile().getPath() + " 載入活動資料，共 " + eventsById.size() + " 個活動");
+        } else if (csvPath != null) {
+            try (BufferedReader br = new BufferedReader(
+                    new InputStreamReader(new FileInputStream(csvPath), StandardCharsets.UTF_8))) {
+                loadFromReader(br);
+                System.out.println("成功從 " + csvPath + " 載入活動資料，共 " + eventsById.size() + " 個活動");
+            } catch (IOException e) {
+                System.err.println("讀取 " + csvPath + " 時發生錯誤：" + e.getMessage());
+                e.printStackTrace();
+            }
+        } else {
+            // 找不到檔案時改從 classpath 載入（唯讀）
+            InputStream inputStream = EventRepository.class.getResourceAsStream("/活動列表.csv");
+            if (inputStream != null) {
+                try (BufferedReader br = new BufferedReader(
+                        new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+                    loadFromReader(br);
+                    System.out.println("從資源載入活動資料，共 " + eventsById.size() + " 個活動");
+                } catch (IOException e) {
+                    System.err.println("從資源載入失敗：" + e.getMessage());
+                }
+            } else {
+                System.out.println("找不到活動列表CSV檔案，嘗試以下路徑：");
+                for (String path : DataFiles.candidates(CSV_FILE_NAME)) {
+                    System.out.println("  - " + path);
+                }
+                createEmptyCSV();
+            }
+        }
+        applyJournal();
+        if (!Objects.equals(compactingBefore, RegistrationJournal.getInstance().compactingIdentity())) {
+            // 載入途中日誌被合併，名額改以新的快照與日誌為準
+            reloadCapacities();
+        }
+        // 重新載入後已不存在的活動
+        seatLookup.keySet().retainAll(eventsById.keySet());
+        StudentTimetable.getInstance().invalidateAll();
+        loaded = true;
+    }
+
+    /**
+     * 解析 CSV 內容並建立索引（第一行為標題行）
+     */
+    public synchronized void loadFromReader(BufferedReader br) throws IOException {
+        String line;
+        boolean firstLine = true;
+        int lineNumber = 0;
+
+        while ((line = br.readLine()) != null) {
+            lineNumber++;
+
+            if (firstLine) {
+                firstLine = false;
+                continue;
+            }
+
+            String[] tokens = line.split(",", -1);
+            if (tokens.length < 5) {
+                continue;
+            }
+
+            try {
+                String id = tokens[0].trim();
+                String title = tokens[1].trim();
+                String location = tokens[2].trim();
+                String time = tokens[3].trim();
+                String organizerId = tokens[4].trim();
+                int capacity = tokens.length > 5 ? Integer.parseInt(tokens[5].trim()) : 0;
+
+                if (title.isEmpty()) {
+                    continue;
+                }
+
+                // 主辦人名稱由各畫面依需要轉換，這裡先以ID代替
+                index(new Event(id, title, location, time, capacity, Organizer.placeholder(organizerId)));
+            } catch (NumberFormatException e) {
+                System.out.println("解析數字時發生錯誤 (第" + lineNumber + "行)");
+            }
+        }
+    }
+
+    public synchronized List<Event> getAll() {
+        return new ArrayList<>(eventsById.values());
+    }
+
+    public synchronized int size() {
+        return eventsById.size();
+    }
+
+    public synchronized Event findById(String eventId) {
+        return eventsById.get(eventId);
+    }
+
+    /**
+     * 報名與取消時查詢活動（{@link SeatReservationEngine} 使用），不取得本物件的鎖；
+     * 重新載入途中查到的可能是替換前的活動
+     */
+    Event findForSeats(String eventId) {
+        return eventId != null ? seatLookup.get(eventId) : null;
+    }
+
+    /**
+     * 依活動代碼（{@link Event#getKey()}、{@link RegistrationEntry#getEventKey()}）查詢活動
+     */
+    public synchronized Event findByKey(int eventKey) {
+        return eventKey >= 0 && eventKey < eventsByKey.size() ? eventsByKey.get(eventKey) : null;
+    }
+
+    public synchronized boolean containsId(String eventId) {
+        return eventsById.containsKey(eventId);
+    }
+
+    /**
+     * 活動有欄位超過二進位活動檔紀錄長度時回傳錯誤訊息；只用 CSV 保存（未啟用二進位活動檔）時沒有長度限制，回傳 null
+     */
+    public String findOverlongField(Event event) {
+        return MAPPED_STORE_ENABLED ? MappedEventStore.findOverlongField(event) : null;
+    }
+
+    public synchronized List<Event> findByOrganizer(String organizerId) {
+        List<Event> events = eventsByOrganizer.get(organizerId);
+        return events != null ? new ArrayList<>(events) : new ArrayList<>();
+    }
+
+    /**
+     * 依開始時間排列的所有活動（時間無法解析的排在最後）
+     */
+    public synchronized List<Event> getAllByTime() {
+        List<Event> result = new ArrayList<>(eventsById.size());
+        for (List<Event> events : eventsByTime.values()) {
+            result.addAll(events);
+        }
+        return result;
+    }
+
+    /**
+     * 與指定地點、時間重疊的活動（不含 ignore，修改活動時傳入該活動本身）；
+     * 地點為空或時間無法解析時回傳空清單
+     */
+    public synchronized List<Event> findRoomConflicts(String location, String time, Event ignore) {
+        int start = EventTime.parse(time);
+        if (start == EventTime.UNKNOWN || location == null || location.trim().isEmpty()) {
+            return new ArrayList<>();
+        }
+        return roomBookings.findConflicts(location, start, EventTime.endOf(time, start), ignore);
+    }
+
+    /**
+     * 搜尋活動編號、標題、地點、時間或主辦單位包含關鍵字的活動（不分大小寫與全形半形）；
+     * 關鍵字為空時回傳全部
+     */
+    public synchronized List<Event> search(String keyword) {
+        List<Event> results = searchIndex.search(keyword);
+        return results != null ? results : getAll();
+    }
+
+    public synchronized void add(Event event) {
+        index(event);
+    }
+
+    public synchronized void addAll(Collection<Event> events) {
+        for (Event event : events) {
+            index(event);
+        }
+    }
+
+    /**
+     * 修改活動內容，並同步更新時間、場地與搜尋索引
+     */
+    public synchronized void update(Event event, String title, String location, String time, int capacity) {
+        removeFromList(eventsByTime, event.getStartTime(), event);
+        roomBookings.remove(event);
+        event.setTitle(title);
+        event.setLocation(location);
+        event.setTime(time);
+        event.setCapacity(capacity);
+        eventsByTime.computeIfAbsent(event.getStartTime(), k -> new ArrayList<>()).add(event);
+        roomBookings.add(event);
+        searchIndex.update(event);
+        // 活動時間可能改變，學生課表下次查詢時重建
+        StudentTimetable.getInstance().invalidateAll();
+    }
+
+    /**
+     * 變更活動的主辦人，並同步更新主辦單位索引
+     */
+    public synchronized void setOrganizer(Event event, Organizer organizer) {
+        removeFromList(eventsByOrganizer, organizerKey(event), event);
+        event.setOrganizer(organizer);
+        eventsByOrganizer.computeIfAbsent(organizerKey(event), k -> new ArrayList<>()).add(event);
+        searchIndex.update(event);
+    }
+
+    public synchronized void remove(Event event) {
+        eventsById.remove(event.getId());
+        seatLookup.remove(event.getId(), event);
+        if (findByKey(event.getKey()) == event) {
+            eventsByKey.set(event.getKey(), null);
+        }
+        removeFromList(eventsByOrganizer, organizerKey(event), event);
+        removeFromList(eventsByTime, event.getStartTime(), event);
+        roomBookings.remove(event);
+        searchIndex.remove(event);
+        StudentTimetable.getInstance().invalidateAll();
+    }
+
+    /**
+     * 更新記憶體中的剩餘名額（持久化由 {@link RegistrationJournal} 負責）
+     */
+    public synchronized void updateCapacity(String eventId, int newCapacity) {
+        Event event = eventsById.get(eventId);
+        if (event == null) {
+            System.out.println("找不到活動 " + eventId + "，無法更新名額！");
+            return;
+        }
+        setCapacity(event, newCapacity);
+    }
+
+    /**
+     * 剩餘名額；找不到活動時回傳 0
+     */
+    public int getRemainingSeats(String eventId) {
+        Event event = findForSeats(eventId);
+        return event != null ? Math.max(0, event.getCapacity()) : 0;
+    }
+
+    /**
+     * {@link SeatReservationEngine} 以 CAS 改變名額後呼叫：啟用二進位活動檔時同步寫入其名額欄
+     */
+    void seatsChanged(Event event) {
+        writeMappedCapacity(event);
+    }
+
+    /**
+     * 其他程式合併過日誌後（已報名.csv 被改寫）：重新讀取 活動列表.csv 中的名額再套用日誌，
+     * 不重新建立活動。合併前最後寫入的名額只留在快照裡，只套用新日誌會漏掉
+     */
+    public synchronized void reloadCapacities() {
+        for (int attempt = 1; attempt <= MAX_RELOAD_ATTEMPTS; attempt++) {
+            String compactingBefore = RegistrationJournal.getInstance().compactingIdentity();
+            readCapacities();
+            if (Objects.equals(compactingBefore, RegistrationJournal.getInstance().compactingIdentity())) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 讀取 活動列表.csv 的名額欄再套用日誌
+     */
+    private void readCapacities() {
+        String path = DataFiles.find(CSV_FILE_NAME);
+        if (path != null) {
+            try (BufferedReader br = new BufferedReader(
+                    new InputStreamReader(new FileInputStream(path), StandardCharsets.UTF_8))) {
+                String line = br.readLine(); // 標題行
+                while ((line = br.readLine()) != null) {
+                    String[] tokens = line.split(",", -1);
+                    Event event = tokens.length > 5 ? eventsById.get(tokens[0].trim()) : null;
+                    if (event != null) {
+                        try {
+                            setCapacity(event, Integer.parseInt(tokens[5].trim()));
+                        } catch (NumberFormatException e) {
+                            // 與載入時相同，略過無法解析的名額
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("重新讀取活動名額時發生錯誤：" + e.getMessage());
+            }
+        }
+        applyJournal();
+    }
+
+    /**
+     * 套用其他程式新附加的日誌行中的名額
+     */
+    public synchronized void applyCapacities(List<RegistrationJournal.Entry> entries) {
+        for (RegistrationJournal.Entry entry : entries) {
+            Event event = eventsById.get(entry.getEventId());
+            if (event != null) {
+                setCapacity(event, entry.getRemainingCapacity());
+            }
+        }
+    }
+
+    /**
+     * 將所有活動寫回 CSV
+     */
+    public synchronized void save() throws IOException {
+        String path = csvPath != null ? csvPath : DataFiles.resolve(CSV_FILE_NAME, CSV_FILE_NAME);
+
+        // 先寫入暫存檔再取代：其他程式重新讀取名額時不會讀到寫到一半的檔案
+        File tempFile = new File(path + ".tmp");
+        try (BufferedWriter bw = new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(tempFile), StandardCharsets.UTF_8))) {
+            writeTo(bw);
+        }
+        Files.move(tempFile.toPath(), new File(path).toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        csvPath = path;
+        DataDirectoryWatcher.getInstance().recordOwnWrite(new File(path));
+        if (mappedStore != null) {
+            try {
+                // 只改寫有變動的活動
+                mappedStore.replaceAll(eventsById.values());
+                mappedStore.setSourceLastModified(new File(path).lastModified());
+                mappedStore.force();
+            } catch (IllegalArgumentException | IOException e) {
+                // 沒有更新匯入時間，下次載入時會由 CSV 重新匯入（仍過長則改讀 CSV）
+                System.err.println("無法寫入二進位活動檔：" + e.getMessage());
+            }
+        }
+        System.out.println("活動資料已成功儲存到：" + path);
+    }
+
+    /**
+     * 以 活動列表.csv 格式輸出所有活動
+     */
+    public synchronized void writeTo(BufferedWriter bw) throws IOException {
+        bw.write(CSV_HEADER);
+        bw.newLine();
+
+        for (Event event : eventsById.values()) {
+            bw.write(String.format("%s,%s,%s,%s,%s,%d",
+                    event.getId() != null ? event.getId() : "",
+                    event.getTitle(),
+                    event.getLocation(),
+                    event.getTime(),
+                    organizerKey(event),
+                    event.getCapacity()));
+            bw.newLine();
+        }
+    }
+
+    /**
+     * 從 活動列表.dat 載入；CSV 比二進位檔新（或二進位檔不存在）時先重新匯入
+     */
+    private boolean loadFromMappedStore() {
+        try {
+            File storeFile = new File(csvPath != null
+                    ? new File(new File(csvPath).getAbsoluteFile().getParentFile(), MAPPED_STORE_FILE_NAME).getPath()
+                    : DataFiles.resolve(MAPPED_STORE_FILE_NAME, MAPPED_STORE_FILE_NAME));
+            if (mappedStore == null || !mappedStore.getFile().equals(storeFile)) {
+                // 第一次載入或資料目錄改變：開啟目前目錄的檔案
+                if (mappedStore != null) {
+                    mappedStore.close();
+                    mappedStore = null;
+                }
+                mappedStore = new MappedEventStore(storeFile);
+            } else {
+                // 其他程式可能新增或刪除過活動：依檔頭重建槽位表
+                mappedStore.refresh();
+            }
+            if (csvPath != null) {
+                File csvFile = new File(csvPath);
+                if (csvFile.lastModified() != mappedStore.getSourceLastModified()) {
+                    int count = mappedStore.importFromCsv(csvFile);
+                    System.out.println("已將 " + csvPath + " 匯入二進位活動檔，共 " + count + " 個活動");
+                }
+            }
+            if (csvPath == null && mappedStore.size() == 0) {
+                return false;
+            }
+            for (Event event : mappedStore.getAll()) {
+                index(event);
+            }
+            return true;
+        } catch (IOException e) {
+            System.err.println("無法使用二進位活動檔，改讀 CSV：" + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 將尚未合併的報名日誌套用到剛載入的名額上
+     */
+    private void applyJournal() {
+        for (RegistrationJournal.Entry entry : RegistrationJournal.getInstance().readEntries()) {
+            Event event = eventsById.get(entry.getEventId());
+            if (event != null) {
+                setCapacity(event, entry.getRemainingCapacity());
+            }
+        }
+    }
+
+    private void setCapacity(Event event, int capacity) {
+        event.setCapacity(capacity);
+        writeMappedCapacity(event);
+    }
+
+    /**
+     * 啟用二進位活動檔時寫入名額；寫入失敗不影響報名（日誌與 CSV 仍是完整的），下次儲存時整份改寫
+     */
+    private void writeMappedCapacity(Event event) {
+        MappedEventStore store = mappedStore;
+        if (store != null) {
+            try {
+                store.setCapacity(event.getId(), event.getCapacity());
+            } catch (IOException e) {
+                System.err.println("無法寫入二進位活動檔的名額：" + e.getMessage());
+            }
+        }
+    }
+
+    private void index(Event event) {
+        Event previous = eventsById.put(event.getId(), event);
+        seatLookup.put(event.getId(), event);
+        if (previous != null && previous != event) {
+            removeFromList(eventsByOrganizer, organizerKey(previous), previous);
+            removeFromList(eventsByTime, previous.getStartTime(), previous);
+            roomBookings.remove(previous);
+        }
+        while (eventsByKey.size() <= event.getKey()) {
+            eventsByKey.add(null);
+        }
+        eventsByKey.set(event.getKey(), event);
+        eventsByOrganizer.computeIfAbsent(organizerKey(event), k -> new ArrayList<>()).add(event);
+        eventsByTime.computeIfAbsent(event.getStartTime(), k -> new ArrayList<>()).add(event);
+        roomBookings.add(event);
+        searchIndex.add(event);
+    }
+
+    private void clearIndexes() {
+        eventsById.clear();
+        eventsByKey.clear();
+        eventsByOrganizer.clear();
+        eventsByTime.clear();
+        roomBookings.clear();
+        searchIndex.clear();
+    }
+
+    private static String organizerKey(Event event) {
+        Organizer organizer = event.getOrganizer();
+        return organizer != null && organizer.getId() != null ? organizer.getId() : "";
+    }
+
+    private static <K> void removeFromList(Map<K, List<Event>> index, K key, Event event) {
+        List<Event> events = index.get(key);
+        if (events != null) {
+            events.remove(event);
+            if (events.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    private void createEmptyCSV() {
+        String defaultPath = DataFiles.resolve(CSV_FILE_NAME, CSV_FILE_NAME);
+        try (BufferedWriter bw = new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(defaultPath), StandardCharsets.UTF_8))) {
+            bw.write(CSV_HEADER);
+            bw.newLine();
+            csvPath = defaultPath;
+            System.out.println("已創建空的CSV檔案：" + defaultPath);
+        } catch (IOException e) {
+            System.err.println("無法創建CSV檔案：" + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package model;
+
+import java.text.Normalizer;
+import java.util.*;
+
+/**
+ * 活動的全文搜尋索引（由 {@link EventRepository} 維護，不自行加鎖）。
+ * 活動編號、標題、地點、時間與主辦單位先正規化（NFKC 全形轉半形、轉小寫），
+ * 再以單字與相鄰兩字（bigram）建立倒排索引。中文沒有空白斷詞，英文與數字也用同樣的方式，
+ * 因此維持原本「包含關鍵字」的比對結果，只是不必逐筆掃描。
+ *
+ * 查詢時取關鍵字所有 bigram 的交集，再以預先正規化的文字確認，排除 bigram 順序不符的候選。
+ * 每個活動有固定的文件編號，依加入順序遞增，查詢結果因此與活動資料庫的順序一致。
+ */
+class EventSearchIndex {
+
+    // 欄位之間的分隔字元，不會出現在關鍵字中，跨欄位的 bigram 不建立索引
+    private static final char FIELD_SEPARATOR = '\u0001';
+    // 刪除或修改累積的過期資料超過此數量（且超過有效文件數）時重建索引
+    private static final int REBUILD_THRESHOLD = 1024;
+
+    // gram -> 依文件編號排序的文件列表
+    private final Map<Integer, IntList> postings = new HashMap<>();
+    private final Map<String, Integer> docByEventId = new HashMap<>();
+    private Event[] docs = new Event[1024];
+    private String[] texts = new String[1024];
+    private int docCount = 0;
+    private int staleCount = 0;
+
+    /**
+     * 加入活動；同一個活動編號已存在時取代原本的內容，保留原本的順序
+     */
+    void add(Event event) {
+        Integer existing = docByEventId.get(event.getId());
+        if (existing != null) {
+            docs[existing] = event;
+            update(event);
+            return;
+        }
+        int doc = docCount++;
+        ensureCapacity(docCount);
+        String text = documentText(event);
+        docs[doc] = event;
+        texts[doc] = text;
+        docByEventId.put(event.getId(), doc);
+        // 新文件的編號最大，直接加在列表尾端即維持排序
+        for (int gram : grams(text)) {
+            postings.computeIfAbsent(gram, k -> new IntList()).add(doc);
+        }
+    }
+
+    /**
+     * 活動內容（標題、地點、時間或主辦單位）修改後重新建立索引
+     */
+    void update(Event event) {
+        Integer doc = docByEventId.get(event.getId());
+        if (doc == null || docs[doc] != event) {
+            return; // 不在資料庫中的活動（例如已刪除）不建立索引
+        }
+        String oldText = texts[doc];
+        String newText = documentText(event);
+        if (newText.equals(oldText)) {
+            return;
+        }
+        // 舊的 gram 留在索引中，查詢時以新文字確認即可排除；只補上新的 gram
+        Set<Integer> oldGrams = grams(oldText);
+        for (int gram : grams(newText)) {
+            if (!oldGrams.contains(gram)) {
+                postings.computeIfAbsent(gram, k -> new IntList()).insertSorted(doc);
+            }
+        }
+        texts[doc] = newText;
+        staleCount++;
+        rebuildIfNeeded();
+    }
+
+    void remove(Event event) {
+        Integer doc = docByEventId.remove(event.getId());
+        if (doc != null) {
+            docs[doc] = null;
+            texts[doc] = null;
+            staleCount++;
+            rebuildIfNeeded();
+        }
+    }
+
+    void clear() {
+        postings.clear();
+        docByEventId.clear();
+        docs = new Event[1024];
+        texts = new String[1024];
+        docCount = 0;
+        staleCount = 0;
+    }
+
+    /**
+     * 回傳欄位中包含關鍵字的活動（依加入順序）；關鍵字為空時回傳 null，表示不過濾
+     */
+    List<Event> search(String keyword) {
+        String query = keyword != null ? normalize(keyword.trim()) : "";
+        if (query.isEmpty()) {
+            return null;
+        }
+
+        Set<Integer> queryGrams = query.length() == 1 ? Collections.singleton((int) query.charAt(0)) : bigrams(query);
+        List<IntList> lists = new ArrayList<>(queryGrams.size());
+        for (int gram : queryGrams) {
+            IntList list = postings.get(gram);
+            if (list == null) {
+                return new ArrayList<>();
+            }
+            lists.add(list);
+        }
+        if (lists.isEmpty()) {
+            return new ArrayList<>();
+        }
+        // 從最短的列表開始取交集
+        lists.sort(Comparator.comparingInt(IntList::size));
+
+        List<Event> results = new ArrayList<>();
+        IntList smallest = lists.get(0);
+        for (int i = 0; i < smallest.size(); i++) {
+            int doc = smallest.get(i);
+            if (docs[doc] == null) {
+                continue;
+            }
+            boolean inAll = true;
+            for (int j = 1; j < lists.size() && inAll; j++) {
+                inAll = lists.get(j).contains(doc);
+            }
+            if (inAll && texts[doc].contains(query)) {
+                results.add(docs[doc]);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * 正規化：NFKC（全形英數轉半形）後轉小寫
+     */
+    static String normalize(String value) {
+        if (value == null || value.isEmpty()) {
+            return "";
+        }
+        return Normalizer.normalize(value, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+    }
+
+    private static String documentText(Event event) {
+        Organizer organizer = event.getOrganizer();
+        return normalize(event.getId()) + FIELD_SEPARATOR
+                + normalize(event.getTitle()) + FIELD_SEPARATOR
+                + normalize(event.getLocation()) + FIELD_SEPARATOR
+                + normalize(event.getTime()) + FIELD_SEPARATOR
+                + (organizer != null ? normalize(organizer.getId()) + FIELD_SEPARATOR
+                        + normalize(organizer.getName()) : "");
+    }
+
+    /**
+     * 文字中的所有單字與相鄰兩字；單字以字元值表示，bigram 以 (前字 << 16 | 後字) 表示
+     */
+    private static Set<Integer> grams(String text) {
+        Set<Integer> grams = new HashSet<>();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c <= FIELD_SEPARATOR) {
+                continue;
+            }
+            grams.add((int) c);
+            if (i + 1 < text.length()) {
+                char next = text.charAt(i + 1);
+                if (next > FIELD_SEPARATOR) {
+                    grams.add(c << 16 | next);
+                }
+            }
+        }
+        return grams;
+    }
+
+    /**
+     * 關鍵字只需要 bigram：單字已包含在 bigram 中
+     */
+    private static Set<Integer> bigrams(String query) {
+        Set<Integer> grams = new HashSet<>();
+        for (int i = 0; i + 1 < query.length(); i++) {
+            grams.add(query.charAt(i) << 16 | query.charAt(i + 1));
+        }
+        return grams;
+    }
+
+    private void rebuildIfNeeded() {
+        if (staleCount < REBUILD_THRESHOLD || staleCount < docByEventId.size()) {
+            return;
+        }
+        Event[] liveDocs = Arrays.copyOf(docs, docCount);
+        clear();
+        for (Event event : liveDocs) {
+            if (event != null) {
+                add(event);
+            }
+        }
+    }
+
+    private void ensureCapacity(int size) {
+        if (size > docs.length) {
+            int newLength = Math.max(size, docs.length * 2);
+            docs = Arrays.copyOf(docs, newLength);
+            texts = Arrays.copyOf(texts, newLength);
+        }
+    }
+
+    // 可變長度的遞增 int 陣列
+    private static class IntList {
+        private int[] values = new int[4];
+        private int size = 0;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void insertSorted(int value) {
+            int position = Arrays.binarySearch(values, 0, size, value);
+            if (position >= 0) {
+                return;
+            }
+            position = -position - 1;
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            System.arraycopy(values, position, values, position + 1, size - position);
+            values[position] = value;
+            size++;
+        }
+
+        boolean contains(int value) {
+            return Arrays.binarySearch(values, 0, size, value) >= 0;
+        }
+
+        int get(int index) {
+            return values[index];
+        }
+
+        int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package model;
+
+/**
+ * 單一活動的報名統計（唯讀快照）。
+ * 報名人數取自 {@link RegistrationIndex} 的活動索引，剩餘名額取自 {@link SeatReservationEngine}（活動資料庫中的名額），
+ * 兩者在每次報名與取消時同步更新，因此查詢不必掃描任何清單。
+ * 活動列表.csv 的名額欄記錄的是剩餘名額，總名額 = 已報名 + 剩餘。
+ */
+public class EventStatistics {
+
+    private final String eventId;
+    private final int registered;
+    private final int remaining;
+
+    EventStatistics(String eventId, int registered, int remaining) {
+        this.eventId = eventId;
+        this.registered = registered;
+        this.remaining = remaining;
+    }
+
+    public String getEventId() { return eventId; }
+    public int getRegistered() { return registered; }
+    public int getRemaining() { return remaining; }
+    public int getCapacity() { return registered + remaining; }
+    public boolean isFull() { return remaining <= 0; }
+}
@@ -0,0 +1,133 @@
+package model;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.time.temporal.ChronoField;
+
+/**
+ * 活動時間的數值表示：以 1970-01-01 00:00 起算的「當地時間分鐘數」存成一個 int，
+ * 可以直接比較先後、排序與做範圍查詢。
+ *
+ * 活動列表.csv 的時間有 "yyyy-MM-dd HH:mm" 與只有日期的 "yyyy-MM-dd" 兩種（只有日期時視為當天 00:00），
+ * 也接受以 / 分隔或月、日只有一位數的寫法；無法解析的時間為 {@link #UNKNOWN}，排在所有時間之後。
+ */
+public final class EventTime {
+
+    /** 無法解析的時間 */
+    public static final int UNKNOWN = Integer.MAX_VALUE;
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    // 活動只有開始時間，有時、分的活動預設佔用場地的時間（分鐘）
+    public static final int DEFAULT_DURATION_MINUTES = 120;
+
+    // 非標準寫法的備用解析（例如 2025/6/2 9:00）
+    private static final DateTimeFormatter LENIENT_FORMAT = new DateTimeFormatterBuilder()
+            .appendPattern("uuuu[-][/]M[-][/]d")
+            .optionalStart().appendLiteral(' ').appendPattern("H:mm").optionalEnd()
+            .optionalStart().appendLiteral('T').appendPattern("H:mm").optionalEnd()
+            .parseDefaulting(ChronoField.HOUR_OF_DAY, 0)
+            .parseDefaulting(ChronoField.MINUTE_OF_HOUR, 0)
+            .toFormatter()
+            .withResolverStyle(ResolverStyle.STRICT);
+
+    private EventTime() {
+    }
+
+    /**
+     * 解析活動時間；無法解析時回傳 {@link #UNKNOWN}
+     */
+    public static int parse(String text) {
+        if (text == null) {
+            return UNKNOWN;
+        }
+        String value = text.trim();
+        int fast = parseStandard(value);
+        if (fast != UNKNOWN || value.isEmpty()) {
+            return fast;
+        }
+        try {
+            return of(LocalDateTime.parse(value, LENIENT_FORMAT));
+        } catch (DateTimeParseException e) {
+            return UNKNOWN;
+        }
+    }
+
+    public static int of(LocalDateTime dateTime) {
+        return (int) (dateTime.toEpochSecond(ZoneOffset.UTC) / 60);
+    }
+
+    /**
+     * 轉回日期時間；{@link #UNKNOWN} 回傳 null
+     */
+    public static LocalDateTime toLocalDateTime(int minutes) {
+        return minutes == UNKNOWN ? null : LocalDateTime.ofEpochSecond(minutes * 60L, 0, ZoneOffset.UTC);
+    }
+
+    /**
+     * 活動佔用場地到何時：有時、分的活動佔用 {@link #DEFAULT_DURATION_MINUTES} 分鐘，
+     * 只有日期的活動佔用一整天；start 為 {@link #UNKNOWN} 時回傳 UNKNOWN
+     */
+    public static int endOf(String text, int start) {
+        if (start == UNKNOWN) {
+            return UNKNOWN;
+        }
+        boolean hasTimeOfDay = text != null && text.indexOf(':') >= 0;
+        return start + (hasTimeOfDay ? DEFAULT_DURATION_MINUTES : MINUTES_PER_DAY);
+    }
+
+    /**
+     * 目前的當地時間
+     */
+    public static int now() {
+        return of(LocalDateTime.now());
+    }
+
+    public static int plusDays(int minutes, int days) {
+        long result = minutes + (long) days * MINUTES_PER_DAY;
+        return (int) Math.min(result, UNKNOWN - 1);
+    }
+
+    /**
+     * 不經過 DateTimeFormatter 解析最常見的 "yyyy-MM-dd" 與 "yyyy-MM-dd HH:mm"；其他寫法回傳 UNKNOWN
+     */
+    private static int parseStandard(String value) {
+        int length = value.length();
+        if ((length != 10 && length != 16) || value.charAt(4) != '-' || value.charAt(7) != '-') {
+            return UNKNOWN;
+        }
+        int year = digits(value, 0, 4);
+        int month = digits(value, 5, 2);
+        int day = digits(value, 8, 2);
+        int hour = 0;
+        int minute = 0;
+        if (length == 16) {
+            if (value.charAt(10) != ' ' || value.charAt(13) != ':') {
+                return UNKNOWN;
+            }
+            hour = digits(value, 11, 2);
+            minute = digits(value, 14, 2);
+        }
+        if (year < 0 || month < 1 || month > 12 || day < 1 || hour < 0 || hour > 23 || minute < 0 || minute > 59
+                || day > LocalDate.of(year, month, 1).lengthOfMonth()) {
+            return UNKNOWN;
+        }
+        return (int) (LocalDate.of(year, month, day).toEpochDay() * MINUTES_PER_DAY + hour * 60 + minute);
+    }
+
+    private static int digits(String value, int start, int count) {
+        int result = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+}
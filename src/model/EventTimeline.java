@@ -0,0 +1,79 @@
+package model;
+
+import java.util.*;
+
+/**
+ * 一條依開始時間排序的活動時間軸（場地的借用紀錄、學生的課表共用），不自行加鎖。
+ * 記錄加入過的最長佔用時間：與 [from, to) 重疊的活動一定在 (from - 最長佔用時間, to) 之間開始，
+ * 因此只需取出這一段，查詢為 O(log n + k)。時間無法解析的活動不列入。
+ */
+class EventTimeline {
+
+    // 開始時間 -> 活動
+    private final TreeMap<Integer, List<Event>> byStart = new TreeMap<>();
+    // 曾加入的最長佔用時間（分鐘），只增不減
+    private int longest = 0;
+
+    /**
+     * 加入活動；已在時間軸上時不重複加入
+     */
+    void add(Event event) {
+        if (event.getStartTime() == EventTime.UNKNOWN) {
+            return;
+        }
+        List<Event> events = byStart.computeIfAbsent(event.getStartTime(), k -> new ArrayList<>(1));
+        if (!events.contains(event)) {
+            events.add(event);
+            longest = Math.max(longest, event.getEndTime() - event.getStartTime());
+        }
+    }
+
+    /**
+     * 移除活動；必須在修改活動時間之前呼叫
+     */
+    void remove(Event event) {
+        List<Event> events = byStart.get(event.getStartTime());
+        if (events != null) {
+            events.remove(event);
+            if (events.isEmpty()) {
+                byStart.remove(event.getStartTime());
+            }
+        }
+    }
+
+    /**
+     * 與 [from, to) 重疊的活動（不含 ignore），依開始時間排列
+     */
+    List<Event> findConflicts(int from, int to, Event ignore) {
+        List<Event> conflicts = new ArrayList<>();
+        for (List<Event> events : candidates(from, to)) {
+            for (Event event : events) {
+                if (event != ignore && event.getEndTime() > from) {
+                    conflicts.add(event);
+                }
+            }
+        }
+        return conflicts;
+    }
+
+    /**
+     * 是否有與 [from, to) 重疊的活動（不含 ignore），找到第一個就停止
+     */
+    boolean hasConflict(int from, int to, Event ignore) {
+        for (List<Event> events : candidates(from, to)) {
+            for (Event event : events) {
+                if (event != ignore && event.getEndTime() > from) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private Collection<List<Event>> candidates(int from, int to) {
+        if (from >= to || from == EventTime.UNKNOWN) {
+            return Collections.emptyList();
+        }
+        return byStart.subMap(from - longest, false, to, false).values();
+    }
+}
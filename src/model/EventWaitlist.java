@@ -0,0 +1,168 @@
+package model;
+
+import java.util.*;
+
+/**
+ * 單一活動的候補名單（先到先得，由 {@link RegistrationIndex} 維護，不自行加鎖）。
+ * 每位候補者依加入順序拿到遞增的號碼牌，號碼牌上「仍在候補」的旗標以 Fenwick 樹（樹狀陣列）累計：
+ * 加入、離開與查詢「目前第幾位」都是 O(log n)，遞補時從隊首取出為攤銷 O(1)，
+ * 名單有上千人候補、中途有人離開也不必逐一移動。
+ */
+class EventWaitlist {
+
+    private static final int EMPTY = KeyDictionary.NONE;
+    private static final int INITIAL_CAPACITY = 8;
+
+    // 號碼牌 -> 學生代碼（已離開或已遞補為 EMPTY）與加入時間
+    private int[] students = new int[INITIAL_CAPACITY];
+    private String[] joinTimes = new String[INITIAL_CAPACITY];
+    // Fenwick 樹，tree[i] 累計號碼牌 i - 1 往前一段的候補人數
+    private int[] tree = new int[INITIAL_CAPACITY + 1];
+    // 號碼牌 [head, tail) 之間可能還有人候補
+    private int head = 0;
+    private int tail = 0;
+    // 學生代碼 -> 號碼牌
+    private final Map<Integer, Integer> tickets = new HashMap<>();
+
+    /**
+     * 排到隊尾；已在名單中時回傳 false
+     */
+    boolean add(int studentKey, String joinTime) {
+        if (tickets.containsKey(studentKey)) {
+            return false;
+        }
+        if (tail == students.length) {
+            grow();
+        }
+        int ticket = tail++;
+        students[ticket] = studentKey;
+        joinTimes[ticket] = joinTime;
+        update(ticket, 1);
+        tickets.put(studentKey, ticket);
+        return true;
+    }
+
+    /**
+     * 離開名單；不在名單中時回傳 false
+     */
+    boolean remove(int studentKey) {
+        Integer ticket = tickets.remove(studentKey);
+        if (ticket == null) {
+            return false;
+        }
+        students[ticket] = EMPTY;
+        joinTimes[ticket] = null;
+        update(ticket, -1);
+        while (head < tail && students[head] == EMPTY) {
+            head++;
+        }
+        return true;
+    }
+
+    /**
+     * 號碼牌 fromTicket（含）之後第一位仍在候補者的號碼牌；沒有時回傳 -1。
+     * 號碼牌只在 {@link #add} 擴充時重新編號，離開與遞補不影響其他人的號碼牌，
+     * 因此遞補時可以由隊首逐一往後取，不必複製整份名單
+     */
+    int next(int fromTicket) {
+        for (int ticket = Math.max(fromTicket, head); ticket < tail; ticket++) {
+            if (students[ticket] != EMPTY) {
+                return ticket;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 號碼牌上的學生代碼；已離開或已遞補時為 {@link KeyDictionary#NONE}
+     */
+    int studentAt(int ticket) {
+        return students[ticket];
+    }
+
+    /**
+     * 學生排在第幾位（從 1 起算）；不在名單中時回傳 0
+     */
+    int position(int studentKey) {
+        Integer ticket = tickets.get(studentKey);
+        return ticket != null ? prefixSum(ticket) : 0;
+    }
+
+    /**
+     * 學生加入候補的時間；不在名單中時回傳 null
+     */
+    String joinTime(int studentKey) {
+        Integer ticket = tickets.get(studentKey);
+        return ticket != null ? joinTimes[ticket] : null;
+    }
+
+    int size() {
+        return tickets.size();
+    }
+
+    boolean isEmpty() {
+        return tickets.isEmpty();
+    }
+
+    /**
+     * 依排隊順序逐一處理（學生代碼、加入時間）
+     */
+    void forEach(WaiterConsumer consumer) {
+        for (int ticket = head; ticket < tail; ticket++) {
+            if (students[ticket] != EMPTY) {
+                consumer.accept(students[ticket], joinTimes[ticket]);
+            }
+        }
+    }
+
+    interface WaiterConsumer {
+        void accept(int studentKey, String joinTime);
+    }
+
+    /**
+     * 號碼牌用完時：前面一半以上已遞補或離開就把仍在候補的人往前搬，否則加倍；兩者都重新編號並重建樹
+     */
+    private void grow() {
+        int capacity = students.length;
+        if (head < capacity / 2) {
+            capacity *= 2;
+        }
+        int[] movedStudents = new int[capacity];
+        String[] movedTimes = new String[capacity];
+        int count = 0;
+        for (int ticket = head; ticket < tail; ticket++) {
+            if (students[ticket] != EMPTY) {
+                movedStudents[count] = students[ticket];
+                movedTimes[count] = joinTimes[ticket];
+                tickets.put(students[ticket], count);
+                count++;
+            }
+        }
+        students = movedStudents;
+        joinTimes = movedTimes;
+        head = 0;
+        tail = count;
+        // 前 count 個號碼牌都在候補：tree[i] = i 往前 (i & -i) 個號碼牌中落在 [0, count) 的數量
+        tree = new int[capacity + 1];
+        for (int i = 1; i <= capacity; i++) {
+            tree[i] = Math.max(0, Math.min(i, count) - (i - (i & -i)));
+        }
+    }
+
+    private void update(int ticket, int delta) {
+        for (int i = ticket + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    /**
+     * 號碼牌 0..ticket 中仍在候補的人數
+     */
+    private int prefixSum(int ticket) {
+        int sum = 0;
+        for (int i = ticket + 1; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,85 @@
+package model;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 字串編號字典：把活動編號、學號、主辦人編號、地點與時間轉成從 0 開始連續的整數代碼。
+ * 同一個字串在整個程式中只保留一份（大量重複的值只需 {@link #intern}），
+ * 報名與活動之間的對應改以整數比較、以代碼當陣列索引查詢。
+ *
+ * 代碼一經配發就不會改變（重新載入資料也沿用），因此可以安全地存放在報名紀錄等物件中；
+ * 字典只會增加，大小等於曾經出現過的不同字串數量。
+ */
+public final class KeyDictionary {
+
+    public static final KeyDictionary EVENTS = new KeyDictionary();
+    public static final KeyDictionary STUDENTS = new KeyDictionary();
+    public static final KeyDictionary ORGANIZERS = new KeyDictionary();
+    public static final KeyDictionary LOCATIONS = new KeyDictionary();
+    public static final KeyDictionary TIMES = new KeyDictionary();
+
+    /** 查無此字串時 {@link #lookup} 回傳的值 */
+    public static final int NONE = -1;
+
+    private final ConcurrentHashMap<String, Integer> codes = new ConcurrentHashMap<>();
+    // 代碼 -> 字串；擴充時換成新陣列，讀取不必取得鎖
+    private volatile String[] values = new String[64];
+    private int size = 0;
+
+    private KeyDictionary() {
+    }
+
+    /**
+     * 取得字串的代碼，第一次出現時配發新代碼（null 視為空字串）
+     */
+    public int encode(String value) {
+        String key = value != null ? value : "";
+        Integer code = codes.get(key);
+        if (code != null) {
+            return code;
+        }
+        synchronized (this) {
+            code = codes.get(key);
+            if (code != null) {
+                return code;
+            }
+            String[] current = values;
+            if (size == current.length) {
+                current = Arrays.copyOf(current, size * 2);
+            }
+            current[size] = key;
+            values = current;
+            // 先寫入陣列再公開代碼：拿到代碼的執行緒一定讀得到字串
+            codes.put(key, size);
+            return size++;
+        }
+    }
+
+    /**
+     * 查詢字串的代碼，不配發新代碼；從未出現過時回傳 {@link #NONE}
+     */
+    public int lookup(String value) {
+        Integer code = codes.get(value != null ? value : "");
+        return code != null ? code : NONE;
+    }
+
+    /**
+     * 代碼對應的字串
+     */
+    public String decode(int code) {
+        return values[code];
+    }
+
+    /**
+     * 字典中與 value 內容相同的那一份字串（第一次出現時放入字典）
+     */
+    public String intern(String value) {
+        int code = encode(value);
+        return values[code];
+    }
+
+    public int size() {
+        return codes.size();
+    }
+}
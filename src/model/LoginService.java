@@ -0,0 +1,212 @@
+package model;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 登入驗證。
+ * 密碼雜湊刻意很慢，因此驗證只在固定大小的執行緒池中進行（保留一個處理器給其他請求），
+ * 排隊數量有上限，滿了就立即回覆「系統忙碌」，不讓登入尖峰拖慢報名與瀏覽；
+ * 在佇列中等太久的請求（使用者多半已放棄）也不再計算。
+ *
+ * 同一個帳號從同一個用戶端同時只驗證一次，連續失敗 {@value #MAX_FAILURES} 次後鎖定該用戶端
+ * {@value #LOCK_MILLIS} 毫秒，猜密碼不會佔用驗證的處理器時間；
+ * 鎖定以「帳號 + 用戶端」區分，別人猜密碼不會讓本人也無法登入。
+ */
+public class LoginService {
+
+    public enum Status {
+        SUCCESS,
+        INVALID_CREDENTIALS,
+        RATE_LIMITED,
+        BUSY
+    }
+
+    /**
+     * 登入結果；成功時包含使用者，被限制時包含建議的重試等待時間
+     */
+    public static class Result {
+        private final Status status;
+        private final User user;
+        private final long retryAfterMillis;
+
+        Result(Status status, User user, long retryAfterMillis) {
+            this.status = status;
+            this.user = user;
+            this.retryAfterMillis = retryAfterMillis;
+        }
+
+        public Status getStatus() { return status; }
+        public User getUser() { return user; }
+        public long getRetryAfterMillis() { return retryAfterMillis; }
+    }
+
+    private static final int QUEUE_CAPACITY = 1024;
+    // 在佇列中超過此時間才輪到的請求直接回覆忙碌
+    private static final long MAX_QUEUE_WAIT_MILLIS = 5000;
+    private static final long BUSY_RETRY_MILLIS = 1000;
+    private static final int MAX_FAILURES = 5;
+    private static final long LOCK_MILLIS = 60_000;
+    // 追蹤的帳號數超過此數量時清除已過期的紀錄
+    private static final int PRUNE_THRESHOLD = 10_000;
+    // 桌面版視窗的用戶端識別
+    private static final String LOCAL_CLIENT = "local";
+
+    private static LoginService instance;
+
+    private final UserDirectory userDirectory = UserDirectory.getInstance();
+    private final ThreadPoolExecutor verifier;
+    // 帳號 + 用戶端 -> 嘗試紀錄
+    private final ConcurrentHashMap<String, Attempts> attemptsByClient = new ConcurrentHashMap<>();
+    // 帳號不存在時也計算一次雜湊，回應時間不會透露帳號是否存在
+    private final String dummyHash = PasswordHasher.hash("dummy-password");
+
+    private LoginService() {
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        AtomicInteger counter = new AtomicInteger();
+        verifier = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), r -> {
+                    Thread thread = new Thread(r, "login-verifier-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public static synchronized LoginService getInstance() {
+        if (instance == null) {
+            instance = new LoginService();
+        }
+        return instance;
+    }
+
+    /**
+     * 本機視窗登入
+     */
+    public CompletableFuture<Result> login(String userId, String password) {
+        return login(userId, password, LOCAL_CLIENT);
+    }
+
+    /**
+     * 非同步驗證帳號密碼，不會阻塞呼叫的執行緒（JavaFX 執行緒或 HTTP 請求）。
+     * client 為用戶端識別（例如來源位址），失敗次數與鎖定依帳號與用戶端分開計算
+     */
+    public CompletableFuture<Result> login(String userId, String password, String client) {
+        String id = userId != null ? userId.trim() : "";
+        String attemptsKey = id + "\n" + (client != null ? client : LOCAL_CLIENT);
+        long now = System.currentTimeMillis();
+
+        Attempts attempts;
+        while (true) {
+            attempts = attemptsByClient.computeIfAbsent(attemptsKey, k -> new Attempts());
+            synchronized (attempts) {
+                if (attempts.removed) {
+                    continue; // 剛被清除，改用新的紀錄
+                }
+                if (attempts.lockedUntil > now) {
+                    return CompletableFuture.completedFuture(
+                            new Result(Status.RATE_LIMITED, null, attempts.lockedUntil - now));
+                }
+                if (attempts.inFlight) {
+                    return CompletableFuture.completedFuture(
+                            new Result(Status.RATE_LIMITED, null, BUSY_RETRY_MILLIS));
+                }
+                attempts.inFlight = true;
+                break;
+            }
+        }
+        Attempts current = attempts;
+
+        CompletableFuture<Result> future = new CompletableFuture<>();
+        long submitted = System.nanoTime();
+        try {
+            verifier.execute(() -> {
+                Result result = null;
+                RuntimeException failure = null;
+                try {
+                    long waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - submitted);
+                    result = waited > MAX_QUEUE_WAIT_MILLIS
+                            ? new Result(Status.BUSY, null, BUSY_RETRY_MILLIS)
+                            : verify(id, password, current);
+                } catch (RuntimeException e) {
+                    failure = e;
+                }
+                // 先解除進行中的標記再通知呼叫者，呼叫者收到結果後可立即再次登入
+                synchronized (current) {
+                    current.inFlight = false;
+                }
+                if (failure != null) {
+                    future.completeExceptionally(failure);
+                } else {
+                    future.complete(result);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            synchronized (current) {
+                current.inFlight = false;
+            }
+            future.complete(new Result(Status.BUSY, null, BUSY_RETRY_MILLIS));
+        }
+
+        if (attemptsByClient.size() > PRUNE_THRESHOLD) {
+            pruneExpired(now);
+        }
+        return future;
+    }
+
+    /**
+     * 目前排隊等待驗證的請求數
+     */
+    public int getQueuedCount() {
+        return verifier.getQueue().size();
+    }
+
+    private Result verify(String userId, String password, Attempts attempts) {
+        User user = userDirectory.findById(userId);
+        String stored = user != null ? user.getPassword() : dummyHash;
+        boolean valid = PasswordHasher.verify(password, stored) && user != null;
+
+        if (!valid) {
+            synchronized (attempts) {
+                attempts.failures++;
+                if (attempts.failures >= MAX_FAILURES) {
+                    attempts.failures = 0;
+                    attempts.lockedUntil = System.currentTimeMillis() + LOCK_MILLIS;
+                    System.out.println("帳號 " + userId + " 登入失敗次數過多，暫時鎖定此用戶端");
+                }
+            }
+            return new Result(Status.INVALID_CREDENTIALS, null, 0);
+        }
+
+        synchronized (attempts) {
+            attempts.failures = 0;
+        }
+        // 明碼或舊成本的雜湊改為目前設定的雜湊
+        if (PasswordHasher.needsRehash(stored)) {
+            userDirectory.updatePassword(userId, PasswordHasher.hash(password));
+        }
+        return new Result(Status.SUCCESS, user, 0);
+    }
+
+    private void pruneExpired(long now) {
+        Iterator<Map.Entry<String, Attempts>> iterator = attemptsByClient.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Attempts attempts = iterator.next().getValue();
+            synchronized (attempts) {
+                if (!attempts.inFlight && attempts.failures == 0 && attempts.lockedUntil <= now) {
+                    attempts.removed = true;
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    // 單一帳號的嘗試紀錄（以物件本身為鎖）
+    private static class Attempts {
+        int failures;
+        long lockedUntil;
+        boolean inFlight;
+        boolean removed;
+    }
+}
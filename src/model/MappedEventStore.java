@@ -0,0 +1,425 @@
+package model;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * 以記憶體對映檔案保存活動的儲存後端（選用）。
+ * 每個活動是一筆固定長度的二進位紀錄，名額放在紀錄內固定的位移，
+ * 更新名額只需在原地寫入一個 int，不必重寫整份 活動列表.csv。
+ * 活動編號透過 ID -> 槽位 的對照表找到紀錄位置。
+ *
+ * 由 活動列表.csv 匯入，儲存時只改寫有變動的槽位，主辦人仍然拿到 CSV。
+ * 欄位長度固定，超過長度的活動在新增與匯入時就被拒絕（見 {@link #findOverlongField}），不會被截斷。
+ *
+ * 多個程式可能共用同一個檔案：所有讀寫都在檔頭的檔案鎖內進行，並先依檔頭的槽位數重建槽位表
+ * （改名額時只確認該槽位仍是同一個活動），不會漏掉其他程式新增的槽位、寫到被搬走的槽位或重複配置槽位。
+ */
+public class MappedEventStore {
+
+    private static final int MAGIC = 0x43455631; // "CEV1"
+    private static final int VERSION = 1;
+
+    // 檔頭：MAGIC(4) VERSION(4) 槽位數(4) 保留(4) 匯入時 CSV 的修改時間(8) 保留(8)
+    private static final int HEADER_SIZE = 32;
+    private static final int SLOT_COUNT_OFFSET = 8;
+    private static final int SOURCE_MODIFIED_OFFSET = 16;
+
+    // 紀錄欄位長度（UTF-8 位元組，不足補 0）
+    private static final int ID_BYTES = 32;
+    private static final int TITLE_BYTES = 192;
+    private static final int LOCATION_BYTES = 96;
+    private static final int TIME_BYTES = 32;
+    private static final int ORGANIZER_BYTES = 32;
+
+    private static final int ID_OFFSET = 0;
+    private static final int TITLE_OFFSET = ID_OFFSET + ID_BYTES;
+    private static final int LOCATION_OFFSET = TITLE_OFFSET + TITLE_BYTES;
+    private static final int TIME_OFFSET = LOCATION_OFFSET + LOCATION_BYTES;
+    private static final int ORGANIZER_OFFSET = TIME_OFFSET + TIME_BYTES;
+    private static final int CAPACITY_OFFSET = ORGANIZER_OFFSET + ORGANIZER_BYTES;
+    static final int RECORD_SIZE = CAPACITY_OFFSET + 4;
+
+    private static final int INITIAL_SLOTS = 1024;
+
+    private final File file;
+    private final RandomAccessFile raf;
+    private final FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int slotCapacity;
+    private int slotCount;
+
+    // 活動編號 -> 槽位
+    private final Map<String, Integer> slotsById = new HashMap<>();
+    // 刪除後可重複使用的槽位
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+
+    public MappedEventStore(File file) throws IOException {
+        this.file = file;
+        this.raf = new RandomAccessFile(file, "rw");
+        this.channel = raf.getChannel();
+
+        // 兩個程式同時建立檔案時只有一個寫入檔頭
+        try {
+            initialize();
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    private void initialize() throws IOException {
+        FileLock lock = lockFile();
+        try {
+            if (channel.size() >= HEADER_SIZE) {
+                map(Math.max(INITIAL_SLOTS, (int) ((channel.size() - HEADER_SIZE) / RECORD_SIZE)));
+                if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                    throw new IOException("不是有效的活動資料檔：" + file.getPath());
+                }
+                readSlotTable();
+            } else {
+                map(INITIAL_SLOTS);
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, VERSION);
+                buffer.putInt(SLOT_COUNT_OFFSET, 0);
+                slotCount = 0;
+            }
+        } finally {
+            lock.release();
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * 依檔頭重新建立槽位表（每次載入時呼叫）：其他程式可能新增、刪除或重複使用過槽位
+     */
+    public synchronized void refresh() throws IOException {
+        FileLock lock = lockFile();
+        try {
+            readSlotTable();
+        } finally {
+            lock.release();
+        }
+    }
+
+    /**
+     * 關閉檔案（資料目錄改變、改開另一個檔案時）
+     */
+    public synchronized void close() throws IOException {
+        channel.close();
+        raf.close();
+    }
+
+    /**
+     * 活動有欄位超過紀錄長度時回傳錯誤訊息（新增、修改與匯入活動時檢查），否則回傳 null
+     */
+    public static String findOverlongField(Event event) {
+        String error = checkLength("活動編號", event.getId(), ID_BYTES);
+        if (error == null) {
+            error = checkLength("標題", event.getTitle(), TITLE_BYTES);
+        }
+        if (error == null) {
+            error = checkLength("地點", event.getLocation(), LOCATION_BYTES);
+        }
+        if (error == null) {
+            error = checkLength("時間", event.getTime(), TIME_BYTES);
+        }
+        if (error == null) {
+            error = checkLength("主辦單位", organizerId(event), ORGANIZER_BYTES);
+        }
+        return error;
+    }
+
+    private static String checkLength(String field, String value, int maxBytes) {
+        if (utf8(value).length <= maxBytes) {
+            return null;
+        }
+        // 中文字在 UTF-8 中佔 3 個位元組
+        return field + "過長（最多 " + maxBytes + " 個位元組，約 " + maxBytes / 3 + " 個中文字）";
+    }
+
+    public synchronized int size() {
+        return slotsById.size();
+    }
+
+    /**
+     * 匯入時 活動列表.csv 的最後修改時間，用來判斷 CSV 是否被其他程式改過
+     */
+    public synchronized long getSourceLastModified() {
+        return buffer.getLong(SOURCE_MODIFIED_OFFSET);
+    }
+
+    public synchronized void setSourceLastModified(long lastModified) throws IOException {
+        FileLock lock = lockFile();
+        try {
+            buffer.putLong(SOURCE_MODIFIED_OFFSET, lastModified);
+        } finally {
+            lock.release();
+        }
+    }
+
+    /**
+     * 依槽位順序讀出所有活動（先依檔頭重建槽位表）
+     */
+    public synchronized List<Event> getAll() throws IOException {
+        FileLock lock = lockFile();
+        try {
+            readSlotTable();
+            List<Event> events = new ArrayList<>(slotsById.size());
+            for (int slot = 0; slot < slotCount; slot++) {
+                if (!readString(slot, ID_OFFSET, ID_BYTES).isEmpty()) {
+                    events.add(readEvent(slot));
+                }
+            }
+            return events;
+        } finally {
+            lock.release();
+        }
+    }
+
+    /**
+     * 原地更新名額：只寫入一個 int，與活動數量無關。
+     * 槽位表可能已過時（其他程式刪除或搬動過活動），寫入前在檔案鎖內確認槽位中仍是同一個活動，否則先重建
+     */
+    public synchronized boolean setCapacity(String eventId, int capacity) throws IOException {
+        FileLock lock = lockFile();
+        try {
+            Integer slot = slotsById.get(eventId);
+            if (slot == null || !eventId.equals(readString(slot, ID_OFFSET, ID_BYTES))) {
+                readSlotTable();
+                slot = slotsById.get(eventId);
+                if (slot == null) {
+                    return false;
+                }
+            }
+            buffer.putInt(recordOffset(slot) + CAPACITY_OFFSET, capacity);
+            return true;
+        } finally {
+            lock.release();
+        }
+    }
+
+    /**
+     * 以 events 取代目前所有紀錄：只改寫內容有變動的槽位，不在 events 中的活動清空並留待重複使用，
+     * 儲存時只有被改動的頁面需要寫回磁碟。
+     * 有欄位超過長度時拋出 IllegalArgumentException，且不改動任何紀錄
+     */
+    public synchronized void replaceAll(Collection<Event> events) throws IOException {
+        FileLock lock = lockFile();
+        try {
+            replaceAllLocked(events);
+        } finally {
+            lock.release();
+        }
+    }
+
+    private void replaceAllLocked(Collection<Event> events) throws IOException {
+        Set<String> ids = new HashSet<>();
+        for (Event event : events) {
+            String error = findOverlongField(event);
+            if (error != null) {
+                throw new IllegalArgumentException("活動 " + event.getId() + " 的" + error);
+            }
+            ids.add(event.getId());
+        }
+
+        readSlotTable();
+        Iterator<Map.Entry<String, Integer>> removed = slotsById.entrySet().iterator();
+        while (removed.hasNext()) {
+            Map.Entry<String, Integer> entry = removed.next();
+            if (!ids.contains(entry.getKey())) {
+                int base = recordOffset(entry.getValue());
+                for (int i = 0; i < RECORD_SIZE; i++) {
+                    buffer.put(base + i, (byte) 0);
+                }
+                freeSlots.push(entry.getValue());
+                removed.remove();
+            }
+        }
+
+        byte[] record = new byte[RECORD_SIZE];
+        byte[] current = new byte[RECORD_SIZE];
+        for (Event event : events) {
+            encode(event, record);
+            Integer slot = slotsById.get(event.getId());
+            if (slot == null) {
+                slot = allocateSlot();
+                slotsById.put(event.getId(), slot);
+            } else {
+                ByteBuffer existing = buffer.duplicate();
+                existing.position(recordOffset(slot));
+                existing.get(current);
+                if (Arrays.equals(record, current)) {
+                    continue;
+                }
+            }
+            ByteBuffer target = buffer.duplicate();
+            target.position(recordOffset(slot));
+            target.put(record);
+        }
+    }
+
+    /**
+     * 從 活動列表.csv 匯入（取代目前內容），回傳匯入筆數
+     */
+    public synchronized int importFromCsv(File csvFile) throws IOException {
+        List<Event> events = new ArrayList<>();
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(
+                new FileInputStream(csvFile), StandardCharsets.UTF_8))) {
+            String line;
+            boolean firstLine = true;
+            while ((line = br.readLine()) != null) {
+                if (firstLine) {
+                    firstLine = false;
+                    continue;
+                }
+                String[] tokens = line.split(",", -1);
+                if (tokens.length < 5 || tokens[1].trim().isEmpty()) {
+                    continue;
+                }
+                Event event;
+                try {
+                    int capacity = tokens.length > 5 ? Integer.parseInt(tokens[5].trim()) : 0;
+                    String organizerId = tokens[4].trim();
+                    event = new Event(tokens[0].trim(), tokens[1].trim(), tokens[2].trim(), tokens[3].trim(),
+                            capacity, Organizer.placeholder(organizerId));
+                } catch (NumberFormatException e) {
+                    System.out.println("匯入二進位活動檔時略過名額格式錯誤的資料：" + line);
+                    continue;
+                }
+                // 被其他程式寫入過長欄位的 CSV 不匯入（由呼叫端改讀 CSV），避免截斷資料
+                String error = findOverlongField(event);
+                if (error != null) {
+                    throw new IOException("活動 " + event.getId() + " 的" + error + "，無法存入二進位活動檔");
+                }
+                events.add(event);
+            }
+        }
+        FileLock lock = lockFile();
+        try {
+            replaceAllLocked(events);
+            buffer.putLong(SOURCE_MODIFIED_OFFSET, csvFile.lastModified());
+        } finally {
+            lock.release();
+        }
+        force();
+        return events.size();
+    }
+
+    /**
+     * 將對映區域寫回磁碟
+     */
+    public synchronized void force() {
+        buffer.force();
+    }
+
+    private void map(int slots) throws IOException {
+        slotCapacity = slots;
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) slots * RECORD_SIZE);
+    }
+
+    /**
+     * 鎖定檔頭；對映區域不受影響，只與其他程式的同一個鎖互斥
+     */
+    private FileLock lockFile() throws IOException {
+        return channel.lock(0, HEADER_SIZE, false);
+    }
+
+    /**
+     * 須持有檔案鎖，槽位表已由 {@link #readSlotTable} 更新
+     */
+    private int allocateSlot() throws IOException {
+        if (!freeSlots.isEmpty()) {
+            return freeSlots.pop();
+        }
+        if (slotCount >= slotCapacity) {
+            buffer.force();
+            map(slotCapacity * 2);
+        }
+        int slot = slotCount++;
+        buffer.putInt(SLOT_COUNT_OFFSET, slotCount);
+        return slot;
+    }
+
+    /**
+     * 依檔頭的槽位數重新建立槽位表（須持有檔案鎖）；其他程式擴充過檔案時重新對映
+     */
+    private void readSlotTable() throws IOException {
+        slotCount = buffer.getInt(SLOT_COUNT_OFFSET);
+        if (slotCount > slotCapacity) {
+            map(Math.max(slotCount, slotCapacity * 2));
+        }
+        slotsById.clear();
+        freeSlots.clear();
+        for (int slot = 0; slot < slotCount; slot++) {
+            String id = readString(slot, ID_OFFSET, ID_BYTES);
+            if (id.isEmpty()) {
+                freeSlots.push(slot);
+            } else {
+                slotsById.put(id, slot);
+            }
+        }
+    }
+
+    private static int recordOffset(int slot) {
+        return HEADER_SIZE + slot * RECORD_SIZE;
+    }
+
+    private Event readEvent(int slot) {
+        String organizerId = readString(slot, ORGANIZER_OFFSET, ORGANIZER_BYTES);
+        return new Event(
+                readString(slot, ID_OFFSET, ID_BYTES),
+                readString(slot, TITLE_OFFSET, TITLE_BYTES),
+                readString(slot, LOCATION_OFFSET, LOCATION_BYTES),
+                readString(slot, TIME_OFFSET, TIME_BYTES),
+                buffer.getInt(recordOffset(slot) + CAPACITY_OFFSET),
+                Organizer.placeholder(organizerId));
+    }
+
+    /**
+     * 將活動編碼為一筆紀錄（欄位長度須已檢查過）
+     */
+    private static void encode(Event event, byte[] record) {
+        Arrays.fill(record, (byte) 0);
+        encodeString(record, ID_OFFSET, event.getId());
+        encodeString(record, TITLE_OFFSET, event.getTitle());
+        encodeString(record, LOCATION_OFFSET, event.getLocation());
+        encodeString(record, TIME_OFFSET, event.getTime());
+        encodeString(record, ORGANIZER_OFFSET, organizerId(event));
+        ByteBuffer.wrap(record).putInt(CAPACITY_OFFSET, event.getCapacity());
+    }
+
+    private static void encodeString(byte[] record, int fieldOffset, String value) {
+        byte[] bytes = utf8(value);
+        System.arraycopy(bytes, 0, record, fieldOffset, bytes.length);
+    }
+
+    private String readString(int slot, int fieldOffset, int fieldBytes) {
+        int base = recordOffset(slot) + fieldOffset;
+        int length = 0;
+        while (length < fieldBytes && buffer.get(base + length) != 0) {
+            length++;
+        }
+        byte[] bytes = new byte[length];
+        ByteBuffer view = buffer.duplicate();
+        view.position(base);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] utf8(String value) {
+        return (value != null ? value : "").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String organizerId(Event event) {
+        return event.getOrganizer() != null ? event.getOrganizer().getId() : "";
+    }
+}
@@ -4,13 +4,25 @@ import java.util.ArrayList;
 import java.util.List;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class Organizer extends User {
+    // 以編號代替名稱的主辦人（讀入活動時使用），同一個編號共用一個物件
+    private static final ConcurrentHashMap<String, Organizer> PLACEHOLDERS = new ConcurrentHashMap<>();
+
     private List<Event> hostedEvents = new ArrayList<>();
     public Organizer(String id, String name, String password) {
         super(id, name, password);
     }
 
+    /**
+     * 只知道編號的主辦人（名稱暫以編號代替），大量活動共用同一個物件
+     */
+    public static Organizer placeholder(String organizerId) {
+        return PLACEHOLDERS.computeIfAbsent(KeyDictionary.ORGANIZERS.intern(organizerId),
+                id -> new Organizer(id, id, ""));
+    }
+
     public void createEvent(String id, String title, String location, String time, int capacity) {
         // 1. 建立活動物件，將自己(主辦人)作為 organizer 傳入
         Event event = new Event(id, title, location, time, capacity, this);
@@ -0,0 +1,103 @@
+package model;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * 密碼雜湊（PBKDF2-HMAC-SHA256，每個帳號各自的隨機 salt）。
+ * 存放格式：pbkdf2-sha256$迭代次數$salt$雜湊值（Base64），不含逗號，可直接放在 users.csv 的密碼欄。
+ * 迭代次數即運算成本，可用 -Dcampus.passwordIterations 調整；舊的雜湊保留原本的次數，
+ * 登入成功時若次數低於目前設定（或仍是明碼）就重新雜湊。
+ */
+public final class PasswordHasher {
+
+    public static final String ITERATIONS_PROPERTY = "campus.passwordIterations";
+    public static final int DEFAULT_ITERATIONS = 60_000;
+
+    private static final String PREFIX = "pbkdf2-sha256";
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private PasswordHasher() {
+    }
+
+    /**
+     * 目前設定的迭代次數
+     */
+    public static int iterations() {
+        return Math.max(1, Integer.getInteger(ITERATIONS_PROPERTY, DEFAULT_ITERATIONS));
+    }
+
+    public static String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.nextBytes(salt);
+        int iterations = iterations();
+        Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+        return PREFIX + "$" + iterations + "$" + encoder.encodeToString(salt)
+                + "$" + encoder.encodeToString(pbkdf2(password, salt, iterations));
+    }
+
+    /**
+     * 比對密碼；stored 不是雜湊格式時視為舊的明碼資料
+     */
+    public static boolean verify(String password, String stored) {
+        if (password == null || stored == null) {
+            return false;
+        }
+        if (!isHashed(stored)) {
+            return MessageDigest.isEqual(password.getBytes(StandardCharsets.UTF_8),
+                    stored.getBytes(StandardCharsets.UTF_8));
+        }
+        String[] parts = stored.split("\\$");
+        if (parts.length != 4) {
+            return false;
+        }
+        try {
+            int iterations = Integer.parseInt(parts[1]);
+            byte[] salt = Base64.getDecoder().decode(parts[2]);
+            byte[] expected = Base64.getDecoder().decode(parts[3]);
+            return MessageDigest.isEqual(expected, pbkdf2(password, salt, iterations));
+        } catch (IllegalArgumentException e) {
+            System.err.println("無法解析的密碼雜湊：" + e.getMessage());
+            return false;
+        }
+    }
+
+    public static boolean isHashed(String stored) {
+        return stored != null && stored.startsWith(PREFIX + "$");
+    }
+
+    /**
+     * 明碼或迭代次數低於目前設定時需要重新雜湊
+     */
+    public static boolean needsRehash(String stored) {
+        if (!isHashed(stored)) {
+            return true;
+        }
+        String[] parts = stored.split("\\$");
+        try {
+            return parts.length != 4 || Integer.parseInt(parts[1]) < iterations();
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    private static byte[] pbkdf2(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("此 JDK 不支援 " + ALGORITHM, e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
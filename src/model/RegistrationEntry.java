@@ -0,0 +1,29 @@
+package model;
+
+/**
+ * 一筆報名紀錄（對應 已報名.csv 的一行）。
+ * 學號與活動編號只存 {@link KeyDictionary} 的整數代碼，同一位學生、同一個活動的字串只保留一份
+ */
+public class RegistrationEntry {
+    private final int studentKey;
+    private final int eventKey;
+    private final String registrationTime;
+
+    public RegistrationEntry(String studentId, String eventId, String registrationTime) {
+        this.studentKey = KeyDictionary.STUDENTS.encode(studentId);
+        this.eventKey = KeyDictionary.EVENTS.encode(eventId);
+        this.registrationTime = registrationTime;
+    }
+
+    public String getStudentId() { return KeyDictionary.STUDENTS.decode(studentKey); }
+    public String getEventId() { return KeyDictionary.EVENTS.decode(eventKey); }
+    public String getRegistrationTime() { return registrationTime; }
+
+    public int getStudentKey() { return studentKey; }
+    public int getEventKey() { return eventKey; }
+
+    @Override
+    public String toString() {
+        return getStudentId() + "," + getEventId() + "," + registrationTime;
+    }
+}
@@ -0,0 +1,562 @@
+package model;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * 全系統共用的報名索引。
+ * 已報名.csv 只讀取一次，之後以 (學生ID, 活動編號) 在記憶體中查詢，
+ * 報名與取消時同步更新，不必每次重新掃描檔案。
+ * 尚未合併進 已報名.csv 的報名與取消記錄在 {@link RegistrationJournal}，載入時會重播。
+ * 重新整理時只讀取日誌新附加的部分（記住讀到的位置與檔案識別），
+ * 快照或日誌被改寫時才完整重新載入。
+ *
+ * 學號與活動編號以 {@link KeyDictionary} 的整數代碼索引：
+ * 依學生、依活動查詢是以代碼為索引的陣列查詢，不必比較字串。
+ *
+ * 額滿活動的候補名單也由這裡維護（每個活動一條 {@link EventWaitlist}），
+ * 快照為 候補.csv，之後的加入與離開同樣記在報名日誌中；
+ * 候補者報名成功（包括遞補）時自動離開該活動的候補名單。
+ */
+public class RegistrationIndex {
+
+    public static final String CSV_HEADER = "學生ID,活動編號,報名時間";
+    public static final String WAITLIST_CSV_HEADER = "學生ID,活動編號,候補時間";
+
+    private static final String CSV_FILE_NAME = "已報名.csv";
+    private static final String DEFAULT_CSV_PATH = "src/已報名.csv";
+    private static final String WAITLIST_FILE_NAME = "候補.csv";
+    private static final int MAX_RELOAD_ATTEMPTS = 3;
+
+    private static RegistrationIndex instance;
+
+    // 所有報名紀錄（保留檔案中的順序），鍵為 (學生代碼, 活動代碼) 合成的 long
+    private final Map<Long, RegistrationEntry> entries = new LinkedHashMap<>();
+    // 學生代碼 -> (活動代碼 -> 報名紀錄)
+    private final List<Map<Integer, RegistrationEntry>> entriesByStudent = new ArrayList<>();
+    // 活動代碼 -> (學生代碼 -> 報名紀錄)
+    private final List<Map<Integer, RegistrationEntry>> entriesByEvent = new ArrayList<>();
+    // 活動代碼 -> 候補名單
+    private final List<EventWaitlist> waitlists = new ArrayList<>();
+    // 學生代碼 -> 候補中的活動代碼（依加入順序）
+    private final Map<Integer, Set<Integer>> waitingByStudent = new HashMap<>();
+
+    private String csvPath;
+    private boolean loaded = false;
+    // 載入時 已報名.csv 的識別，以及日誌讀到的位置
+    private String csvIdentity;
+    private final RegistrationJournal.Position journalPosition = new RegistrationJournal.Position();
+
+    private RegistrationIndex() {
+    }
+
+    public static synchronized RegistrationIndex getInstance() {
+        if (instance == null) {
+            instance = new RegistrationIndex();
+        }
+        return instance;
+    }
+
+    /**
+     * 確保資料已載入；已載入過則直接使用記憶體中的資料
+     */
+    public synchronized void ensureLoaded() {
+        if (!loaded) {
+            reload();
+        }
+    }
+
+    /**
+     * 重新從 已報名.csv 建立索引（重新整理時使用）。
+     * 讀取途中日誌被合併（.compacting 出現或被刪除）時，快照與日誌可能一新一舊，重新讀取一次
+     */
+    public synchronized void reload() {
+        RegistrationJournal journal = RegistrationJournal.getInstance();
+        for (int attempt = 1; ; attempt++) {
+            String compactingBefore = journal.compactingIdentity();
+            loadSnapshotAndJournal();
+            if (Objects.equals(compactingBefore, journalPosition.compactingIdentity) || attempt == MAX_RELOAD_ATTEMPTS) {
+                break;
+            }
+            System.out.println("讀取報名資料途中日誌已被合併，重新載入");
+        }
+        StudentTimetable.getInstance().invalidateAll();
+        loaded = true;
+    }
+
+    private void loadSnapshotAndJournal() {
+        clearIndexes();
+        csvPath = DataFiles.find(CSV_FILE_NAME);
+        // 讀取前記下識別：讀取途中被取代時，下次重新整理仍會完整重新載入
+        csvIdentity = csvIdentity(csvPath);
+
+        if (csvPath != null) {
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(new FileInputStream(csvPath), StandardCharsets.UTF_8))) {
+                loadFromReader(reader);
+                System.out.println("成功從 " + csvPath + " 載入 " + entries.size() + " 筆報名資料");
+            } catch (IOException e) {
+                System.err.println("讀取報名資料時發生錯誤：" + e.getMessage());
+                e.printStackTrace();
+            }
+        } else {
+            System.out.println("找不到已報名.csv檔案，將以空白報名資料開始");
+        }
+        loadWaitlist();
+        applyJournal();
+    }
+
+    /**
+     * 解析 已報名.csv 內容並建立索引（第一行為標題行）
+     */
+    public synchronized void loadFromReader(BufferedReader reader) throws IOException {
+        String line;
+        boolean isFirstLine = true;
+        while ((line = reader.readLine()) != null) {
+            if (isFirstLine) {
+                isFirstLine = false;
+                continue;
+            }
+            String[] parts = line.split(",", -1);
+            if (parts.length >= 2) {
+                String studentId = parts[0].trim();
+                String eventId = parts[1].trim();
+                String registrationTime = parts.length >= 3 ? parts[2].trim() : "";
+                index(new RegistrationEntry(studentId, eventId, registrationTime));
+            }
+        }
+    }
+
+    /**
+     * 解析 候補.csv 內容（第一行為標題行），依檔案中的順序排入各活動的候補名單
+     */
+    public synchronized void loadWaitlistFromReader(BufferedReader reader) throws IOException {
+        String line;
+        boolean isFirstLine = true;
+        while ((line = reader.readLine()) != null) {
+            if (isFirstLine) {
+                isFirstLine = false;
+                continue;
+            }
+            String[] parts = line.split(",", -1);
+            if (parts.length >= 2) {
+                String joinTime = parts.length >= 3 ? parts[2].trim() : "";
+                addWaiting(new RegistrationEntry(parts[0].trim(), parts[1].trim(), joinTime));
+            }
+        }
+    }
+
+    /**
+     * 讀入其他程式新增的報名與取消：只解析日誌新附加的行，
+     * 已報名.csv 或日誌被改寫（例如其他程式合併過日誌）時才完整重新載入；名額同步更新到活動資料庫
+     */
+    public void refresh() {
+        // 與本程式的報名、取消互斥（鎖的順序：日誌 -> 索引），
+        // 讀到自己剛寫入的行時，不會把之後才取消的報名加回來
+        RegistrationJournal journal = RegistrationJournal.getInstance();
+        synchronized (journal) {
+            long sequence = journal.sequenceBeforeRead();
+            List<RegistrationJournal.Entry> appended = readAppended();
+            EventRepository repository = EventRepository.getInstance();
+            if (appended == null) {
+                // 快照可能已被其他程式改寫，名額也要從 活動列表.csv 重新讀取
+                repository.reloadCapacities();
+            } else if (!appended.isEmpty()) {
+                repository.applyCapacities(appended);
+            }
+            journal.caughtUp(sequence);
+        }
+    }
+
+    /**
+     * 本程式合併日誌、換檔後呼叫（持有日誌的鎖）：換檔前的日誌都已套用，記下新的壓縮檔並從新日誌的開頭接著讀
+     */
+    synchronized void journalRotated(String compactingIdentity) {
+        journalPosition.compactingIdentity = compactingIdentity;
+        journalPosition.journalKey = null;
+        journalPosition.offset = 0;
+    }
+
+    /**
+     * 本程式合併日誌、換上新的快照後呼叫（持有日誌的鎖）：快照是依記憶體中的資料寫出的，記下新的檔案即可
+     */
+    synchronized void snapshotWritten() {
+        csvIdentity = csvIdentity(csvPath != null ? csvPath : DataFiles.find(CSV_FILE_NAME));
+    }
+
+    /**
+     * 本程式合併日誌、刪除壓縮檔後呼叫（持有日誌的鎖）
+     */
+    synchronized void compactionFinished(String compactingIdentity) {
+        journalPosition.compactingIdentity = compactingIdentity;
+    }
+
+    /**
+     * 本程式在日誌 [start, end) 附加了記憶體中已套用的行：索引正好讀到 start 時直接跳過，
+     * 之後重新整理只讀其他程式附加的部分
+     */
+    synchronized void skipOwnAppend(Object journalKey, long start, long end) {
+        if (journalPosition.journalKey == null && start == 0) {
+            journalPosition.journalKey = journalKey;
+            journalPosition.offset = 0;
+        }
+        if (Objects.equals(journalPosition.journalKey, journalKey) && journalPosition.offset == start) {
+            journalPosition.offset = end;
+        }
+    }
+
+    public synchronized boolean isRegistered(String studentId, String eventId) {
+        return find(studentId, eventId) != null;
+    }
+
+    /**
+     * 以學生代碼與活動代碼查詢，不必再查字典（表格逐列檢查時使用）
+     */
+    public synchronized boolean isRegistered(int studentKey, int eventKey) {
+        return entries.containsKey(key(studentKey, eventKey));
+    }
+
+    public synchronized RegistrationEntry find(String studentId, String eventId) {
+        int studentKey = KeyDictionary.STUDENTS.lookup(studentId);
+        int eventKey = KeyDictionary.EVENTS.lookup(eventId);
+        if (studentKey == KeyDictionary.NONE || eventKey == KeyDictionary.NONE) {
+            return null;
+        }
+        return entries.get(key(studentKey, eventKey));
+    }
+
+    /**
+     * 新增一筆報名紀錄（學生在候補名單中時一併離開名單）；該學生已報名此活動時回傳 false
+     */
+    public synchronized boolean add(RegistrationEntry entry) {
+        if (entries.containsKey(key(entry.getStudentKey(), entry.getEventKey()))) {
+            return false;
+        }
+        index(entry);
+        return true;
+    }
+
+    /**
+     * 移除一筆報名紀錄，回傳被移除的紀錄（不存在時為 null）
+     */
+    public synchronized RegistrationEntry remove(String studentId, String eventId) {
+        RegistrationEntry existing = find(studentId, eventId);
+        if (existing == null) {
+            return null;
+        }
+        int studentKey = existing.getStudentKey();
+        int eventKey = existing.getEventKey();
+        entries.remove(key(studentKey, eventKey));
+        removeFromSlot(entriesByStudent, studentKey, eventKey);
+        removeFromSlot(entriesByEvent, eventKey, studentKey);
+        return existing;
+    }
+
+    public synchronized List<RegistrationEntry> getAll() {
+        return new ArrayList<>(entries.values());
+    }
+
+    /**
+     * 排入活動的候補名單（紀錄中的時間為加入候補的時間）；已報名或已在名單中時回傳 false
+     */
+    public synchronized boolean addWaiting(RegistrationEntry entry) {
+        int studentKey = entry.getStudentKey();
+        int eventKey = entry.getEventKey();
+        if (entries.containsKey(key(studentKey, eventKey))) {
+            return false;
+        }
+        while (waitlists.size() <= eventKey) {
+            waitlists.add(null);
+        }
+        EventWaitlist waitlist = waitlists.get(eventKey);
+        if (waitlist == null) {
+            waitlist = new EventWaitlist();
+            waitlists.set(eventKey, waitlist);
+        }
+        if (!waitlist.add(studentKey, entry.getRegistrationTime())) {
+            return false;
+        }
+        waitingByStudent.computeIfAbsent(studentKey, k -> new LinkedHashSet<>()).add(eventKey);
+        return true;
+    }
+
+    /**
+     * 離開活動的候補名單；不在名單中時回傳 false
+     */
+    public synchronized boolean removeWaiting(String studentId, String eventId) {
+        return removeWaiting(KeyDictionary.STUDENTS.lookup(studentId), KeyDictionary.EVENTS.lookup(eventId));
+    }
+
+    /**
+     * 學生在活動候補名單中排第幾位（從 1 起算）；不在名單中時回傳 0
+     */
+    public synchronized int getWaitingPosition(String studentId, String eventId) {
+        return getWaitingPosition(KeyDictionary.STUDENTS.lookup(studentId), KeyDictionary.EVENTS.lookup(eventId));
+    }
+
+    public synchronized int getWaitingPosition(int studentKey, int eventKey) {
+        EventWaitlist waitlist = waitlist(eventKey);
+        return waitlist != null ? waitlist.position(studentKey) : 0;
+    }
+
+    public synchronized int countWaiting(String eventId) {
+        EventWaitlist waitlist = waitlist(KeyDictionary.EVENTS.lookup(eventId));
+        return waitlist != null ? waitlist.size() : 0;
+    }
+
+    /**
+     * 學生正在候補的活動（紀錄中的時間為加入候補的時間）
+     */
+    public synchronized List<RegistrationEntry> findWaitingByStudent(String studentId) {
+        List<RegistrationEntry> result = new ArrayList<>();
+        int studentKey = KeyDictionary.STUDENTS.lookup(studentId);
+        Set<Integer> eventKeys = waitingByStudent.get(studentKey);
+        if (eventKeys != null) {
+            for (int eventKey : eventKeys) {
+                String joinTime = waitlist(eventKey).joinTime(studentKey);
+                result.add(new RegistrationEntry(studentId, KeyDictionary.EVENTS.decode(eventKey), joinTime));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 所有候補紀錄，同一活動依排隊順序排列（寫出 候補.csv 快照時使用）
+     */
+    public synchronized List<RegistrationEntry> getAllWaiting() {
+        List<RegistrationEntry> result = new ArrayList<>();
+        for (int eventKey = 0; eventKey < waitlists.size(); eventKey++) {
+            EventWaitlist waitlist = waitlists.get(eventKey);
+            if (waitlist != null) {
+                String eventId = KeyDictionary.EVENTS.decode(eventKey);
+                waitlist.forEach((studentKey, joinTime) -> result.add(
+                        new RegistrationEntry(KeyDictionary.STUDENTS.decode(studentKey), eventId, joinTime)));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 活動候補名單中號碼牌 fromTicket（含）之後第一位候補者的號碼牌，沒有時回傳 -1（見 {@link EventWaitlist#next}）。
+     * 遞補時在日誌的鎖內由隊首逐一往後取，名單多長都不必整份複製
+     */
+    synchronized int nextWaitingTicket(int eventKey, int fromTicket) {
+        EventWaitlist waitlist = waitlist(eventKey);
+        return waitlist != null ? waitlist.next(fromTicket) : -1;
+    }
+
+    /**
+     * 候補號碼牌上的學生代碼；已離開或已遞補時回傳 {@link KeyDictionary#NONE}
+     */
+    synchronized int waitingStudentAt(int eventKey, int ticket) {
+        EventWaitlist waitlist = waitlist(eventKey);
+        return waitlist != null ? waitlist.studentAt(ticket) : KeyDictionary.NONE;
+    }
+
+    public synchronized List<RegistrationEntry> findByStudent(String studentId) {
+        return findByStudentKey(KeyDictionary.STUDENTS.lookup(studentId));
+    }
+
+    /**
+     * 依學生代碼查詢報名紀錄
+     */
+    public synchronized List<RegistrationEntry> findByStudentKey(int studentKey) {
+        Map<Integer, RegistrationEntry> byEvent = slot(entriesByStudent, studentKey);
+        return byEvent != null ? new ArrayList<>(byEvent.values()) : new ArrayList<>();
+    }
+
+    public synchronized List<RegistrationEntry> findByEvent(String eventId) {
+        return findByEventKey(KeyDictionary.EVENTS.lookup(eventId));
+    }
+
+    /**
+     * 依活動代碼（{@link Event#getKey()}）查詢報名紀錄
+     */
+    public synchronized List<RegistrationEntry> findByEventKey(int eventKey) {
+        Map<Integer, RegistrationEntry> byStudent = slot(entriesByEvent, eventKey);
+        return byStudent != null ? new ArrayList<>(byStudent.values()) : new ArrayList<>();
+    }
+
+    public synchronized int countByEvent(String eventId) {
+        Map<Integer, RegistrationEntry> byStudent = slot(entriesByEvent, KeyDictionary.EVENTS.lookup(eventId));
+        return byStudent != null ? byStudent.size() : 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * 目前使用中的 已報名.csv 路徑
+     */
+    public synchronized String getCsvPath() {
+        return csvPath != null ? csvPath : resolveCsvPath();
+    }
+
+    /**
+     * 不取得鎖的路徑解析，供日誌等其他元件決定檔案位置
+     */
+    public static String resolveCsvPath() {
+        return DataFiles.resolve(CSV_FILE_NAME, DEFAULT_CSV_PATH);
+    }
+
+    /**
+     * 候補.csv 與 已報名.csv 放在同一個目錄
+     */
+    public static String resolveWaitlistPath() {
+        File csvFile = new File(resolveCsvPath());
+        return new File(csvFile.getAbsoluteFile().getParentFile(), WAITLIST_FILE_NAME).getPath();
+    }
+
+    /**
+     * 載入 候補.csv；檔案不存在表示沒有人候補
+     */
+    private void loadWaitlist() {
+        File waitlistFile = new File(resolveWaitlistPath());
+        if (!waitlistFile.exists()) {
+            return;
+        }
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(waitlistFile), StandardCharsets.UTF_8))) {
+            loadWaitlistFromReader(reader);
+        } catch (IOException e) {
+            System.err.println("讀取候補資料時發生錯誤：" + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 將尚未合併的報名日誌重播到剛載入的快照上
+     */
+    private void applyJournal() {
+        for (RegistrationJournal.Entry entry : RegistrationJournal.getInstance().readAll(journalPosition)) {
+            apply(entry);
+        }
+    }
+
+    /**
+     * 新附加的日誌；需要完整重新載入時先重新載入並回傳 null
+     */
+    private synchronized List<RegistrationJournal.Entry> readAppended() {
+        if (!loaded || !Objects.equals(csvIdentity, csvIdentity(DataFiles.find(CSV_FILE_NAME)))) {
+            reload();
+            return null;
+        }
+        List<RegistrationJournal.Entry> appended = RegistrationJournal.getInstance().readAppended(journalPosition);
+        if (appended == null) {
+            System.out.println("報名日誌已被改寫，重新載入報名資料");
+            reload();
+            return null;
+        }
+        for (RegistrationJournal.Entry entry : appended) {
+            apply(entry);
+        }
+        if (!appended.isEmpty()) {
+            // 其他程式的報名或取消，學生課表下次查詢時重建
+            StudentTimetable.getInstance().invalidateAll();
+        }
+        return appended;
+    }
+
+    /**
+     * 套用一行日誌；重複套用同一行結果不變
+     */
+    private void apply(RegistrationJournal.Entry entry) {
+        if (entry.isRegistration()) {
+            index(new RegistrationEntry(entry.getStudentId(), entry.getEventId(), entry.getTime()));
+        } else if (entry.isCancellation()) {
+            remove(entry.getStudentId(), entry.getEventId());
+        } else if (entry.isWaitlistJoin()) {
+            addWaiting(new RegistrationEntry(entry.getStudentId(), entry.getEventId(), entry.getTime()));
+        } else if (entry.isWaitlistLeave()) {
+            removeWaiting(entry.getStudentId(), entry.getEventId());
+        }
+    }
+
+    /**
+     * 路徑、檔案識別、大小與修改時間；檔案不存在時回傳 null
+     */
+    private static String csvIdentity(String path) {
+        if (path == null) {
+            return null;
+        }
+        File file = new File(path);
+        Object key = DataFiles.fileKey(file);
+        return key != null ? file.getAbsolutePath() + ":" + key + ":" + file.length() + ":" + file.lastModified() : null;
+    }
+
+    private void index(RegistrationEntry entry) {
+        int studentKey = entry.getStudentKey();
+        int eventKey = entry.getEventKey();
+        if (entries.putIfAbsent(key(studentKey, eventKey), entry) != null) {
+            return; // 重複的報名紀錄只保留第一筆
+        }
+        slotFor(entriesByStudent, studentKey).put(eventKey, entry);
+        slotFor(entriesByEvent, eventKey).put(studentKey, entry);
+        // 報名成功（包括遞補）就不必再候補
+        removeWaiting(studentKey, eventKey);
+    }
+
+    private boolean removeWaiting(int studentKey, int eventKey) {
+        EventWaitlist waitlist = waitlist(eventKey);
+        if (waitlist == null || !waitlist.remove(studentKey)) {
+            return false;
+        }
+        Set<Integer> eventKeys = waitingByStudent.get(studentKey);
+        eventKeys.remove(eventKey);
+        if (eventKeys.isEmpty()) {
+            waitingByStudent.remove(studentKey);
+        }
+        if (waitlist.isEmpty()) {
+            waitlists.set(eventKey, null);
+        }
+        return true;
+    }
+
+    private EventWaitlist waitlist(int eventKey) {
+        return eventKey >= 0 && eventKey < waitlists.size() ? waitlists.get(eventKey) : null;
+    }
+
+    private void clearIndexes() {
+        entries.clear();
+        entriesByStudent.clear();
+        entriesByEvent.clear();
+        waitlists.clear();
+        waitingByStudent.clear();
+    }
+
+    private static long key(int studentKey, int eventKey) {
+        // 兩個代碼並成一個 long 後乘上奇數打散：仍是一對一，但 Long.hashCode 不會因高低位互相抵銷而碰撞
+        return (((long) studentKey << 32) | (eventKey & 0xFFFFFFFFL)) * 0x9E3779B97F4A7C15L;
+    }
+
+    /**
+     * 代碼對應的紀錄；代碼不存在或尚無紀錄時回傳 null
+     */
+    private static Map<Integer, RegistrationEntry> slot(List<Map<Integer, RegistrationEntry>> index, int key) {
+        return key >= 0 && key < index.size() ? index.get(key) : null;
+    }
+
+    private static Map<Integer, RegistrationEntry> slotFor(List<Map<Integer, RegistrationEntry>> index, int key) {
+        while (index.size() <= key) {
+            index.add(null);
+        }
+        Map<Integer, RegistrationEntry> map = index.get(key);
+        if (map == null) {
+            map = new LinkedHashMap<>();
+            index.set(key, map);
+        }
+        return map;
+    }
+
+    private static void removeFromSlot(List<Map<Integer, RegistrationEntry>> index, int outer, int inner) {
+        Map<Integer, RegistrationEntry> map = slot(index, outer);
+        if (map != null) {
+            map.remove(inner);
+            if (map.isEmpty()) {
+                index.set(outer, null);
+            }
+        }
+    }
+}
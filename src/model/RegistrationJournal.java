@@ -0,0 +1,786 @@
+package model;
+
+import java.io.*;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 報名日誌（append-only）。
+ * 報名與取消只在 已報名.journal 尾端附加一行，不再重寫 活動列表.csv 或 已報名.csv；
+ * 取消報名以墓碑（-）記錄。日誌超過門檻時由背景執行緒合併回兩個 CSV 快照。
+ *
+ * 日誌格式：動作,學生ID,活動編號,時間,剩餘名額
+ * 每行記錄的是寫入當下的剩餘名額（絕對值），重播多次結果相同，
+ * 因此壓縮途中中斷也不會重複扣除名額。
+ *
+ * 額滿活動的候補以 W+（加入）與 W-（離開）記錄，合併時寫成 候補.csv 快照。
+ * 取消報名釋出名額時，在同一個鎖內由候補名單第一位遞補，
+ * 取消與遞補的兩行一次寫入日誌；遞補以一般的報名（+）記錄，重播時自動離開候補名單。
+ *
+ * 多個程式共用同一個資料目錄時，以 已報名.lock 的檔案鎖協調：附加與換檔取得第一個位元組的鎖，
+ * 整個合併作業取得第二個位元組的鎖，其他程式不會接在正在合併的 .compacting 後面，也不會在合併途中換檔。
+ * 每次附加前比對日誌路徑目前的檔案識別，被其他程式合併換檔後改寫到新的日誌，不會寫進已刪除的檔案。
+ * 已報名.lock 另存一個寫入序號（記憶體對映）：任何程式附加日誌、換檔或寫出快照時在附加鎖內加一，
+ * 序號與本程式上次讀入時相同就表示沒有其他程式的新資料，額滿的判斷不必取得鎖或查看檔案（見 {@link #isCaughtUp}）。
+ */
+public class RegistrationJournal {
+
+    public static final String OP_REGISTER = "+";
+    public static final String OP_CANCEL = "-";
+    public static final String OP_WAITLIST_JOIN = "W+";
+    public static final String OP_WAITLIST_LEAVE = "W-";
+
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final String JOURNAL_FILE_NAME = "已報名.journal";
+    private static final String COMPACTING_SUFFIX = ".compacting";
+    private static final String LOCK_FILE_NAME = "已報名.lock";
+    // 已報名.lock 中各自上鎖的位元組：附加與換檔、整個合併作業
+    private static final long APPEND_LOCK_POSITION = 0;
+    private static final long COMPACTION_LOCK_POSITION = 1;
+    // 已報名.lock 中寫入序號（int）的位置，不與上鎖的位元組重疊
+    private static final long WRITE_SEQUENCE_POSITION = 8;
+    private static final VarHandle SEQUENCE = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.nativeOrder());
+    // 尚未讀入過資料時的 caughtUpSequence
+    private static final long NOT_CAUGHT_UP = Long.MIN_VALUE;
+    private static final int TAIL_BUFFER_SIZE = 64 * 1024;
+
+    // 日誌累積超過此筆數時觸發背景壓縮
+    private static final int COMPACT_THRESHOLD = 1000;
+
+    private static RegistrationJournal instance;
+
+    private final EventRepository eventRepository = EventRepository.getInstance();
+    private final RegistrationIndex registrationIndex = RegistrationIndex.getInstance();
+    private final SeatReservationEngine seatEngine = SeatReservationEngine.getInstance();
+    private final DataDirectoryWatcher watcher = DataDirectoryWatcher.getInstance();
+
+    // 換檔（journal -> .compacting）時取得寫入鎖，重播時取得讀取鎖
+    private final ReadWriteLock rotationLock = new ReentrantReadWriteLock();
+    // 同一時間只允許一個壓縮作業
+    private final Object compactionLock = new Object();
+    private final AtomicBoolean compactionScheduled = new AtomicBoolean(false);
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "registration-journal-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private Writer writer;
+    private File writerFile;
+    // 開啟 writer 時日誌檔的識別
+    private Object writerKey;
+    private int pendingEntries = -1; // -1 表示尚未計算
+
+    // 已報名.lock 的通道；附加鎖在持有本物件的鎖時才取得，可重入
+    private FileChannel lockChannel;
+    private File lockChannelFile;
+    private FileLock appendLock;
+    private int appendLockDepth = 0;
+    // 已報名.lock 中的寫入序號，以及記憶體中的資料對應到的序號
+    private volatile MappedByteBuffer writeSequence;
+    private volatile long caughtUpSequence = NOT_CAUGHT_UP;
+
+    private RegistrationJournal() {
+    }
+
+    public static synchronized RegistrationJournal getInstance() {
+        if (instance == null) {
+            instance = new RegistrationJournal();
+        }
+        return instance;
+    }
+
+    /**
+     * 配給名額並記錄報名。在本物件的鎖與跨程式的附加鎖內，先讀入其他程式新附加的日誌，
+     * 再檢查是否已報名、時間衝突與剩餘名額，檢查、扣除與寫入之間不會有其他執行緒或程式插入。寫入失敗時歸還名額。
+     * 活動有人候補時名額先依序遞補給候補名單（與已報名活動時間重疊的候補者略過），剩下的才給新的報名。
+     * allowTimeConflict 為 true 時（學生已確認過衝突）不檢查時間重疊
+     */
+    public synchronized RegistrationService.Result recordRegistration(String studentId, String eventId,
+                                                                      String registrationTime,
+                                                                      boolean allowTimeConflict) throws IOException {
+        lockAppends();
+        try {
+            catchUp();
+            if (registrationIndex.isRegistered(studentId, eventId)) {
+                return RegistrationService.Result.ALREADY_REGISTERED;
+            }
+            Event event = eventRepository.findForSeats(eventId);
+            if (event == null) {
+                return RegistrationService.Result.EVENT_NOT_FOUND;
+            }
+            // 課表在本物件的鎖內讀取與更新，同一位學生同時報名兩個重疊的活動時，後者一定看得到前者
+            StudentTimetable timetable = StudentTimetable.getInstance();
+            if (!allowTimeConflict && !timetable.findConflicts(studentId, event).isEmpty()) {
+                return RegistrationService.Result.TIME_CONFLICT;
+            }
+            List<Entry> lines = new ArrayList<>();
+            promote(eventId, lines);
+            int remainingCapacity = seatEngine.tryReserve(eventId);
+            if (remainingCapacity < 0) {
+                if (!lines.isEmpty()) {
+                    append(lines);
+                }
+                return remainingCapacity == -2
+                        ? RegistrationService.Result.EVENT_NOT_FOUND : RegistrationService.Result.FULL;
+            }
+            registrationIndex.add(new RegistrationEntry(studentId, eventId, registrationTime));
+            lines.add(new Entry(OP_REGISTER, studentId, eventId, registrationTime, remainingCapacity));
+            try {
+                append(lines);
+            } catch (IOException e) {
+                registrationIndex.remove(studentId, eventId);
+                seatEngine.release(eventId);
+                throw e;
+            }
+            timetable.added(studentId, event);
+            return RegistrationService.Result.SUCCESS;
+        } finally {
+            unlockAppends();
+        }
+    }
+
+    /**
+     * 記錄一筆取消（墓碑）並歸還名額，回傳被取消的報名紀錄（不存在時為 null）。
+     * 活動有人候補時，釋出的名額直接由候補名單第一位遞補
+     */
+    public synchronized RegistrationEntry recordCancellation(String studentId, String eventId) throws IOException {
+        lockAppends();
+        try {
+            catchUp();
+            RegistrationEntry removed = registrationIndex.remove(studentId, eventId);
+            if (removed == null) {
+                return null;
+            }
+            int remainingCapacity = seatEngine.release(eventId);
+            List<Entry> lines = new ArrayList<>();
+            lines.add(new Entry(OP_CANCEL, studentId, eventId, removed.getRegistrationTime(), remainingCapacity));
+            promote(eventId, lines);
+            append(lines);
+            return removed;
+        } finally {
+            unlockAppends();
+        }
+    }
+
+    /**
+     * 加入活動的候補名單，回傳排在第幾位；已在名單中時不寫入並回傳目前的順位，已報名時回傳 0。
+     * 先依序遞補名單中的人，之後仍有名額時不加入候補，回傳 {@link RegistrationService#SEATS_AVAILABLE}（應直接報名）
+     */
+    public synchronized int recordWaitlistJoin(String studentId, String eventId, String joinTime) throws IOException {
+        lockAppends();
+        try {
+            catchUp();
+            if (registrationIndex.isRegistered(studentId, eventId)) {
+                return 0;
+            }
+            List<Entry> lines = new ArrayList<>();
+            promote(eventId, lines);
+            int remainingCapacity = seatEngine.getRemaining(eventId);
+            int position = RegistrationService.SEATS_AVAILABLE;
+            if (remainingCapacity <= 0) {
+                if (registrationIndex.addWaiting(new RegistrationEntry(studentId, eventId, joinTime))) {
+                    lines.add(new Entry(OP_WAITLIST_JOIN, studentId, eventId, joinTime, remainingCapacity));
+                }
+                position = registrationIndex.getWaitingPosition(studentId, eventId);
+            }
+            if (!lines.isEmpty()) {
+                append(lines);
+            }
+            return position;
+        } finally {
+            unlockAppends();
+        }
+    }
+
+    /**
+     * 離開活動的候補名單；不在名單中時回傳 false
+     */
+    public synchronized boolean recordWaitlistLeave(String studentId, String eventId) throws IOException {
+        lockAppends();
+        try {
+            catchUp();
+            if (!registrationIndex.removeWaiting(studentId, eventId)) {
+                return false;
+            }
+            String leaveTime = LocalDateTime.now().format(TIME_FORMATTER);
+            append(new Entry(OP_WAITLIST_LEAVE, studentId, eventId, leaveTime, seatEngine.getRemaining(eventId)));
+            return true;
+        } finally {
+            unlockAppends();
+        }
+    }
+
+    /**
+     * 活動尚有名額時依序由候補名單遞補（例如加入候補的同時有人取消，或主辦人增加名額），回傳遞補成功的紀錄
+     */
+    public synchronized List<RegistrationEntry> promoteWaiting(String eventId) throws IOException {
+        lockAppends();
+        try {
+            catchUp();
+            List<Entry> lines = new ArrayList<>();
+            List<RegistrationEntry> promoted = promote(eventId, lines);
+            if (!lines.isEmpty()) {
+                append(lines);
+            }
+            return promoted;
+        } finally {
+            unlockAppends();
+        }
+    }
+
+    /**
+     * 讀出尚未合併進快照的日誌（含上次未完成的壓縮檔），依寫入順序回傳
+     */
+    public List<Entry> readEntries() {
+        List<Entry> entries = new ArrayList<>();
+        rotationLock.readLock().lock();
+        try {
+            File journalFile = journalFile();
+            readFile(new File(journalFile.getPath() + COMPACTING_SUFFIX), entries);
+            readFile(journalFile, entries);
+        } finally {
+            rotationLock.readLock().unlock();
+        }
+        return entries;
+    }
+
+    /**
+     * 目前 .compacting 的識別與大小；不存在時回傳 null（載入途中判斷是否剛好被合併）
+     */
+    String compactingIdentity() {
+        return identity(new File(journalFile().getPath() + COMPACTING_SUFFIX));
+    }
+
+    /**
+     * 從頭讀取壓縮檔與日誌（報名索引完整載入時使用），並在 position 記下讀到的位置與檔案識別
+     */
+    List<Entry> readAll(Position position) {
+        List<Entry> entries = new ArrayList<>();
+        rotationLock.readLock().lock();
+        try {
+            File journalFile = journalFile();
+            File compactingFile = new File(journalFile.getPath() + COMPACTING_SUFFIX);
+            position.compactingIdentity = identity(compactingFile);
+            readFile(compactingFile, entries);
+            position.journalKey = DataFiles.fileKey(journalFile);
+            position.offset = 0;
+            if (position.journalKey != null) {
+                readTail(journalFile, position, entries);
+            }
+        } finally {
+            rotationLock.readLock().unlock();
+        }
+        return entries;
+    }
+
+    /**
+     * 只讀取 position 之後新附加的完整行，並前移 position。
+     * 日誌已換成另一個檔案（其他程式壓縮過）、變短，或壓縮檔有變動時回傳 null，表示需要完整重新載入。
+     */
+    List<Entry> readAppended(Position position) {
+        rotationLock.readLock().lock();
+        try {
+            File journalFile = journalFile();
+            File compactingFile = new File(journalFile.getPath() + COMPACTING_SUFFIX);
+            if (!Objects.equals(position.compactingIdentity, identity(compactingFile))) {
+                return null;
+            }
+            Object key = DataFiles.fileKey(journalFile);
+            if (key == null) {
+                return position.journalKey == null ? new ArrayList<>() : null;
+            }
+            if (position.journalKey == null) {
+                // 載入時還沒有日誌，之後才建立
+                position.journalKey = key;
+                position.offset = 0;
+            }
+            long length = journalFile.length();
+            if (!position.journalKey.equals(key) || length < position.offset) {
+                return null;
+            }
+            List<Entry> entries = new ArrayList<>();
+            if (length > position.offset) {
+                // 每次報名前都會檢查，沒有新的行時不開檔
+                readTail(journalFile, position, entries);
+            }
+            return entries;
+        } finally {
+            rotationLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 立即將日誌合併為 已報名.csv 與 活動列表.csv 快照並清空日誌。
+     * 主辦人修改活動後儲存也走這個流程，避免日誌中較舊的名額覆蓋新的設定。
+     */
+    public void compact() throws IOException {
+        synchronized (compactionLock) {
+            FileChannel channel;
+            synchronized (this) {
+                channel = lockChannel();
+            }
+            // 其他程式正在合併時等它完成（不持有本物件的鎖，等待期間本程式仍可報名）
+            FileLock compactionFileLock = channel.lock(COMPACTION_LOCK_POSITION, 1, false);
+            try {
+                compactLocked();
+            } finally {
+                compactionFileLock.release();
+            }
+        }
+    }
+
+    private void compactLocked() throws IOException {
+        List<RegistrationEntry> snapshot;
+        List<RegistrationEntry> waitingSnapshot;
+        File compactingFile;
+
+        // 1. 在鎖內擷取報名快照並換檔，之後的報名寫入新的日誌；
+        //    先讀入其他程式附加到同一份日誌的報名，快照才不會遺漏
+        synchronized (this) {
+            lockAppends();
+            try {
+                registrationIndex.refresh();
+                snapshot = registrationIndex.getAll();
+                waitingSnapshot = registrationIndex.getAllWaiting();
+                compactingFile = rotate();
+                advanceWriteSequence();
+                pendingEntries = 0;
+                // 換檔前的每一行索引都已套用，之後從新日誌的開頭接著讀
+                registrationIndex.journalRotated(identity(compactingFile));
+            } finally {
+                unlockAppends();
+            }
+        }
+
+        // 2. 在附加鎖外寫入快照，不阻擋新的報名（其他程式的合併仍被合併鎖擋住）；
+        //    候補.csv 先寫：其他程式看到 已報名.csv 改變而重新載入時，候補名單已是新的
+        writeSnapshot(new File(RegistrationIndex.resolveWaitlistPath()),
+                RegistrationIndex.WAITLIST_CSV_HEADER, waitingSnapshot);
+        writeSnapshot(new File(RegistrationIndex.resolveCsvPath()), RegistrationIndex.CSV_HEADER, snapshot);
+        eventRepository.save();
+        synchronized (this) {
+            // 活動列表.csv 中可能有主辦人修改的名額
+            advanceWriteSequence();
+        }
+
+        // 3. 快照寫入完成後才刪除舊日誌；與報名索引的記錄在同一個鎖內完成，
+        //    期間的報名不會看到「壓縮檔已變動」而完整重新載入
+        synchronized (this) {
+            if (compactingFile.exists() && !compactingFile.delete()) {
+                System.err.println("無法刪除已合併的日誌：" + compactingFile.getPath());
+            }
+            advanceWriteSequence();
+            watcher.recordOwnWrite(compactingFile);
+            registrationIndex.compactionFinished(identity(compactingFile));
+        }
+        System.out.println("報名日誌已合併為快照，共 " + snapshot.size() + " 筆報名");
+    }
+
+    /**
+     * 依候補順序遞補：與已報名活動時間重疊的候補者略過（保留順位，之後有名額時再檢查），
+     * 其餘每人向 {@link SeatReservationEngine} 配給一個名額後由 {@link RegistrationIndex#add} 一步完成
+     * 「離開候補、加入報名」；要寫入的日誌行加到 lines，名額用完或名單走完時停止。
+     * 由隊首逐一往後取，每遞補一人只看到下一位沒有時間衝突的候補者，與名單長度無關
+     */
+    private List<RegistrationEntry> promote(String eventId, List<Entry> lines) {
+        List<RegistrationEntry> promoted = new ArrayList<>();
+        if (registrationIndex.countWaiting(eventId) == 0 || seatEngine.getRemaining(eventId) <= 0) {
+            return promoted;
+        }
+        Event event = eventRepository.findById(eventId);
+        if (event == null) {
+            return promoted;
+        }
+        // 持有日誌的鎖，候補名單只會被這裡改變（遞補只移除、不重新編號），號碼牌在迴圈中不變；
+        // 課表會查詢報名索引，不可在報名索引的鎖內呼叫，因此每次只向索引取一位
+        StudentTimetable timetable = StudentTimetable.getInstance();
+        int eventKey = event.getKey();
+        for (int ticket = registrationIndex.nextWaitingTicket(eventKey, 0); ticket >= 0;
+             ticket = registrationIndex.nextWaitingTicket(eventKey, ticket + 1)) {
+            int studentKey = registrationIndex.waitingStudentAt(eventKey, ticket);
+            if (timetable.hasConflict(studentKey, event)) {
+                // 保留候補順位，之後有名額時再檢查
+                continue;
+            }
+            int remainingCapacity = seatEngine.tryReserve(eventId);
+            if (remainingCapacity < 0) {
+                break;
+            }
+            String studentId = KeyDictionary.STUDENTS.decode(studentKey);
+            String registrationTime = LocalDateTime.now().format(TIME_FORMATTER);
+            RegistrationEntry entry = new RegistrationEntry(studentId, eventId, registrationTime);
+            registrationIndex.add(entry);
+            timetable.added(studentId, event);
+            lines.add(new Entry(OP_REGISTER, studentId, eventId, registrationTime, remainingCapacity));
+            promoted.add(entry);
+        }
+        return promoted;
+    }
+
+    /**
+     * 讀入其他程式新附加到日誌的報名、取消與名額（持有附加鎖時呼叫），之後的檢查以最新的資料為準
+     */
+    private void catchUp() {
+        registrationIndex.refresh();
+    }
+
+    private void append(Entry entry) throws IOException {
+        append(Arrays.asList(entry));
+    }
+
+    /**
+     * 多行一次寫入並 flush（取消與遞補），中途當機時最多留下寫到一半、重播時略過的最後一行
+     */
+    private void append(List<Entry> entries) throws IOException {
+        lockAppends();
+        try {
+            if (writer != null && !Objects.equals(writerKey, DataFiles.fileKey(writerFile))) {
+                // 其他程式合併時已把日誌換檔，原本開啟的檔案已不在日誌路徑上
+                writer.close();
+                writer = null;
+                pendingEntries = -1;
+            }
+            if (writer == null) {
+                openWriter();
+            }
+            long start = writerFile.length();
+            for (Entry entry : entries) {
+                writer.write(entry.toLine());
+                writer.write(System.lineSeparator());
+            }
+            writer.flush();
+            advanceWriteSequence();
+            watcher.recordOwnWrite(writerFile);
+            // 持有附加鎖，這段一定是自己寫的：報名索引不必再讀回來（也不會以舊的名額蓋掉之後的修改）
+            registrationIndex.skipOwnAppend(writerKey, start, writerFile.length());
+        } finally {
+            unlockAppends();
+        }
+
+        pendingEntries += entries.size();
+        if (pendingEntries >= COMPACT_THRESHOLD) {
+            scheduleCompaction();
+        }
+    }
+
+    private void scheduleCompaction() {
+        if (compactionScheduled.compareAndSet(false, true)) {
+            compactor.submit(() -> {
+                try {
+                    compact();
+                } catch (IOException e) {
+                    System.err.println("背景合併報名日誌失敗：" + e.getMessage());
+                    e.printStackTrace();
+                } finally {
+                    compactionScheduled.set(false);
+                }
+            });
+        }
+    }
+
+    private void openWriter() throws IOException {
+        File journalFile = journalFile();
+        if (pendingEntries < 0) {
+            pendingEntries = countLines(journalFile);
+        }
+        writer = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(journalFile, true), StandardCharsets.UTF_8));
+        writerFile = journalFile;
+        writerKey = DataFiles.fileKey(journalFile);
+    }
+
+    /**
+     * 取得跨程式的附加鎖（呼叫端持有本物件的鎖）；同一執行緒可重複取得
+     */
+    private void lockAppends() throws IOException {
+        if (appendLockDepth == 0) {
+            appendLock = lockChannel().lock(APPEND_LOCK_POSITION, 1, false);
+        }
+        appendLockDepth++;
+    }
+
+    private void unlockAppends() throws IOException {
+        if (--appendLockDepth == 0) {
+            FileLock lock = appendLock;
+            appendLock = null;
+            lock.release();
+        }
+    }
+
+    /**
+     * 與日誌同目錄的 已報名.lock；資料目錄改變時（例如效能測試換目錄）重新開啟
+     */
+    private FileChannel lockChannel() throws IOException {
+        File lockFile = new File(journalFile().getParentFile(), LOCK_FILE_NAME);
+        if (lockChannel == null || !lockFile.equals(lockChannelFile)) {
+            if (lockChannel != null && appendLockDepth == 0) {
+                lockChannel.close();
+            }
+            lockChannel = new RandomAccessFile(lockFile, "rw").getChannel();
+            lockChannelFile = lockFile;
+            caughtUpSequence = NOT_CAUGHT_UP;
+            writeSequence = lockChannel.map(FileChannel.MapMode.READ_WRITE, WRITE_SEQUENCE_POSITION, Integer.BYTES);
+        }
+        return lockChannel;
+    }
+
+    /**
+     * 記憶體中的報名與名額已包含所有程式寫入的資料（不取得任何鎖，只讀一次共用記憶體）；
+     * 無法確定時回傳 false，呼叫端改在本物件的鎖內讀入最新資料。
+     * 只涵蓋經由本類別寫入的變更，直接以文字編輯器修改檔案時由 {@link DataDirectoryWatcher} 重新載入
+     */
+    public boolean isCaughtUp() {
+        MappedByteBuffer sequence = writeSequence;
+        long caughtUp = caughtUpSequence;
+        return sequence != null && caughtUp != NOT_CAUGHT_UP && (int) SEQUENCE.getVolatile(sequence, 0) == caughtUp;
+    }
+
+    /**
+     * 讀入其他程式的資料之前呼叫（持有本物件的鎖）：回傳目前的寫入序號，讀完後交給 {@link #caughtUp}；
+     * 之後才寫入的程式會把序號加一，不會被誤認為已讀入
+     */
+    long sequenceBeforeRead() {
+        MappedByteBuffer sequence = writeSequence;
+        return sequence != null ? (int) SEQUENCE.getVolatile(sequence, 0) : NOT_CAUGHT_UP;
+    }
+
+    /**
+     * 已讀入到 {@link #sequenceBeforeRead} 當時的資料（持有本物件的鎖）
+     */
+    void caughtUp(long sequence) {
+        caughtUpSequence = sequence;
+    }
+
+    /**
+     * 本程式改寫了共用的報名資料（持有本物件的鎖）：在附加鎖內把寫入序號加一；
+     * 寫入前記憶體已是最新的，寫入後也仍是最新的
+     */
+    private void advanceWriteSequence() throws IOException {
+        lockAppends();
+        try {
+            MappedByteBuffer sequence = writeSequence;
+            int previous = (int) SEQUENCE.getVolatile(sequence, 0);
+            SEQUENCE.setVolatile(sequence, 0, previous + 1);
+            if (caughtUpSequence == previous) {
+                caughtUpSequence = previous + 1;
+            }
+        } finally {
+            unlockAppends();
+        }
+    }
+
+    /**
+     * 把目前的日誌改名為 .compacting；若上次壓縮未完成，則把目前日誌接在舊的壓縮檔後面
+     */
+    private File rotate() throws IOException {
+        rotationLock.writeLock().lock();
+        try {
+            if (writer != null) {
+                writer.close();
+                writer = null;
+            }
+            File journalFile = journalFile();
+            File compactingFile = new File(journalFile.getPath() + COMPACTING_SUFFIX);
+            if (journalFile.exists()) {
+                if (compactingFile.exists()) {
+                    try (OutputStream out = new FileOutputStream(compactingFile, true)) {
+                        Files.copy(journalFile.toPath(), out);
+                    }
+                    Files.delete(journalFile.toPath());
+                } else {
+                    Files.move(journalFile.toPath(), compactingFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+                }
+            }
+            watcher.recordOwnWrite(journalFile);
+            watcher.recordOwnWrite(compactingFile);
+            return compactingFile;
+        } finally {
+            rotationLock.writeLock().unlock();
+        }
+    }
+
+    private void writeSnapshot(File csvFile, String header, List<RegistrationEntry> snapshot) throws IOException {
+        File tempFile = new File(csvFile.getPath() + ".tmp");
+
+        try (BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(tempFile), StandardCharsets.UTF_8))) {
+            bw.write(header);
+            bw.newLine();
+            for (RegistrationEntry entry : snapshot) {
+                bw.write(entry.toString());
+                bw.newLine();
+            }
+        }
+        // 換上新檔與報名索引記下新的快照在同一個鎖內完成，期間的報名不會誤以為快照被其他程式改寫
+        synchronized (this) {
+            Files.move(tempFile.toPath(), csvFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            advanceWriteSequence();
+            watcher.recordOwnWrite(csvFile);
+            registrationIndex.snapshotWritten();
+        }
+    }
+
+    private File journalFile() {
+        File csvFile = new File(RegistrationIndex.resolveCsvPath());
+        return new File(csvFile.getAbsoluteFile().getParentFile(), JOURNAL_FILE_NAME);
+    }
+
+    private static void readFile(File file, List<Entry> entries) {
+        if (!file.exists()) {
+            return;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Entry entry = Entry.parse(line);
+                if (entry != null) {
+                    entries.add(entry);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("讀取報名日誌時發生錯誤：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 從 position.offset 讀到檔案結尾，只解析以換行結束的完整行（寫到一半的行留到下次）
+     */
+    private static void readTail(File file, Position position, List<Entry> entries) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+             InputStream in = Channels.newInputStream(channel.position(position.offset))) {
+            byte[] buffer = new byte[TAIL_BUFFER_SIZE];
+            byte[] line = new byte[256];
+            int lineLength = 0;
+            long consumed = position.offset;
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                for (int i = 0; i < read; i++) {
+                    byte b = buffer[i];
+                    if (b != '\n') {
+                        if (lineLength == line.length) {
+                            line = Arrays.copyOf(line, line.length * 2);
+                        }
+                        line[lineLength++] = b;
+                        continue;
+                    }
+                    consumed += lineLength + 1;
+                    int end = lineLength > 0 && line[lineLength - 1] == '\r' ? lineLength - 1 : lineLength;
+                    Entry entry = Entry.parse(new String(line, 0, end, StandardCharsets.UTF_8));
+                    if (entry != null) {
+                        entries.add(entry);
+                    }
+                    lineLength = 0;
+                }
+            }
+            position.offset = consumed;
+        } catch (IOException e) {
+            System.err.println("讀取報名日誌時發生錯誤：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 檔案識別加上大小；檔案不存在時回傳 null
+     */
+    private static String identity(File file) {
+        Object key = DataFiles.fileKey(file);
+        return key != null ? key + ":" + file.length() : null;
+    }
+
+    private static int countLines(File file) throws IOException {
+        if (!file.exists()) {
+            return 0;
+        }
+        int count = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(file), StandardCharsets.UTF_8))) {
+            while (reader.readLine() != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 報名索引讀到的日誌位置：日誌檔的識別與已讀取的位元組數，以及讀取時壓縮檔的狀態
+     */
+    static class Position {
+        Object journalKey;
+        long offset;
+        String compactingIdentity;
+    }
+
+    // 日誌中的一行
+    public static class Entry {
+        private final String op;
+        private final String studentId;
+        private final String eventId;
+        private final String time;
+        private final int remainingCapacity;
+
+        public Entry(String op, String studentId, String eventId, String time, int remainingCapacity) {
+            this.op = op;
+            this.studentId = studentId;
+            this.eventId = eventId;
+            this.time = time;
+            this.remainingCapacity = remainingCapacity;
+        }
+
+        /**
+         * 解析一行日誌；寫到一半或格式不符的行回傳 null
+         */
+        static Entry parse(String line) {
+            String[] parts = line.split(",", -1);
+            if (parts.length < 5) {
+                return null;
+            }
+            String op = parts[0].trim();
+            if (!OP_REGISTER.equals(op) && !OP_CANCEL.equals(op)
+                    && !OP_WAITLIST_JOIN.equals(op) && !OP_WAITLIST_LEAVE.equals(op)) {
+                return null;
+            }
+            try {
+                return new Entry(op, parts[1].trim(), parts[2].trim(), parts[3].trim(),
+                        Integer.parseInt(parts[4].trim()));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        String toLine() {
+            return op + "," + studentId + "," + eventId + "," + time + "," + remainingCapacity;
+        }
+
+        public boolean isRegistration() { return OP_REGISTER.equals(op); }
+        public boolean isCancellation() { return OP_CANCEL.equals(op); }
+        public boolean isWaitlistJoin() { return OP_WAITLIST_JOIN.equals(op); }
+        public boolean isWaitlistLeave() { return OP_WAITLIST_LEAVE.equals(op); }
+        public String getStudentId() { return studentId; }
+        public String getEventId() { return eventId; }
+        public String getTime() { return time; }
+        public int getRemainingCapacity() { return remainingCapacity; }
+    }
+}
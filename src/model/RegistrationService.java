@@ -0,0 +1,170 @@
+package model;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * 報名與取消的流程：在 {@link RegistrationJournal} 的鎖內由 {@link SeatReservationEngine} 配給名額並寫入日誌。
+ * 畫面與其他入口都透過這裡報名，確保不會超賣。
+ * 報名前以 {@link StudentTimetable} 檢查是否與該學生已報名的活動時間重疊。
+ * 額滿的活動可以排入候補名單，有人取消時由 {@link RegistrationJournal} 依序遞補。
+ */
+public class RegistrationService {
+
+    public enum Result {
+        SUCCESS,
+        ALREADY_REGISTERED,
+        FULL,
+        EVENT_NOT_FOUND,
+        // 與已報名的活動時間重疊
+        TIME_CONFLICT
+    }
+
+    /** {@link #joinWaitlist} 的回傳值：活動仍有名額，沒有加入候補（應直接報名） */
+    public static final int SEATS_AVAILABLE = -1;
+
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static RegistrationService instance;
+
+    private final EventRepository eventRepository = EventRepository.getInstance();
+    private final RegistrationIndex registrationIndex = RegistrationIndex.getInstance();
+    private final RegistrationJournal registrationJournal = RegistrationJournal.getInstance();
+    private final SeatReservationEngine seatEngine = SeatReservationEngine.getInstance();
+    private final StudentTimetable timetable = StudentTimetable.getInstance();
+
+    private RegistrationService() {
+    }
+
+    public static synchronized RegistrationService getInstance() {
+        if (instance == null) {
+            instance = new RegistrationService();
+        }
+        return instance;
+    }
+
+    /**
+     * 報名；與已報名的活動時間重疊時回傳 {@link Result#TIME_CONFLICT}
+     */
+    public Result register(String studentId, String eventId) throws IOException {
+        return register(studentId, eventId, false);
+    }
+
+    /**
+     * 報名；allowTimeConflict 為 true 時（學生已確認過衝突）不檢查時間重疊
+     */
+    public Result register(String studentId, String eventId, boolean allowTimeConflict) throws IOException {
+        if (registrationIndex.isRegistered(studentId, eventId)) {
+            return Result.ALREADY_REGISTERED;
+        }
+        // 額滿且其他程式沒有新寫入（可能釋出名額）時不進入日誌的鎖，直接拒絕：
+        // 熱門活動額滿後湧入的請求不必排隊
+        if (seatEngine.isSoldOut(eventId) && registrationJournal.isCaughtUp()) {
+            return Result.FULL;
+        }
+
+        // 是否已報名、時間衝突、候補名單與剩餘名額都在日誌的鎖內以最新資料檢查，
+        // 同一位學生同時從兩個視窗或兩台服務機報名時只保留先寫入的那一筆
+        String registrationTime = LocalDateTime.now().format(TIME_FORMATTER);
+        return registrationJournal.recordRegistration(studentId, eventId, registrationTime, allowTimeConflict);
+    }
+
+    /**
+     * 加入額滿活動的候補名單，回傳目前排在第幾位；已報名或找不到活動時回傳 0。
+     * 活動仍有名額（例如同時有人取消）時不加入候補，回傳 {@link #SEATS_AVAILABLE}，
+     * 應改用 {@link #register} 報名（報名會檢查時間衝突）
+     */
+    public int joinWaitlist(String studentId, String eventId) throws IOException {
+        if (registrationIndex.isRegistered(studentId, eventId) || !eventRepository.containsId(eventId)) {
+            return 0;
+        }
+        String joinTime = LocalDateTime.now().format(TIME_FORMATTER);
+        return registrationJournal.recordWaitlistJoin(studentId, eventId, joinTime);
+    }
+
+    /**
+     * 離開候補名單；不在名單中時回傳 false
+     */
+    public boolean leaveWaitlist(String studentId, String eventId) throws IOException {
+        return registrationJournal.recordWaitlistLeave(studentId, eventId);
+    }
+
+    /**
+     * 學生在候補名單中排第幾位（從 1 起算）；不在名單中時回傳 0
+     */
+    public int getWaitlistPosition(String studentId, String eventId) {
+        return registrationIndex.getWaitingPosition(studentId, eventId);
+    }
+
+    public int getWaitlistSize(String eventId) {
+        return registrationIndex.countWaiting(eventId);
+    }
+
+    /**
+     * 某位學生正在候補的活動（紀錄中的時間為加入候補的時間）
+     */
+    public List<RegistrationEntry> getStudentWaitlist(String studentId) {
+        registrationIndex.ensureLoaded();
+        return registrationIndex.findWaitingByStudent(studentId);
+    }
+
+    /**
+     * 學生已報名、與此活動時間重疊的活動（報名前提示用）
+     */
+    public List<Event> findTimeConflicts(String studentId, Event event) {
+        return timetable.findConflicts(studentId, event);
+    }
+
+    /**
+     * 取消報名並歸還名額，回傳被取消的報名紀錄（不存在時為 null）
+     */
+    public RegistrationEntry cancel(String studentId, String eventId) throws IOException {
+        try {
+            return registrationJournal.recordCancellation(studentId, eventId);
+        } finally {
+            timetable.invalidate(studentId);
+        }
+    }
+
+    public int getRemainingSeats(String eventId) {
+        return seatEngine.getRemaining(eventId);
+    }
+
+    /**
+     * 活動的報名統計；找不到活動時回傳 null
+     */
+    public EventStatistics getStatistics(String eventId) {
+        eventRepository.ensureLoaded();
+        registrationIndex.ensureLoaded();
+        if (!eventRepository.containsId(eventId)) {
+            return null;
+        }
+        return new EventStatistics(eventId, registrationIndex.countByEvent(eventId), seatEngine.getRemaining(eventId));
+    }
+
+    /**
+     * 瀏覽活動：依關鍵字比對活動編號、標題、地點、時間與主辦單位；關鍵字為空時回傳全部
+     */
+    public List<Event> browseEvents(String keyword) {
+        eventRepository.ensureLoaded();
+        return eventRepository.search(keyword);
+    }
+
+    /**
+     * 某位學生的報名紀錄
+     */
+    public List<RegistrationEntry> getStudentRegistrations(String studentId) {
+        registrationIndex.ensureLoaded();
+        return registrationIndex.findByStudent(studentId);
+    }
+
+    /**
+     * 某個活動的報名名單
+     */
+    public List<RegistrationEntry> getRoster(String eventId) {
+        registrationIndex.ensureLoaded();
+        return registrationIndex.findByEvent(eventId);
+    }
+}
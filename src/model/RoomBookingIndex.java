@@ -0,0 +1,62 @@
+package model;
+
+import java.util.*;
+
+/**
+ * 場地借用索引（由 {@link EventRepository} 維護，不自行加鎖；匯入時也用來暫存尚未提交的活動）。
+ * 每個地點一條 {@link EventTimeline}，查詢某地點、某時段的衝突為 O(log n + k)，
+ * 不必與每個活動逐一比較。
+ *
+ * 活動只有開始時間，佔用時段依 {@link EventTime#endOf} 推算；地點為空或時間無法解析的活動不列入。
+ */
+class RoomBookingIndex {
+
+    // 地點代碼（KeyDictionary.LOCATIONS）-> 該場地的借用紀錄
+    private final List<EventTimeline> rooms = new ArrayList<>();
+
+    void add(Event event) {
+        if (!isBookable(event)) {
+            return;
+        }
+        int key = event.getLocationKey();
+        while (rooms.size() <= key) {
+            rooms.add(null);
+        }
+        EventTimeline room = rooms.get(key);
+        if (room == null) {
+            room = new EventTimeline();
+            rooms.set(key, room);
+        }
+        room.add(event);
+    }
+
+    /**
+     * 移除活動；必須在修改活動的地點或時間之前呼叫
+     */
+    void remove(Event event) {
+        EventTimeline room = room(event.getLocationKey());
+        if (room != null) {
+            room.remove(event);
+        }
+    }
+
+    void clear() {
+        rooms.clear();
+    }
+
+    /**
+     * 地點在 [from, to) 期間已借用的活動（不含 ignore），依開始時間排列
+     */
+    List<Event> findConflicts(String location, int from, int to, Event ignore) {
+        EventTimeline room = room(KeyDictionary.LOCATIONS.lookup(location));
+        return room != null ? room.findConflicts(from, to, ignore) : new ArrayList<>();
+    }
+
+    private EventTimeline room(int locationKey) {
+        return locationKey >= 0 && locationKey < rooms.size() ? rooms.get(locationKey) : null;
+    }
+
+    private static boolean isBookable(Event event) {
+        return event.getStartTime() != EventTime.UNKNOWN && !event.getLocation().trim().isEmpty();
+    }
+}
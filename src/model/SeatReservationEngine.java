@@ -0,0 +1,76 @@
+package model;
+
+/**
+ * 名額配給引擎。
+ * 每個活動的剩餘名額是活動物件上的一個原子計數器：扣除與歸還以 compare-and-set 完成，
+ * 不取得活動資料庫的鎖，不同活動之間、報名與瀏覽名額之間都不互相等待；名額為 0 時一律拒絕，不會扣成負數。
+ * 計數器就是活動資料庫中的名額（只有一份），重新載入、主辦人修改與套用其他程式的日誌都直接寫入它，
+ * 不需要另外對帳。
+ *
+ * 扣除與歸還在 {@link RegistrationJournal} 的鎖（含跨程式的檔案鎖）內呼叫，之後立即寫入日誌：
+ * 多個視窗、多台服務機共用同一個資料目錄時，同一時間只有一方在配給並寫入日誌，不會超賣；
+ * 重新載入活動也在同一個鎖內，不會把已扣除但尚未寫入日誌的名額算回去。
+ * 額滿的活動由 {@link #isSoldOut} 在進入日誌的鎖之前直接拒絕（其他程式有新寫入時除外），
+ * 熱門活動額滿後的大量請求不必排隊。
+ */
+public class SeatReservationEngine {
+
+    private static SeatReservationEngine instance;
+
+    private final EventRepository eventRepository = EventRepository.getInstance();
+
+    private SeatReservationEngine() {
+    }
+
+    public static synchronized SeatReservationEngine getInstance() {
+        if (instance == null) {
+            instance = new SeatReservationEngine();
+        }
+        return instance;
+    }
+
+    /**
+     * 嘗試扣除一個名額。
+     * 成功時回傳扣除後的剩餘名額；名額已滿回傳 -1；找不到活動回傳 -2。
+     */
+    public int tryReserve(String eventId) {
+        Event event = eventRepository.findForSeats(eventId);
+        if (event == null) {
+            return -2;
+        }
+        int remaining = event.takeSeat();
+        if (remaining >= 0) {
+            eventRepository.seatsChanged(event);
+        }
+        return remaining;
+    }
+
+    /**
+     * 歸還一個名額（取消報名時使用），回傳歸還後的剩餘名額；找不到活動時回傳 0
+     */
+    public int release(String eventId) {
+        Event event = eventRepository.findForSeats(eventId);
+        if (event == null) {
+            return 0;
+        }
+        int remaining = event.returnSeat();
+        eventRepository.seatsChanged(event);
+        return remaining;
+    }
+
+    /**
+     * 目前的剩餘名額；找不到活動時回傳 0
+     */
+    public int getRemaining(String eventId) {
+        return eventRepository.getRemainingSeats(eventId);
+    }
+
+    /**
+     * 活動存在且已額滿（不取得任何鎖）。
+     * 其他程式剛取消、本程式尚未讀到的名額不會反映在這裡，呼叫端需另外確認已讀入其他程式的變更
+     */
+    public boolean isSoldOut(String eventId) {
+        Event event = eventRepository.findForSeats(eventId);
+        return event != null && event.getCapacity() <= 0;
+    }
+}
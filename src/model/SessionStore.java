@@ -0,0 +1,98 @@
+package model;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 報名服務的登入工作階段。
+ * 登入成功後發給隨機的 token，之後的請求以 token 查出登入的帳號；
+ * 超過 {@value #IDLE_TIMEOUT_MILLIS} 毫秒沒有使用即失效，登出時立即失效。
+ * 只保存在記憶體中，服務重新啟動後需要重新登入。
+ */
+public class SessionStore {
+
+    private static final long IDLE_TIMEOUT_MILLIS = 30 * 60 * 1000;
+    private static final int TOKEN_BYTES = 32;
+    // 工作階段數超過此數量時清除已過期的紀錄
+    private static final int PRUNE_THRESHOLD = 10_000;
+
+    private static SessionStore instance;
+
+    private final SecureRandom random = new SecureRandom();
+    // token -> 工作階段
+    private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+
+    private static final class Session {
+        final String userId;
+        volatile long expiresAt;
+
+        Session(String userId, long expiresAt) {
+            this.userId = userId;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private SessionStore() {
+    }
+
+    public static synchronized SessionStore getInstance() {
+        if (instance == null) {
+            instance = new SessionStore();
+        }
+        return instance;
+    }
+
+    /**
+     * 為登入成功的帳號建立工作階段，回傳 token
+     */
+    public String open(String userId) {
+        long now = System.currentTimeMillis();
+        if (sessions.size() > PRUNE_THRESHOLD) {
+            pruneExpired(now);
+        }
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        sessions.put(token, new Session(userId, now + IDLE_TIMEOUT_MILLIS));
+        return token;
+    }
+
+    /**
+     * token 對應的帳號並延長有效時間；token 不存在或已過期時回傳 null
+     */
+    public String findUser(String token) {
+        if (token == null) {
+            return null;
+        }
+        Session session = sessions.get(token);
+        long now = System.currentTimeMillis();
+        if (session == null) {
+            return null;
+        }
+        if (session.expiresAt <= now) {
+            sessions.remove(token, session);
+            return null;
+        }
+        session.expiresAt = now + IDLE_TIMEOUT_MILLIS;
+        return session.userId;
+    }
+
+    /**
+     * 登出；token 不存在時回傳 false
+     */
+    public boolean close(String token) {
+        return token != null && sessions.remove(token) != null;
+    }
+
+    private void pruneExpired(long now) {
+        Iterator<Map.Entry<String, Session>> iterator = sessions.entrySet().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().getValue().expiresAt <= now) {
+                iterator.remove();
+            }
+        }
+    }
+}
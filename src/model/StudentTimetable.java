@@ -0,0 +1,105 @@
+package model;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 學生的課表索引：每位學生一條依活動時間排序的 {@link EventTimeline}，
+ * 報名時檢查是否與已報名的活動時間重疊為 O(log k)（k 為該學生的報名數），不必重新掃描報名資料。
+ *
+ * 課表在第一次查詢該學生時由 {@link RegistrationIndex} 建立，之後本程式報名成功時直接加入；
+ * 取消或報名失敗時只丟棄該學生的課表，下次查詢再重建。
+ * 其他程式寫入的報名、重新載入或修改活動時間時，只把世代編號加一（不取得鎖），
+ * 所有課表在下次查詢時重建，因此可以在報名索引與活動資料庫的鎖內呼叫 {@link #invalidateAll()}。
+ */
+public class StudentTimetable {
+
+    private static StudentTimetable instance;
+
+    // 學生代碼 -> 課表
+    private final Map<Integer, Schedule> schedules = new HashMap<>();
+    private final AtomicInteger generation = new AtomicInteger();
+
+    private static final class Schedule {
+        final EventTimeline timeline = new EventTimeline();
+        final int generation;
+
+        Schedule(int generation) {
+            this.generation = generation;
+        }
+    }
+
+    private StudentTimetable() {
+    }
+
+    public static synchronized StudentTimetable getInstance() {
+        if (instance == null) {
+            instance = new StudentTimetable();
+        }
+        return instance;
+    }
+
+    /**
+     * 學生已報名、與 event 時間重疊的活動（不含 event 本身）。
+     * 只查詢不編碼：從未報名過的學號沒有衝突，也不會加入學生字典
+     */
+    public synchronized List<Event> findConflicts(String studentId, Event event) {
+        int studentKey = KeyDictionary.STUDENTS.lookup(studentId);
+        if (studentKey == KeyDictionary.NONE) {
+            return Collections.emptyList();
+        }
+        return schedule(studentKey).timeline.findConflicts(event.getStartTime(), event.getEndTime(), event);
+    }
+
+    /**
+     * 是否與學生已報名的活動時間重疊（表格逐列標示時使用）
+     */
+    public synchronized boolean hasConflict(int studentKey, Event event) {
+        if (studentKey == KeyDictionary.NONE) {
+            return false;
+        }
+        return schedule(studentKey).timeline.hasConflict(event.getStartTime(), event.getEndTime(), event);
+    }
+
+    /**
+     * 報名成功後加入課表
+     */
+    public synchronized void added(String studentId, Event event) {
+        schedule(KeyDictionary.STUDENTS.encode(studentId)).timeline.add(event);
+    }
+
+    /**
+     * 丟棄學生的課表（取消報名或報名失敗時），下次查詢時由報名索引重建
+     */
+    public synchronized void invalidate(String studentId) {
+        schedules.remove(KeyDictionary.STUDENTS.lookup(studentId));
+    }
+
+    /**
+     * 丟棄所有課表；不取得鎖，可在其他元件的鎖內呼叫
+     */
+    public void invalidateAll() {
+        generation.incrementAndGet();
+    }
+
+    private Schedule schedule(int studentKey) {
+        int current = generation.get();
+        Schedule schedule = schedules.get(studentKey);
+        if (schedule == null || schedule.generation != current) {
+            if (schedule != null && schedule.generation != current) {
+                // 世代改變後舊的課表都已過期，一併清掉
+                schedules.clear();
+            }
+            schedule = new Schedule(current);
+            EventRepository repository = EventRepository.getInstance();
+            for (RegistrationEntry entry : RegistrationIndex.getInstance().findByStudentKey(studentKey)) {
+                Event registered = repository.findByKey(entry.getEventKey());
+                if (registered != null) {
+                    schedule.timeline.add(registered);
+                }
+            }
+            schedules.put(studentKey, schedule);
+        }
+        return schedule;
+    }
+}
@@ -3,7 +3,8 @@ package model;
 public abstract class User {
     protected String id;
     protected String name;
-    protected String password;
+    // 不可變：更新密碼時由 UserDirectory 換成新的物件，其他執行緒不會讀到更新到一半的值
+    protected final String password;
     public User(String id, String name, String password) {
         this.id = id;
         this.name = name;
@@ -0,0 +1,281 @@
+package model;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 全系統共用的使用者資料（users.csv）。
+ * 只在第一次使用時讀取，之後以學號／帳號直接查詢；檔案的修改時間或大小改變時才重新讀取
+ * （最多每 {@value #CHECK_INTERVAL_MILLIS} 毫秒檢查一次）。
+ * 使用者物件不可變：重新讀取時整份替換，更新密碼時換成新的物件，因此背景執行緒也可以直接查詢。
+ *
+ * users.csv 格式：帳號,姓名,密碼,角色（s 學生 / h 主辦人），沒有標題行。
+ * 密碼欄是 {@link PasswordHasher} 的雜湊；舊的明碼與舊成本的雜湊在該帳號登入成功後才重新雜湊
+ * （見 {@link LoginService}），只改寫那一筆，多筆更新合併後一次寫回檔案。
+ * 載入時不計算雜湊也不改寫檔案，啟動與重新讀取不會被雜湊的運算拖慢。
+ */
+public class UserDirectory {
+
+    private static final String CSV_FILE_NAME = "users.csv";
+    private static final long CHECK_INTERVAL_MILLIS = 1000;
+    // 密碼更新延遲寫回，登入尖峰時合併成一次寫檔
+    private static final long FLUSH_DELAY_MILLIS = 2000;
+
+    private static UserDirectory instance;
+
+    // 帳號 -> 使用者（物件不可變，更新密碼時替換）
+    private volatile Map<String, User> usersById = new ConcurrentHashMap<>();
+    private volatile boolean loaded = false;
+
+    private String csvPath;
+    private long loadedLastModified;
+    private long loadedLength;
+    private long lastCheckMillis;
+
+    // 尚未寫回 users.csv 的密碼（帳號 -> 新的密碼欄內容）
+    private final Map<String, String> pendingPasswords = new HashMap<>();
+    private boolean flushScheduled = false;
+    private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "user-directory-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private UserDirectory() {
+    }
+
+    public static synchronized UserDirectory getInstance() {
+        if (instance == null) {
+            instance = new UserDirectory();
+        }
+        return instance;
+    }
+
+    /**
+     * 尚未載入或檔案已變更時讀取 users.csv
+     */
+    public void ensureLoaded() {
+        refreshIfChanged();
+    }
+
+    /**
+     * 依帳號查詢使用者，找不到時回傳 null
+     */
+    public User findById(String userId) {
+        refreshIfChanged();
+        return userId != null ? usersById.get(userId) : null;
+    }
+
+    /**
+     * 帳號對應的姓名；找不到時回傳帳號本身
+     */
+    public String getName(String userId) {
+        User user = findById(userId);
+        return user != null ? user.getName() : userId;
+    }
+
+    /**
+     * 驗證帳號密碼，成功時回傳使用者，否則回傳 null。
+     * 需要計算雜湊，大量登入時請改用 {@link LoginService}（限制同時計算的數量並限制嘗試次數）
+     */
+    public User authenticate(String userId, String password) {
+        User user = findById(userId);
+        return user != null && PasswordHasher.verify(password, user.getPassword()) ? user : null;
+    }
+
+    /**
+     * 更新帳號的密碼欄（例如明碼改為雜湊），稍後寫回 users.csv；
+     * 從 classpath 載入的資料無法寫回，只更新記憶體
+     */
+    public synchronized void updatePassword(String userId, String storedPassword) {
+        if (usersById.computeIfPresent(userId, (id, user) -> withPassword(user, storedPassword)) == null) {
+            return;
+        }
+        if (csvPath == null) {
+            return;
+        }
+        pendingPasswords.put(userId, storedPassword);
+        if (!flushScheduled) {
+            flushScheduled = true;
+            writer.schedule(this::flushPasswords, FLUSH_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public int size() {
+        refreshIfChanged();
+        return usersById.size();
+    }
+
+    /**
+     * 強制重新讀取 users.csv（重新整理時使用）
+     */
+    public synchronized void reload() {
+        csvPath = DataFiles.find(CSV_FILE_NAME);
+        Map<String, User> users = new HashMap<>();
+
+        if (csvPath != null) {
+            File file = new File(csvPath);
+            // 先記錄修改時間，讀取途中檔案又被修改時下次仍會重新讀取
+            loadedLastModified = file.lastModified();
+            loadedLength = file.length();
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+                loadFromReader(reader, users);
+                System.out.println("成功從 " + csvPath + " 載入 " + users.size() + " 個用戶資料");
+            } catch (IOException e) {
+                System.err.println("讀取用戶資料時發生錯誤：" + e.getMessage());
+                e.printStackTrace();
+            }
+        } else {
+            // 找不到檔案時改從 classpath 載入（唯讀，不會再檢查是否修改）
+            InputStream inputStream = UserDirectory.class.getResourceAsStream("/" + CSV_FILE_NAME);
+            if (inputStream != null) {
+                try (BufferedReader reader = new BufferedReader(
+                        new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+                    loadFromReader(reader, users);
+                    System.out.println("從資源載入 " + users.size() + " 個用戶資料");
+                } catch (IOException e) {
+                    System.err.println("從資源載入用戶資料失敗：" + e.getMessage());
+                }
+            } else {
+                System.err.println("找不到users.csv檔案");
+            }
+        }
+
+        // 尚未寫回的密碼套用到重新讀取的資料
+        for (Map.Entry<String, String> pending : pendingPasswords.entrySet()) {
+            users.computeIfPresent(pending.getKey(), (id, user) -> withPassword(user, pending.getValue()));
+        }
+
+        usersById = new ConcurrentHashMap<>(users);
+        lastCheckMillis = System.currentTimeMillis();
+        loaded = true;
+    }
+
+    /**
+     * 檔案已變更時立即重新讀取（不受檢查間隔限制，資料目錄監看使用）
+     */
+    public synchronized void reloadIfChanged() {
+        if (!loaded || csvPath == null) {
+            return;
+        }
+        lastCheckMillis = 0;
+        refreshIfChanged();
+    }
+
+    private void refreshIfChanged() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    reload();
+                }
+            }
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (csvPath == null || now - lastCheckMillis < CHECK_INTERVAL_MILLIS) {
+            return;
+        }
+        synchronized (this) {
+            if (now - lastCheckMillis < CHECK_INTERVAL_MILLIS) {
+                return;
+            }
+            lastCheckMillis = now;
+            File file = new File(csvPath);
+            if (file.lastModified() != loadedLastModified || file.length() != loadedLength) {
+                System.out.println("users.csv 已變更，重新載入");
+                reload();
+            }
+        }
+    }
+
+    /**
+     * 把累積的密碼更新寫回 users.csv：逐行替換密碼欄，其他內容與順序不變，
+     * 先寫到暫存檔再取代原檔，寫到一半中斷也不會留下不完整的檔案
+     */
+    private synchronized void flushPasswords() {
+        flushScheduled = false;
+        if (pendingPasswords.isEmpty() || csvPath == null) {
+            return;
+        }
+        Path path = new File(csvPath).toPath();
+        try {
+            List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+            StringBuilder content = new StringBuilder();
+            for (String line : lines) {
+                String[] data = line.split(",", -1);
+                String password = data.length >= 4 ? pendingPasswords.get(data[0].trim()) : null;
+                if (password != null) {
+                    data[2] = password;
+                    line = String.join(",", data);
+                }
+                content.append(line).append('\n');
+            }
+
+            Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+            Files.write(temp, content.toString().getBytes(StandardCharsets.UTF_8));
+            try {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            System.out.println("已更新 " + pendingPasswords.size() + " 個帳號的密碼雜湊");
+            pendingPasswords.clear();
+            // 自己寫入的變更不必重新讀取
+            File file = path.toFile();
+            loadedLastModified = file.lastModified();
+            loadedLength = file.length();
+            DataDirectoryWatcher.getInstance().recordOwnWrite(file);
+        } catch (IOException e) {
+            // 保留未寫回的更新，下次更新密碼時再寫
+            System.err.println("寫回用戶資料時發生錯誤：" + e.getMessage());
+        }
+    }
+
+    private static User withPassword(User user, String storedPassword) {
+        return user instanceof Organizer
+                ? new Organizer(user.getId(), user.getName(), storedPassword)
+                : new Student(user.getId(), user.getName(), storedPassword);
+    }
+
+    private static void loadFromReader(BufferedReader reader, Map<String, User> users) throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            String[] data = line.split(",", -1);
+            if (data.length < 4) {
+                continue;
+            }
+            // 帳號與姓名會被各畫面大量引用，共用同一個字串實體
+            String id = data[0].trim().intern();
+            String name = data[1].trim().intern();
+            String password = data[2].trim();
+            String role = data[3].trim();
+
+            // 跳過明顯是標題的行
+            if (id.equalsIgnoreCase("id") || id.equalsIgnoreCase("學號") || id.contains("ID")) {
+                continue;
+            }
+
+            if (role.equalsIgnoreCase("s")) {
+                users.put(id, new Student(id, name, password));
+            } else if (role.equalsIgnoreCase("h")) {
+                users.put(id, new Organizer(id, name, password));
+            }
+        }
+    }
+}